@@ -12,6 +12,33 @@ DROP TABLE IF EXISTS low_stock_alerts;
 DROP TABLE IF EXISTS medicines;
 DROP TABLE IF EXISTS suppliers;
 DROP TABLE IF EXISTS users;
+DROP TABLE IF EXISTS id_sequences;
+DROP TABLE IF EXISTS row_tombstones;
+DROP TABLE IF EXISTS sale_journal_entries;
+
+-- ID Sequences Table
+-- next_value is the next number to hand out for each id prefix. The Java
+-- IdAllocator reserves blocks from it (hi/lo); the triggers below take one
+-- number at a time for rows inserted without an id.
+CREATE TABLE id_sequences (
+    name VARCHAR(3) PRIMARY KEY,
+    next_value BIGINT NOT NULL DEFAULT 1
+);
+
+INSERT INTO id_sequences (name, next_value) VALUES
+('USR', 1), ('SUP', 1), ('MED', 1), ('INV', 1), ('ALT', 1);
+
+-- Row Tombstones Table
+-- One row per deleted user, supplier or medicine, written by the AFTER DELETE
+-- triggers below. Terminals poll it (with updated_date on the live tables) to
+-- keep their caches in step with each other; old rows can be purged freely.
+CREATE TABLE row_tombstones (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    table_name VARCHAR(20) NOT NULL,
+    row_id VARCHAR(10) NOT NULL,
+    deleted_date DATETIME DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_deleted (deleted_date)
+);
 
 -- Users Table
 CREATE TABLE users (
@@ -28,7 +55,8 @@ CREATE TABLE users (
     updated_date DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_username (username),
     INDEX idx_email (email),
-    INDEX idx_role (role)
+    INDEX idx_role (role),
+    INDEX idx_updated (updated_date)
 );
 
 -- Suppliers Table
@@ -43,7 +71,8 @@ CREATE TABLE suppliers (
     created_date DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_date DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_name (name),
-    INDEX idx_active (is_active)
+    INDEX idx_active (is_active),
+    INDEX idx_updated (updated_date)
 );
 
 -- Medicines Table
@@ -57,6 +86,7 @@ CREATE TABLE medicines (
     supplier_id VARCHAR(10),
     threshold INT NOT NULL DEFAULT 10,
     description TEXT,
+    version INT NOT NULL DEFAULT 0, -- bumped by every write; updates compare-and-set on it
     created_date DATETIME DEFAULT CURRENT_TIMESTAMP,
     updated_date DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (supplier_id) REFERENCES suppliers(id) ON DELETE SET NULL,
@@ -64,7 +94,8 @@ CREATE TABLE medicines (
     INDEX idx_category (category),
     INDEX idx_stock (stock),
     INDEX idx_expiry (expiry_date),
-    INDEX idx_supplier (supplier_id)
+    INDEX idx_supplier (supplier_id),
+    INDEX idx_updated (updated_date)
 );
 
 -- Sales Table
@@ -102,6 +133,15 @@ CREATE TABLE sale_items (
     INDEX idx_medicine_id (medicine_id)
 );
 
+-- Sale Journal Entries Table
+-- Entry ids of recorded sales. Each new sale claims its id in the transaction
+-- that records it, online or when replayed from the local sales journal, so a
+-- sale journaled after a commit that did land is never recorded twice.
+CREATE TABLE sale_journal_entries (
+    entry_id CHAR(36) PRIMARY KEY,
+    applied_date DATETIME DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Low Stock Alerts Table
 CREATE TABLE low_stock_alerts (
     id VARCHAR(10) PRIMARY KEY,
@@ -197,28 +237,26 @@ CREATE PROCEDURE UpdateMedicineStock(
     IN p_operation VARCHAR(10) -- 'ADD' or 'SUBTRACT'
 )
 BEGIN
-    DECLARE current_stock INT;
     DECLARE new_stock INT;
     DECLARE threshold_value INT;
     
-    -- Get current stock and threshold
-    SELECT stock, threshold INTO current_stock, threshold_value
-    FROM medicines 
-    WHERE id = p_medicine_id;
-    
-    -- Calculate new stock
+    -- Apply the change in one conditional UPDATE so concurrent callers cannot
+    -- lose each other's writes, and bump the version for optimistic editors
     IF p_operation = 'ADD' THEN
-        SET new_stock = current_stock + p_quantity_change;
+        UPDATE medicines 
+        SET stock = stock + p_quantity_change, version = version + 1, updated_date = CURRENT_TIMESTAMP
+        WHERE id = p_medicine_id;
     ELSEIF p_operation = 'SUBTRACT' THEN
-        SET new_stock = current_stock - p_quantity_change;
-        IF new_stock < 0 THEN
+        UPDATE medicines 
+        SET stock = stock - p_quantity_change, version = version + 1, updated_date = CURRENT_TIMESTAMP
+        WHERE id = p_medicine_id AND stock >= p_quantity_change;
+        IF ROW_COUNT() = 0 THEN
             SIGNAL SQLSTATE '45000' SET MESSAGE_TEXT = 'Insufficient stock';
         END IF;
     END IF;
     
-    -- Update stock
-    UPDATE medicines 
-    SET stock = new_stock, updated_date = CURRENT_TIMESTAMP
+    SELECT stock, threshold INTO new_stock, threshold_value
+    FROM medicines 
     WHERE id = p_medicine_id;
     
     -- Check if low stock alert needed
@@ -227,6 +265,23 @@ BEGIN
     END IF;
 END //
 
+-- Procedure to take the next id for a prefix from id_sequences (row lock, no table scan).
+-- A procedure rather than a function: a non-deterministic function that modifies
+-- data cannot be created with binary logging on (ERROR 1418) unless
+-- log_bin_trust_function_creators is set.
+CREATE PROCEDURE NextSequenceId(
+    IN p_name VARCHAR(3),
+    OUT p_id VARCHAR(10)
+)
+BEGIN
+    DECLARE seq_value BIGINT;
+    
+    UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + 1) WHERE name = p_name;
+    SET seq_value = LAST_INSERT_ID() - 1;
+    -- At least three digits, never truncated past 999
+    SET p_id = CONCAT(p_name, LPAD(seq_value, GREATEST(3, CHAR_LENGTH(seq_value)), '0'));
+END //
+
 -- Procedure to create low stock alert
 CREATE PROCEDURE CreateLowStockAlert(
     IN p_medicine_id VARCHAR(10)
@@ -237,6 +292,7 @@ BEGIN
     DECLARE threshold_val INT;
     DECLARE priority_val VARCHAR(10);
     DECLARE alert_exists INT DEFAULT 0;
+    DECLARE alert_id VARCHAR(10);
     
     -- Get medicine details
     SELECT name, stock, threshold 
@@ -263,11 +319,12 @@ BEGIN
         END IF;
         
         -- Insert alert
+        CALL NextSequenceId('ALT', alert_id);
         INSERT INTO low_stock_alerts (
             id, medicine_id, medicine_name, current_stock, 
             threshold_stock, priority, status
         ) VALUES (
-            CONCAT('ALT', LPAD((SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM low_stock_alerts), 3, '0')),
+            alert_id,
             p_medicine_id, medicine_name_val, current_stock_val, 
             threshold_val, priority_val, 'ACTIVE'
         );
@@ -317,15 +374,18 @@ DELIMITER ;
 
 -- Triggers
 
--- Trigger to auto-generate IDs
+-- Triggers to auto-generate IDs for rows inserted without one
 DELIMITER //
 
 CREATE TRIGGER before_user_insert 
 BEFORE INSERT ON users 
 FOR EACH ROW 
 BEGIN
+    DECLARE new_id VARCHAR(10);
+    
     IF NEW.id IS NULL OR NEW.id = '' THEN
-        SET NEW.id = CONCAT('USR', LPAD((SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM users), 3, '0'));
+        CALL NextSequenceId('USR', new_id);
+        SET NEW.id = new_id;
     END IF;
 END //
 
@@ -333,8 +393,11 @@ CREATE TRIGGER before_supplier_insert
 BEFORE INSERT ON suppliers 
 FOR EACH ROW 
 BEGIN
+    DECLARE new_id VARCHAR(10);
+    
     IF NEW.id IS NULL OR NEW.id = '' THEN
-        SET NEW.id = CONCAT('SUP', LPAD((SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM suppliers), 3, '0'));
+        CALL NextSequenceId('SUP', new_id);
+        SET NEW.id = new_id;
     END IF;
 END //
 
@@ -342,8 +405,11 @@ CREATE TRIGGER before_medicine_insert
 BEFORE INSERT ON medicines 
 FOR EACH ROW 
 BEGIN
+    DECLARE new_id VARCHAR(10);
+    
     IF NEW.id IS NULL OR NEW.id = '' THEN
-        SET NEW.id = CONCAT('MED', LPAD((SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM medicines), 3, '0'));
+        CALL NextSequenceId('MED', new_id);
+        SET NEW.id = new_id;
     END IF;
 END //
 
@@ -351,11 +417,36 @@ CREATE TRIGGER before_sale_insert
 BEFORE INSERT ON sales 
 FOR EACH ROW 
 BEGIN
+    DECLARE new_id VARCHAR(10);
+    
     IF NEW.id IS NULL OR NEW.id = '' THEN
-        SET NEW.id = CONCAT('INV', LPAD((SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM sales), 3, '0'));
+        CALL NextSequenceId('INV', new_id);
+        SET NEW.id = new_id;
     END IF;
 END //
 
+-- Record deletions for other terminals' delta sync
+CREATE TRIGGER after_user_delete 
+AFTER DELETE ON users 
+FOR EACH ROW 
+BEGIN
+    INSERT INTO row_tombstones (table_name, row_id) VALUES ('users', OLD.id);
+END //
+
+CREATE TRIGGER after_supplier_delete 
+AFTER DELETE ON suppliers 
+FOR EACH ROW 
+BEGIN
+    INSERT INTO row_tombstones (table_name, row_id) VALUES ('suppliers', OLD.id);
+END //
+
+CREATE TRIGGER after_medicine_delete 
+AFTER DELETE ON medicines 
+FOR EACH ROW 
+BEGIN
+    INSERT INTO row_tombstones (table_name, row_id) VALUES ('medicines', OLD.id);
+END //
+
 DELIMITER ;
 
 -- Create indexes for better performance
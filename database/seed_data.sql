@@ -91,3 +91,10 @@ INSERT INTO sale_items (sale_id, medicine_id, medicine_name, price, quantity, su
 ('INV008', 'MED018', 'Multivitamin Tablets', 15.99, 2, 31.98),
 ('INV008', 'MED019', 'Acetaminophen 325mg', 1.99, 5, 9.95),
 ('INV008', 'MED017', 'Hydrocortisone Cream 1%', 7.25, 3, 21.75);
+
+-- Move id sequences past the ids inserted explicitly above
+UPDATE id_sequences SET next_value = (SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM users) WHERE name = 'USR';
+UPDATE id_sequences SET next_value = (SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM suppliers) WHERE name = 'SUP';
+UPDATE id_sequences SET next_value = (SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM medicines) WHERE name = 'MED';
+UPDATE id_sequences SET next_value = (SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM sales) WHERE name = 'INV';
+UPDATE id_sequences SET next_value = (SELECT COALESCE(MAX(CAST(SUBSTRING(id, 4) AS UNSIGNED)), 0) + 1 FROM low_stock_alerts) WHERE name = 'ALT';
@@ -0,0 +1,595 @@
+package api;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import controllers.MedicineController;
+import controllers.SaleController;
+import controllers.UserController;
+import models.Medicine;
+import models.Sale;
+import models.User;
+import utils.DatabaseManager;
+
+/**
+ * Headless HTTP/JSON API for the Next.js dashboard, on the JDK's built-in
+ * HttpServer. Connections are multiplexed by the server's selector thread;
+ * only requests in progress occupy a worker, so idle keep-alive clients cost
+ * no threads. Workers come from a fixed pool with a bounded queue; when both
+ * are full the request is answered 503 straight away instead of growing
+ * memory without limit.
+ * Responses are streamed with Jackson's JsonGenerator.
+ * Writes need an application/json body, which a page on another origin can
+ * only send after a CORS preflight, and a bearer token from
+ * POST /api/users/login (or -Dapi.token).
+ *
+ * Run with: java -cp pharmacy-management-system.jar api.ApiServer
+ */
+public class ApiServer {
+    private static final String HOST = System.getProperty("api.host", "127.0.0.1");
+    private static final int PORT = Integer.getInteger("api.port", 8080);
+    private static final int THREADS = Integer.getInteger("api.threads", 32);
+    private static final int QUEUE_SIZE = Integer.getInteger("api.queueSize", 2048);
+    private static final int BACKLOG = Integer.getInteger("api.backlog", 1024);
+    private static final String CORS_ORIGIN = System.getProperty("api.corsOrigin", "http://localhost:3000");
+    
+    static {
+        // The JDK server writes the headers and each body chunk separately; with Nagle on, every
+        // response then waits out the client's delayed ACK (~40 ms). Read once, when it first starts.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        // Past 200 idle keep-alive connections it closes finished ones without a Connection: close
+        // header, and a dashboard that reuses one in that window gets an empty reply
+        if (System.getProperty("sun.net.httpserver.maxIdleConnections") == null) {
+            System.setProperty("sun.net.httpserver.maxIdleConnections", String.valueOf(QUEUE_SIZE + BACKLOG));
+        }
+    }
+    
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    
+    private static final JsonFactory JSON = new JsonFactory();
+    
+    // Set while the accepting thread runs a request the pool had no room for
+    private static final ThreadLocal<Boolean> OVERLOADED = ThreadLocal.withInitial(() -> false);
+    
+    private final HttpServer server;
+    private final ThreadPoolExecutor executor;
+    private final DatabaseManager dbManager = DatabaseManager.getInstance();
+    private final MedicineController medicineController = new MedicineController();
+    private final SaleController saleController = new SaleController();
+    private final UserController userController = new UserController();
+    private final ChangeStream changeStream = new ChangeStream(dbManager.getChangeFeed());
+    private final Sessions sessions = new Sessions();
+    private final LoginThrottle loginThrottle = new LoginThrottle();
+    
+    // Handler for one API prefix; path is what follows the prefix ("" or "/...")
+    private interface Route {
+        void handle(HttpExchange exchange, String path) throws IOException;
+    }
+    
+    // Thrown by handlers to answer with an error status and message
+    private static class ApiException extends RuntimeException {
+        final int status;
+        
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+    
+    // Writes a response body to the generator
+    private interface Body {
+        void write(JsonGenerator json) throws IOException;
+    }
+    
+    public ApiServer(String host, int port) throws IOException {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(THREADS, THREADS, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE),
+            r -> {
+                Thread t = new Thread(r, "api-worker-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            },
+            (request, pool) -> {
+                // Only the request line and headers are read before the handler answers 503
+                OVERLOADED.set(true);
+                try {
+                    request.run();
+                } finally {
+                    OVERLOADED.set(false);
+                }
+            });
+        
+        server = HttpServer.create(new InetSocketAddress(host, port), BACKLOG);
+        server.setExecutor(executor);
+        server.createContext("/api/medicines", handler("/api/medicines", this::medicines));
+        server.createContext("/api/sales", handler("/api/sales", this::sales));
+        server.createContext("/api/dashboard", handler("/api/dashboard", this::dashboard));
+        server.createContext("/api/users", handler("/api/users", this::users));
+        server.createContext("/api/changes", this::changes);
+    }
+    
+    public void start() {
+        server.start();
+        System.out.println("API server listening on http://" + server.getAddress().getHostString() + ":" +
+                           server.getAddress().getPort() + " (" + THREADS + " workers)");
+    }
+    
+    public void stop(int delaySeconds) {
+        changeStream.shutdown();
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    // Medicines
+    
+    private void medicines(HttpExchange exchange, String path) throws IOException {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = parseQuery(exchange);
+        
+        if (path.isEmpty()) {
+            // Keyset-paged listing; pass the returned next cursor to get the following page
+            int limit = Math.min(MAX_PAGE_SIZE, intParam(query, "limit", DEFAULT_PAGE_SIZE));
+            List<Medicine> page = medicineController.findMedicinesPage(query.get("search"), query.get("category"),
+                query.get("afterName"), query.get("afterId"), 0, limit);
+            Medicine last = page.size() == limit ? page.get(page.size() - 1) : null;
+            sendJson(exchange, 200, json -> {
+                json.writeStartObject();
+                json.writeArrayFieldStart("items");
+                for (Medicine medicine : page) {
+                    JsonWriter.writeMedicine(json, medicine);
+                }
+                json.writeEndArray();
+                json.writeStringField("nextAfterName", last == null ? null : last.getName());
+                json.writeStringField("nextAfterId", last == null ? null : last.getId());
+                json.writeEndObject();
+            });
+        } else if (path.equals("/search")) {
+            String term = query.getOrDefault("q", "");
+            boolean fuzzy = Boolean.parseBoolean(query.get("fuzzy"));
+            int limit = intParam(query, "limit", 0); // optional; 0 = every match
+            sendMedicines(exchange, fuzzy ? medicineController.searchMedicinesTolerant(term)
+                                          : medicineController.searchMedicines(term, limit));
+        } else if (path.equals("/low-stock")) {
+            sendMedicines(exchange, medicineController.getLowStockMedicines());
+        } else if (path.equals("/categories")) {
+            List<String> categories = medicineController.getCategories();
+            sendJson(exchange, 200, json -> {
+                json.writeStartArray();
+                for (String category : categories) {
+                    json.writeString(category);
+                }
+                json.writeEndArray();
+            });
+        } else {
+            Medicine medicine = medicineController.getMedicineById(path.substring(1));
+            if (medicine == null) {
+                throw new ApiException(404, "Medicine not found");
+            }
+            sendJson(exchange, 200, json -> JsonWriter.writeMedicine(json, medicine));
+        }
+    }
+    
+    private void sendMedicines(HttpExchange exchange, List<Medicine> medicines) throws IOException {
+        sendJson(exchange, 200, json -> {
+            json.writeStartArray();
+            for (Medicine medicine : medicines) {
+                JsonWriter.writeMedicine(json, medicine);
+            }
+            json.writeEndArray();
+        });
+    }
+    
+    // Sales
+    
+    private void sales(HttpExchange exchange, String path) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (path.isEmpty() && method.equals("POST")) {
+            createSale(exchange);
+            return;
+        }
+        requireMethod(exchange, "GET");
+        
+        if (path.isEmpty()) {
+            List<Sale> sales = saleController.getAllSales();
+            sendJson(exchange, 200, json -> {
+                json.writeStartArray();
+                for (Sale sale : sales) {
+                    JsonWriter.writeSale(json, sale);
+                }
+                json.writeEndArray();
+            });
+        } else {
+            Sale sale = saleController.getSaleById(path.substring(1));
+            if (sale == null) {
+                throw new ApiException(404, "Sale not found");
+            }
+            sendJson(exchange, 200, json -> JsonWriter.writeSale(json, sale));
+        }
+    }
+    
+    /**
+     * Body: {"customerName": "...", "cashierId": "...", "items": [{"medicineId": "...", "quantity": n}, ...]}
+     * The cashier is the logged-in user; cashierId may be left out, and is
+     * required only with the -Dapi.token service token.
+     * 201 with the sale; 202 if the connection dropped during the commit and the
+     * sale was journaled for upload instead; 400 for a bad body or unknown
+     * cashier; 401 without a valid token; 403 for another user's cashierId;
+     * 409 if stock ran out; 415 unless the body is JSON; 503 if the database
+     * cannot be reached.
+     */
+    private void createSale(HttpExchange exchange) throws IOException {
+        byte[] body = readBody(exchange);
+        Sessions.Principal principal = requireAuthentication(exchange);
+        String customerName = null;
+        String cashierId = null;
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        
+        try (JsonParser parser = JSON.createParser(body)) {
+            expect(parser.nextToken() == JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (field.equals("customerName")) {
+                    customerName = parser.getValueAsString();
+                } else if (field.equals("cashierId")) {
+                    cashierId = parser.getValueAsString();
+                } else if (field.equals("items")) {
+                    expect(value == JsonToken.START_ARRAY);
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        String medicineId = null;
+                        int quantity = 0;
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String itemField = parser.getCurrentName();
+                            parser.nextToken();
+                            if (itemField.equals("medicineId")) {
+                                medicineId = parser.getValueAsString();
+                            } else if (itemField.equals("quantity")) {
+                                quantity = parser.getValueAsInt();
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                        expect(medicineId != null && quantity > 0);
+                        quantities.merge(medicineId, quantity, Integer::sum);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            throw new ApiException(400, "Malformed JSON: " + e.getOriginalMessage());
+        }
+        if (principal.userId != null) {
+            if (cashierId != null && !cashierId.equals(principal.userId)) {
+                throw new ApiException(403, "Sales can only be recorded for the logged-in cashier");
+            }
+            cashierId = principal.userId;
+        }
+        if (customerName == null || cashierId == null || quantities.isEmpty()) {
+            throw new ApiException(400, "customerName, cashierId and at least one item are required");
+        }
+        requireDatabase();
+        
+        if (userController.getUserById(cashierId) == null) {
+            requireDatabase(); // the lookup may have failed rather than found nothing
+            throw new ApiException(400, "Unknown cashier: " + cashierId);
+        }
+        Map<Medicine, Integer> items = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> line : quantities.entrySet()) {
+            Medicine medicine = medicineController.getMedicineById(line.getKey());
+            if (medicine == null) {
+                requireDatabase();
+                throw new ApiException(404, "Medicine not found: " + line.getKey());
+            }
+            items.put(medicine, line.getValue());
+        }
+        
+        Sale sale = saleController.processSale(customerName, cashierId, items);
+        if (sale == null) {
+            requireDatabase();
+            throw new ApiException(409, "Insufficient stock for one or more items");
+        }
+        sendJson(exchange, sale.getId() == null ? 202 : 201, json -> JsonWriter.writeSale(json, sale));
+    }
+    
+    // 503 while the database is known to be down, or when a probe after a failure cannot reach it
+    private void requireDatabase() {
+        if (dbManager.isOfflineCheckout() || !dbManager.isDatabaseConnected()) {
+            throw new ApiException(503, "Database unavailable, try again later");
+        }
+    }
+    
+    // Dashboard
+    
+    private void dashboard(HttpExchange exchange, String path) throws IOException {
+        requireMethod(exchange, "GET");
+        if (!path.isEmpty()) {
+            throw new ApiException(404, "Not found");
+        }
+        sendJson(exchange, 200, json -> JsonWriter.writeDashboardStats(json, dbManager.getDashboardStats()));
+    }
+    
+    // Users
+    
+    private void users(HttpExchange exchange, String path) throws IOException {
+        if (path.equals("/login")) {
+            requireMethod(exchange, "POST");
+            byte[] body = readBody(exchange);
+            String client = exchange.getRemoteAddress().getAddress().getHostAddress();
+            long retryAfterMs = loginThrottle.tryAcquire(client);
+            if (retryAfterMs > 0) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf((retryAfterMs + 999) / 1000));
+                throw new ApiException(429, "Too many login attempts, try again later");
+            }
+            String username = null;
+            String password = null;
+            try (JsonParser parser = JSON.createParser(body)) {
+                expect(parser.nextToken() == JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    parser.nextToken();
+                    if (field.equals("username")) {
+                        username = parser.getValueAsString();
+                    } else if (field.equals("password")) {
+                        password = parser.getValueAsString();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            } catch (JsonProcessingException e) {
+                throw new ApiException(400, "Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (username == null || password == null) {
+                throw new ApiException(400, "username and password are required");
+            }
+            User user = userController.authenticateUser(username, password);
+            if (user == null) {
+                throw new ApiException(401, "Invalid username or password");
+            }
+            loginThrottle.succeeded(client);
+            String token = sessions.create(user.getId());
+            sendJson(exchange, 200, json -> {
+                json.writeStartObject();
+                json.writeStringField("token", token);
+                json.writeNumberField("expiresInSeconds", sessions.getTtlMillis() / 1000);
+                json.writeFieldName("user");
+                JsonWriter.writeUser(json, user);
+                json.writeEndObject();
+            });
+        } else if (path.equals("/logout")) {
+            requireMethod(exchange, "POST");
+            sessions.revoke(exchange.getRequestHeaders().getFirst("Authorization"));
+            exchange.sendResponseHeaders(204, -1);
+        } else if (path.equals("/availability")) {
+            requireMethod(exchange, "GET");
+            Map<String, String> query = parseQuery(exchange);
+            String username = query.get("username");
+            String email = query.get("email");
+            sendJson(exchange, 200, json -> {
+                json.writeStartObject();
+                if (username != null) {
+                    json.writeBooleanField("usernameAvailable", userController.isUsernameAvailable(username));
+                }
+                if (email != null) {
+                    json.writeBooleanField("emailAvailable", !userController.isEmailAlreadyExists(email));
+                }
+                json.writeEndObject();
+            });
+        } else {
+            throw new ApiException(404, "Not found");
+        }
+    }
+    
+    // Live stock changes as Server-Sent Events; the exchange stays open and is written by ChangeStream
+    private void changes(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", CORS_ORIGIN);
+        if (rejectIfOverloaded(exchange)) {
+            exchange.close();
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            exchange.close();
+            return;
+        }
+        long lastEventId = -1;
+        String header = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+        String since = header != null ? header : parseQuery(exchange).get("since");
+        if (since != null) {
+            try {
+                lastEventId = Long.parseLong(since.trim());
+            } catch (NumberFormatException e) {
+                // Unknown position: start from now
+            }
+        }
+        try {
+            changeStream.open(exchange, lastEventId);
+        } catch (IOException e) {
+            exchange.close();
+        }
+    }
+    
+    // Plumbing
+    
+    private com.sun.net.httpserver.HttpHandler handler(String prefix, Route route) {
+        return exchange -> {
+            try {
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", CORS_ORIGIN);
+                if (rejectIfOverloaded(exchange)) {
+                    return;
+                }
+                if (exchange.getRequestMethod().equals("OPTIONS")) {
+                    exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+                    exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type, Authorization");
+                    exchange.sendResponseHeaders(204, -1);
+                    return;
+                }
+                String path = exchange.getRequestURI().getPath().substring(prefix.length());
+                if (path.endsWith("/")) {
+                    path = path.substring(0, path.length() - 1);
+                }
+                route.handle(exchange, path);
+            } catch (ApiException e) {
+                sendError(exchange, e.status, e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println("API error on " + exchange.getRequestURI() + ": " + e);
+                sendError(exchange, 500, "Internal server error");
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+    
+    // Answers 503 if the pool had no room for this request
+    private static boolean rejectIfOverloaded(HttpExchange exchange) {
+        if (!OVERLOADED.get()) {
+            return false;
+        }
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, 503, "Server busy, try again later");
+        return true;
+    }
+    
+    private static void sendJson(HttpExchange exchange, int status, Body body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, 0); // chunked: the body is streamed as it is generated
+        try (OutputStream out = exchange.getResponseBody();
+             JsonGenerator json = JSON.createGenerator(out, JsonEncoding.UTF8)) {
+            body.write(json);
+        }
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return; // headers already sent; nothing more can be said
+        }
+        try {
+            sendJson(exchange, status, json -> {
+                json.writeStartObject();
+                json.writeStringField("error", message);
+                json.writeEndObject();
+            });
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+    
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new ApiException(405, "Method not allowed");
+        }
+    }
+    
+    private Sessions.Principal requireAuthentication(HttpExchange exchange) {
+        Sessions.Principal principal = sessions.authenticate(exchange.getRequestHeaders().getFirst("Authorization"));
+        if (principal == null) {
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+            throw new ApiException(401, "Log in first: send Authorization: Bearer <token>");
+        }
+        return principal;
+    }
+    
+    private static void expect(boolean condition) {
+        if (!condition) {
+            throw new ApiException(400, "Unexpected request body");
+        }
+    }
+    
+    // Only JSON bodies: a cross-origin form or text/plain POST would otherwise skip the CORS preflight
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        int semicolon = contentType == null ? -1 : contentType.indexOf(';');
+        String mediaType = semicolon < 0 ? contentType : contentType.substring(0, semicolon);
+        if (mediaType == null || !mediaType.trim().equalsIgnoreCase("application/json")) {
+            throw new ApiException(415, "Content-Type must be application/json");
+        }
+        try (InputStream in = exchange.getRequestBody()) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (body.size() + read > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body too large");
+                }
+                body.write(buffer, 0, read);
+            }
+            return body.toByteArray();
+        }
+    }
+    
+    private static Map<String, String> parseQuery(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(decode(key), decode(value));
+        }
+        return params;
+    }
+    
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            throw new ApiException(400, "Bad query string");
+        }
+    }
+    
+    private static int intParam(Map<String, String> query, String name, int defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed <= 0) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new ApiException(400, "Invalid " + name);
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        ApiServer apiServer = new ApiServer(HOST, PORT);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> apiServer.stop(1)));
+        apiServer.start();
+    }
+}
@@ -0,0 +1,206 @@
+package api;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import models.StockChange;
+import utils.ChangeFeed;
+
+/**
+ * Server-Sent Events fan-out of the stock change feed. Every open stream is
+ * a cursor into the ring buffer; one thread wakes every INTERVAL_MS, reads
+ * what is new for each client and queues it on that client's bounded frame
+ * queue, so it never blocks on a socket and clients never touch MySQL. A
+ * client's queue is drained by a writer borrowed from a pool only while it
+ * has frames, so an idle stream holds no thread. A client whose queue
+ * overflows or whose write stalls for WRITE_TIMEOUT_MS is dropped; it
+ * reconnects with Last-Event-ID. A client that falls a ring behind is sent
+ * a "resync" event and should reload.
+ */
+class ChangeStream {
+    private static final long INTERVAL_MS = Long.getLong("api.sse.intervalMs", 250L);
+    private static final long HEARTBEAT_MS = 15000;
+    private static final int MAX_BATCH = 256;
+    private static final int QUEUE_FRAMES = Integer.getInteger("api.sse.queueFrames", 64);
+    private static final long WRITE_TIMEOUT_MS = Long.getLong("api.sse.writeTimeoutMs", 10000L);
+    // Writers only exist while a client has frames to write. A stalled write cannot be interrupted,
+    // so a dropped client's writer stays blocked until its connection dies; the cap bounds that
+    private static final int MAX_WRITERS = Integer.getInteger("api.sse.maxWriters", 64);
+    
+    private final ChangeFeed feed;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService pusher;
+    private final ThreadPoolExecutor writers;
+    
+    private static final class Client {
+        final HttpExchange exchange;
+        final OutputStream out;
+        final BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(QUEUE_FRAMES);
+        final AtomicBoolean draining = new AtomicBoolean();
+        final AtomicBoolean dropped = new AtomicBoolean();
+        long cursor; // push thread only
+        long lastQueuedAt = System.currentTimeMillis(); // push thread only
+        volatile long writeStartedAt; // 0 while not writing
+        
+        Client(HttpExchange exchange, long cursor) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+            this.cursor = cursor;
+        }
+    }
+    
+    ChangeStream(ChangeFeed feed) {
+        this.feed = feed;
+        this.pusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sse-push");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger writerNumber = new AtomicInteger();
+        this.writers = new ThreadPoolExecutor(0, MAX_WRITERS, 30L, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread t = new Thread(r, "sse-writer-" + writerNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pusher.scheduleWithFixedDelay(this::push, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Takes over an exchange for streaming. lastEventId is the SSE
+     * Last-Event-ID a reconnecting client sent, or -1 to start from now.
+     */
+    void open(HttpExchange exchange, long lastEventId) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        Client client = new Client(exchange, lastEventId >= 0 ? lastEventId + 1 : feed.currentCursor());
+        client.out.write("retry: 3000\n\n".getBytes(StandardCharsets.UTF_8));
+        client.out.flush();
+        clients.add(client);
+    }
+    
+    int getClientCount() {
+        return clients.size();
+    }
+    
+    void shutdown() {
+        pusher.shutdownNow();
+        writers.shutdownNow();
+        clients.forEach(client -> client.exchange.close());
+        clients.clear();
+    }
+    
+    // Push thread: queues new events for every client; never writes to a socket
+    private void push() {
+        long now = System.currentTimeMillis();
+        for (Client client : clients) {
+            long writeStartedAt = client.writeStartedAt;
+            if (writeStartedAt != 0 && now - writeStartedAt > WRITE_TIMEOUT_MS) {
+                drop(client); // not reading: its TCP window is full
+                continue;
+            }
+            ChangeFeed.Batch batch = feed.read(client.cursor, MAX_BATCH);
+            StringBuilder frame = new StringBuilder();
+            if (batch.isOverrun()) {
+                frame.append("event: resync\ndata: {}\n\n");
+            }
+            for (StockChange change : batch.getEvents()) {
+                appendEvent(frame, change);
+            }
+            if (frame.length() == 0 && now - client.lastQueuedAt >= HEARTBEAT_MS) {
+                frame.append(": keep-alive\n\n");
+            }
+            client.cursor = batch.getNextCursor();
+            if (frame.length() > 0) {
+                if (!client.frames.offer(frame.toString().getBytes(StandardCharsets.UTF_8))) {
+                    drop(client); // too far behind; it resumes from Last-Event-ID
+                    continue;
+                }
+                client.lastQueuedAt = now;
+                scheduleDrain(client);
+            }
+        }
+    }
+    
+    private void scheduleDrain(Client client) {
+        if (client.draining.compareAndSet(false, true)) {
+            try {
+                writers.execute(() -> drain(client));
+            } catch (RejectedExecutionException e) {
+                // Every writer is busy, most likely on stalled clients
+                client.draining.set(false);
+                drop(client);
+            }
+        }
+    }
+    
+    // Writer: sends a client's queued frames in order, then returns the thread to the pool
+    private void drain(Client client) {
+        try {
+            byte[] frame;
+            while (!client.dropped.get() && (frame = client.frames.poll()) != null) {
+                client.writeStartedAt = System.currentTimeMillis();
+                client.out.write(frame);
+                client.out.flush();
+                client.writeStartedAt = 0;
+            }
+        } catch (IOException e) {
+            // Client disconnected
+            client.writeStartedAt = 0;
+            drop(client);
+            return;
+        } finally {
+            client.draining.set(false);
+        }
+        // A frame queued after the last poll but before draining was cleared
+        if (!client.frames.isEmpty() && !client.dropped.get()) {
+            scheduleDrain(client);
+        }
+    }
+    
+    private void drop(Client client) {
+        if (!client.dropped.compareAndSet(false, true)) {
+            return;
+        }
+        clients.remove(client);
+        client.frames.clear();
+        // Closing flushes, which blocks on a stalled client, so never on the push thread
+        Thread closer = new Thread(client.exchange::close, "sse-close");
+        closer.setDaemon(true);
+        closer.start();
+    }
+    
+    private static void appendEvent(StringBuilder frame, StockChange change) {
+        frame.append("id: ").append(change.getSequence()).append('\n');
+        frame.append("event: stock\n");
+        frame.append("data: {\"medicineId\":\"").append(escape(change.getMedicineId()))
+             .append("\",\"kind\":\"").append(change.getKind().name()).append('"');
+        if (change.getDelta() != StockChange.UNKNOWN) {
+            frame.append(",\"delta\":").append(change.getDelta());
+        }
+        if (change.getStock() != StockChange.UNKNOWN) {
+            frame.append(",\"stock\":").append(change.getStock());
+        }
+        frame.append(",\"at\":").append(change.getTimestamp()).append("}\n\n");
+    }
+    
+    // Medicine ids are short codes; escape just enough to keep the JSON valid
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
@@ -0,0 +1,83 @@
+package api;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import models.DashboardStats;
+import models.Medicine;
+import models.Sale;
+import models.User;
+
+/**
+ * Streams models as JSON with Jackson's JsonGenerator, one field at a time,
+ * so large listings are never materialized as trees or strings.
+ * Field names follow the Next.js dashboard's TypeScript interfaces.
+ */
+final class JsonWriter {
+    private JsonWriter() {
+    }
+    
+    static void writeMedicine(JsonGenerator json, Medicine medicine) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", medicine.getId());
+        json.writeStringField("name", medicine.getName());
+        json.writeStringField("category", medicine.getCategory());
+        json.writeNumberField("stock", medicine.getStock());
+        json.writeNumberField("price", medicine.getPrice());
+        json.writeStringField("expiryDate", medicine.getExpiryDate() == null ? null : medicine.getExpiryDate().toString());
+        json.writeStringField("supplier", medicine.getSupplier());
+        json.writeNumberField("threshold", medicine.getThreshold());
+        json.writeStringField("description", medicine.getDescription());
+        json.writeEndObject();
+    }
+    
+    static void writeSale(JsonGenerator json, Sale sale) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", sale.getId());
+        json.writeStringField("date", sale.getSaleDate() == null ? null : sale.getSaleDate().toString());
+        json.writeStringField("customer", sale.getCustomerName());
+        json.writeStringField("cashierId", sale.getCashierId());
+        json.writeArrayFieldStart("items");
+        for (Sale.SaleItem item : sale.getItems()) {
+            json.writeStartObject();
+            json.writeStringField("id", item.getMedicineId());
+            json.writeStringField("name", item.getMedicineName());
+            json.writeNumberField("price", item.getPrice());
+            json.writeNumberField("quantity", item.getQuantity());
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeNumberField("total", sale.getFinalAmount());
+        json.writeNumberField("discount", sale.getDiscount());
+        json.writeStringField("status", sale.getStatus().name());
+        json.writeEndObject();
+    }
+    
+    // Never includes the password hash
+    static void writeUser(JsonGenerator json, User user) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", user.getId());
+        json.writeStringField("username", user.getUsername());
+        json.writeStringField("email", user.getEmail());
+        json.writeStringField("role", user.getRole().name());
+        json.writeBooleanField("active", user.isActive());
+        json.writeStringField("lastLogin", user.getLastLogin() == null ? null : user.getLastLogin().toString());
+        json.writeEndObject();
+    }
+    
+    static void writeDashboardStats(JsonGenerator json, DashboardStats stats) throws IOException {
+        json.writeStartObject();
+        json.writeNumberField("totalMedicines", stats.getTotalMedicines());
+        json.writeNumberField("lowStockCount", stats.getLowStockCount());
+        json.writeNumberField("outOfStockCount", stats.getOutOfStockCount());
+        json.writeNumberField("expiredCount", stats.getExpiredCount());
+        json.writeNumberField("expiringSoonCount", stats.getExpiringSoonCount());
+        json.writeNumberField("totalInventoryValue", stats.getTotalInventoryValue());
+        json.writeNumberField("todaysSalesAmount", stats.getTodaysSalesAmount());
+        json.writeNumberField("todaysSalesCount", stats.getTodaysSalesCount());
+        json.writeNumberField("activeSuppliers", stats.getActiveSuppliers());
+        json.writeStringField("loadedAt", stats.getLoadedAt() == null ? null : stats.getLoadedAt().toString());
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,50 @@
+package api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-client limit on login attempts: a client address gets MAX_ATTEMPTS
+ * tries per WINDOW_MS, and a successful login clears its count. Attempts are
+ * counted before the password is checked, so concurrent guesses cannot slip
+ * past the limit.
+ */
+class LoginThrottle {
+    private static final int MAX_ATTEMPTS = Integer.getInteger("api.login.maxAttempts", 5);
+    private static final long WINDOW_MS = Long.getLong("api.login.windowMs", 300_000L);
+    private static final int MAX_CLIENTS = 10_000;
+    
+    private static final class Window {
+        final long startedAt;
+        final int attempts;
+        
+        Window(long startedAt, int attempts) {
+            this.startedAt = startedAt;
+            this.attempts = attempts;
+        }
+    }
+    
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    
+    /**
+     * Counts an attempt from client. Returns 0 if it may go ahead, otherwise
+     * the milliseconds until the client's window ends.
+     */
+    long tryAcquire(String client) {
+        long now = System.currentTimeMillis();
+        if (windows.size() >= MAX_CLIENTS) {
+            windows.values().removeIf(window -> now - window.startedAt >= WINDOW_MS);
+        }
+        Window window = windows.compute(client, (key, current) -> {
+            if (current == null || now - current.startedAt >= WINDOW_MS) {
+                return new Window(now, 1);
+            }
+            return current.attempts > MAX_ATTEMPTS ? current : new Window(current.startedAt, current.attempts + 1);
+        });
+        return window.attempts > MAX_ATTEMPTS ? window.startedAt + WINDOW_MS - now : 0;
+    }
+    
+    void succeeded(String client) {
+        windows.remove(client);
+    }
+}
@@ -0,0 +1,91 @@
+package api;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bearer tokens for the API's write endpoints. POST /api/users/login issues
+ * a random token tied to the user; it expires after TTL_MS. A fixed token
+ * for service clients can be configured with -Dapi.token; it acts for no
+ * particular user. Tokens live in memory only, so a restart logs everyone out.
+ */
+class Sessions {
+    private static final long TTL_MS = Long.getLong("api.sessionTtlMs", 8 * 3_600_000L);
+    private static final int MAX_SESSIONS = Integer.getInteger("api.maxSessions", 10_000);
+    private static final String API_TOKEN = System.getProperty("api.token");
+    
+    // Who a request is authenticated as; userId is null for the configured API token
+    static final class Principal {
+        final String userId;
+        
+        Principal(String userId) {
+            this.userId = userId;
+        }
+    }
+    
+    private static final class Session {
+        final String userId;
+        final long expiresAt;
+        
+        Session(String userId, long expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    
+    String create(String userId) {
+        long now = System.currentTimeMillis();
+        if (sessions.size() >= MAX_SESSIONS) {
+            sessions.values().removeIf(session -> session.expiresAt <= now);
+            while (sessions.size() >= MAX_SESSIONS) {
+                sessions.entrySet().stream()
+                    .min(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+                    .ifPresent(oldest -> sessions.remove(oldest.getKey()));
+            }
+        }
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(userId, now + TTL_MS));
+        return token;
+    }
+    
+    // Resolves an Authorization header value; null if it carries no valid token
+    Principal authenticate(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        String token = authorization.substring(7).trim();
+        if (API_TOKEN != null && !API_TOKEN.isEmpty() &&
+            MessageDigest.isEqual(API_TOKEN.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            return new Principal(null);
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        if (session.expiresAt <= System.currentTimeMillis()) {
+            sessions.remove(token);
+            return null;
+        }
+        return new Principal(session.userId);
+    }
+    
+    void revoke(String authorization) {
+        if (authorization != null && authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            sessions.remove(authorization.substring(7).trim());
+        }
+    }
+    
+    long getTtlMillis() {
+        return TTL_MS;
+    }
+}
@@ -1,14 +1,25 @@
 package controllers;
 
+import models.InventoryReport;
+import models.InventorySnapshot;
 import models.Medicine;
+import utils.ChangeFeed;
 import utils.DatabaseManager;
+import utils.MedicineBitmapIndex.ExpiryWindow;
+import utils.MedicineBitmapIndex.StockLevel;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class MedicineController {
     private DatabaseManager dbManager;
     
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int FUZZY_MAX_DISTANCE = 2;
+    
     public MedicineController() {
         this.dbManager = DatabaseManager.getInstance();
     }
@@ -18,6 +29,24 @@ public class MedicineController {
         return dbManager.getAllMedicines();
     }
     
+    // Paged / streamed listing for large catalogs
+    public List<Medicine> getMedicinesPage(String afterName, String afterId, int limit) {
+        return dbManager.getMedicinesPage(afterName, afterId, limit);
+    }
+    
+    public List<Medicine> findMedicinesPage(String searchTerm, String category,
+                                            String afterName, String afterId, int offset, int limit) {
+        return dbManager.findMedicinesPage(searchTerm, category, afterName, afterId, offset, limit);
+    }
+    
+    public int countMedicines(String searchTerm, String category) {
+        return dbManager.countMedicines(searchTerm, category);
+    }
+    
+    public boolean forEachMedicine(Consumer<Medicine> consumer) {
+        return dbManager.forEachMedicine(STREAM_FETCH_SIZE, consumer);
+    }
+    
     public Medicine getMedicineById(String id) {
         return dbManager.getMedicineById(id);
     }
@@ -37,41 +66,61 @@ public class MedicineController {
         return dbManager.deleteMedicine(id);
     }
     
-    // Search and Filter Operations
+    // Search and Filter Operations (filtered in SQL, never via getAllMedicines())
     public List<Medicine> searchMedicines(String searchTerm) {
-        return getAllMedicines().stream()
-                               .filter(med -> med.getName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                            med.getId().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                                            med.getCategory().toLowerCase().contains(searchTerm.toLowerCase()))
-                               .collect(Collectors.toList());
+        return dbManager.searchMedicines(searchTerm);
+    }
+    
+    // At most limit results, best matches first (0 = no limit)
+    public List<Medicine> searchMedicines(String searchTerm, int limit) {
+        return dbManager.searchMedicines(searchTerm, limit);
+    }
+    
+    // Tolerates misspellings ("ibuprophen", "amoxicilin"); short terms allow only one edit
+    public List<Medicine> fuzzySearchMedicines(String searchTerm) {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        int maxDistance = searchTerm.trim().length() <= 4 ? 1 : FUZZY_MAX_DISTANCE;
+        return dbManager.fuzzySearchMedicines(searchTerm, maxDistance);
+    }
+    
+    // Exact substring matches first; fuzzy matches only when there are none
+    public List<Medicine> searchMedicinesTolerant(String searchTerm) {
+        List<Medicine> matches = searchMedicines(searchTerm);
+        return matches.isEmpty() ? fuzzySearchMedicines(searchTerm) : matches;
     }
     
     public List<Medicine> getMedicinesByCategory(String category) {
         return dbManager.getMedicinesByCategory(category);
     }
     
+    /**
+     * Combined category / stock level / expiry window filter; each argument may
+     * be null for "any". E.g. low or out-of-stock Antibiotics expiring soon:
+     * filterMedicines(Collections.singleton("Antibiotics"),
+     *     EnumSet.of(OUT_OF_STOCK, LOW_STOCK), EnumSet.of(EXPIRING_SOON))
+     */
+    public List<Medicine> filterMedicines(Collection<String> categories,
+                                          Collection<StockLevel> stockLevels,
+                                          Collection<ExpiryWindow> expiryWindows) {
+        return dbManager.filterMedicines(categories, stockLevels, expiryWindows);
+    }
+    
     public List<Medicine> getLowStockMedicines() {
-        return getAllMedicines().stream()
-                               .filter(Medicine::isLowStock)
-                               .collect(Collectors.toList());
+        return dbManager.getLowStockMedicines();
     }
     
     public List<Medicine> getOutOfStockMedicines() {
-        return getAllMedicines().stream()
-                               .filter(Medicine::isOutOfStock)
-                               .collect(Collectors.toList());
+        return dbManager.getOutOfStockMedicines();
     }
     
     public List<Medicine> getExpiredMedicines() {
-        return getAllMedicines().stream()
-                               .filter(Medicine::isExpired)
-                               .collect(Collectors.toList());
+        return dbManager.getExpiredMedicines();
     }
     
     public List<Medicine> getExpiringSoonMedicines(int days) {
-        return getAllMedicines().stream()
-                               .filter(med -> med.isExpiringSoon(days))
-                               .collect(Collectors.toList());
+        return dbManager.getExpiringSoonMedicines(days);
     }
     
     // Stock Management
@@ -84,22 +133,22 @@ public class MedicineController {
         return false;
     }
     
+    // Applied as a delta in SQL, so it never overwrites a concurrent sale
     public boolean addStock(String medicineId, int quantity) {
-        Medicine medicine = getMedicineById(medicineId);
-        if (medicine != null) {
-            medicine.addStock(quantity);
-            return updateMedicine(medicine);
-        }
-        return false;
+        return dbManager.updateMedicineStock(medicineId, quantity, "ADD");
     }
     
+    // Conditional decrement in SQL; fails without writing if stock is insufficient
     public boolean reduceStock(String medicineId, int quantity) {
-        Medicine medicine = getMedicineById(medicineId);
-        if (medicine != null && medicine.getStock() >= quantity) {
-            medicine.reduceStock(quantity);
-            return updateMedicine(medicine);
+        if (quantity <= 0) {
+            return false;
         }
-        return false;
+        return dbManager.reduceMedicineStock(Collections.singletonMap(medicineId, quantity));
+    }
+    
+    // Decrement several medicines in one transaction; any short line rolls back all of them
+    public boolean reduceStock(Map<String, Integer> quantitiesById) {
+        return dbManager.reduceMedicineStock(quantitiesById);
     }
     
     // Business Logic
@@ -109,33 +158,39 @@ public class MedicineController {
     }
     
     public List<String> getCategories() {
-        return getAllMedicines().stream()
-                               .map(Medicine::getCategory)
-                               .distinct()
-                               .sorted()
-                               .collect(Collectors.toList());
+        return dbManager.getMedicineCategories();
     }
     
     public List<String> getSuppliers() {
-        return getAllMedicines().stream()
-                               .map(Medicine::getSupplier)
-                               .distinct()
-                               .sorted()
-                               .collect(Collectors.toList());
+        return dbManager.getMedicineSuppliers();
     }
     
     // Statistics
     public int getTotalMedicineCount() {
-        return getAllMedicines().size();
+        return dbManager.getTotalMedicines();
     }
     
     public int getLowStockCount() {
-        return getLowStockMedicines().size();
+        return dbManager.getLowStockCount();
     }
     
     public double getTotalInventoryValue() {
-        return getAllMedicines().stream()
-                               .mapToDouble(med -> med.getPrice() * med.getStock())
-                               .sum();
+        return dbManager.getTotalInventoryValue();
+    }
+    
+    // Whole catalog in columnar form for reports; null if it cannot be read
+    public InventorySnapshot getInventorySnapshot() {
+        return dbManager.getInventorySnapshot();
+    }
+    
+    // All report aggregates for the current catalog; null if it cannot be read
+    public InventoryReport getInventoryReport() {
+        InventorySnapshot snapshot = getInventorySnapshot();
+        return snapshot == null ? null : dbManager.getInventoryReport(snapshot);
+    }
+    
+    // In-process feed of stock changes, for views that refresh on change
+    public ChangeFeed getChangeFeed() {
+        return dbManager.getChangeFeed();
     }
 }
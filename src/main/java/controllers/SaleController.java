@@ -5,6 +5,7 @@ import models.Medicine;
 import utils.DatabaseManager;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class SaleController {
@@ -67,20 +68,39 @@ public class SaleController {
     public boolean completeSale(String saleId) {
         Sale sale = getSaleById(saleId);
         if (sale != null && sale.getStatus() == Sale.SaleStatus.PENDING && !sale.getItems().isEmpty()) {
-            
-            // Update medicine stock for each item
-            for (Sale.SaleItem item : sale.getItems()) {
-                if (!medicineController.reduceStock(item.getMedicineId(), item.getQuantity())) {
-                    return false; // Stock update failed
-                }
-            }
-            
-            sale.completeSale();
-            return updateSale(sale);
+            return commitSale(sale, false);
         }
         return false;
     }
     
+    /**
+     * Builds a sale in memory and commits it in one transaction: stock for all
+     * items is decremented in one batch and the sale and its items are written
+     * together. Returns the completed sale, or null if nothing was recorded.
+     */
+    public Sale processSale(String customerName, String cashierId, Map<Medicine, Integer> items) {
+        if (items.isEmpty()) {
+            return null;
+        }
+        Sale sale = new Sale(customerName, cashierId);
+        for (Map.Entry<Medicine, Integer> entry : items.entrySet()) {
+            if (entry.getValue() <= 0) {
+                return null;
+            }
+            sale.addItem(entry.getKey(), entry.getValue());
+        }
+        return commitSale(sale, true) ? sale : null;
+    }
+    
+    private boolean commitSale(Sale sale, boolean newSale) {
+        sale.completeSale();
+        if (!dbManager.commitSale(sale, newSale)) {
+            sale.setStatus(Sale.SaleStatus.PENDING);
+            return false;
+        }
+        return true;
+    }
+    
     public boolean cancelSale(String saleId) {
         Sale sale = getSaleById(saleId);
         if (sale != null && sale.getStatus() == Sale.SaleStatus.PENDING) {
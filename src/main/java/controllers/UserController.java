@@ -2,13 +2,31 @@ package controllers;
 
 import models.User;
 import utils.DatabaseManager;
+import utils.InputValidator;
 import utils.PasswordHasher;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class UserController {
     private DatabaseManager dbManager;
     
+    // Password hashing is deliberately slow; verify off the EDT on a small bounded pool
+    private static final int AUTH_THREADS = Integer.getInteger("auth.threads", 2);
+    private static final int AUTH_QUEUE = Integer.getInteger("auth.queueSize", 16);
+    private static final ExecutorService authExecutor = new ThreadPoolExecutor(
+        AUTH_THREADS, AUTH_THREADS, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(AUTH_QUEUE),
+        r -> {
+            Thread t = new Thread(r, "auth-verify");
+            t.setDaemon(true);
+            return t;
+        });
+    
     public UserController() {
         this.dbManager = DatabaseManager.getInstance();
     }
@@ -18,13 +36,35 @@ public class UserController {
         User user = dbManager.getUserByUsername(username);
         if (user != null && user.isActive() && 
             PasswordHasher.verifyPassword(password, user.getPasswordHash())) {
+            // Legacy or under-cost hash: re-hash now that we have the plain password
+            if (PasswordHasher.needsRehash(user.getPasswordHash())) {
+                String upgraded = PasswordHasher.hashPassword(password);
+                if (dbManager.updatePasswordHash(user.getId(), upgraded)) {
+                    user.setPasswordHash(upgraded);
+                }
+            }
             user.setLastLogin(java.time.LocalDateTime.now());
-            dbManager.saveUser(user);
+            dbManager.recordLogin(user);
             return user;
         }
         return null;
     }
     
+    /**
+     * Runs authenticateUser on the auth executor. The future completes with the
+     * user, or null for bad credentials; it fails with RejectedExecutionException
+     * when too many logins are already queued.
+     */
+    public CompletableFuture<User> authenticateUserAsync(String username, String password) {
+        try {
+            return CompletableFuture.supplyAsync(() -> authenticateUser(username, password), authExecutor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<User> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+    
     // CRUD Operations
     public List<User> getAllUsers() {
         return dbManager.getAllUsers();
@@ -40,13 +80,8 @@ public class UserController {
             return false;
         }
         
-        // Check if username already exists
-        if (dbManager.getUserByUsername(username) != null) {
-            return false;
-        }
-        
-        // Check if email already exists
-        if (isEmailAlreadyExists(email)) {
+        // Check if username or email already exists (in memory; the UNIQUE keys have the final say on insert)
+        if (!isUsernameAvailable(username) || isEmailAlreadyExists(email)) {
             return false;
         }
         
@@ -98,57 +133,26 @@ public class UserController {
         if (username == null || username.trim().isEmpty()) {
             return false;
         }
-        return dbManager.getUserByUsername(username.trim()) == null;
+        return dbManager.isUsernameAvailable(username.trim());
     }
     
     public boolean isEmailAlreadyExists(String email) {
         if (email == null || email.trim().isEmpty()) {
             return false;
         }
-        return getAllUsers().stream()
-                           .anyMatch(user -> user.getEmail().equalsIgnoreCase(email.trim()));
+        return !dbManager.isEmailAvailable(email.trim());
     }
     
     public boolean isValidUsername(String username) {
-        if (username == null || username.trim().isEmpty()) {
-            return false;
-        }
-        
-        String trimmedUsername = username.trim();
-        
-        // Check length
-        if (trimmedUsername.length() < 3 || trimmedUsername.length() > 20) {
-            return false;
-        }
-        
-        // Check format (alphanumeric and underscore only)
-        return trimmedUsername.matches("^[a-zA-Z0-9_]+$");
+        return InputValidator.isValidUsername(username);
     }
     
     public boolean isValidEmail(String email) {
-        if (email == null || email.trim().isEmpty()) {
-            return false;
-        }
-        
-        String emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        return Pattern.matches(emailRegex, email.trim());
+        return InputValidator.isValidEmail(email);
     }
     
     public boolean isValidPassword(String password) {
-        if (password == null || password.isEmpty()) {
-            return false;
-        }
-        
-        // Check length
-        if (password.length() < 6 || password.length() > 50) {
-            return false;
-        }
-        
-        // Check for at least one letter and one number
-        boolean hasLetter = password.matches(".*[a-zA-Z].*");
-        boolean hasNumber = password.matches(".*[0-9].*");
-        
-        return hasLetter && hasNumber;
+        return InputValidator.isValidPassword(password);
     }
     
     private boolean isValidUserInput(String username, String email, String password) {
@@ -176,19 +180,8 @@ public class UserController {
             return PasswordStrength.VERY_WEAK;
         }
         
-        int score = 0;
-        
-        // Length check
-        if (password.length() >= 8) score++;
-        if (password.length() >= 12) score++;
-        
-        // Character variety checks
-        if (password.matches(".*[a-z].*")) score++; // lowercase
-        if (password.matches(".*[A-Z].*")) score++; // uppercase
-        if (password.matches(".*[0-9].*")) score++; // numbers
-        if (password.matches(".*[!@#$%^&*()_+\\-=\\[\\]{};':\"\\\\|,.<>\\/?].*")) score++; // special chars
-        
         // Return strength based on score
+        int score = InputValidator.passwordScore(password);
         if (score <= 2) return PasswordStrength.WEAK;
         if (score <= 4) return PasswordStrength.MEDIUM;
         if (score <= 5) return PasswordStrength.STRONG;
@@ -0,0 +1,62 @@
+package dao;
+
+import models.DashboardStats;
+import utils.DatabaseConnection;
+import java.sql.*;
+import java.time.LocalDateTime;
+
+/**
+ * Data Access Object for dashboard statistics
+ */
+public class DashboardDAO {
+    private DatabaseConnection dbConnection;
+    
+    public DashboardDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+    
+    // All headline counters in one round trip: one aggregate per table
+    public DashboardStats getDashboardStats(int expiringSoonDays) {
+        String sql = "SELECT med.total_medicines, med.low_stock, med.out_of_stock, med.expired, med.expiring_soon, med.inventory_value, " +
+                     "sal.todays_amount, sal.todays_count, sup.active_suppliers FROM " +
+                     "(SELECT COUNT(*) AS total_medicines, " +
+                     "COALESCE(SUM(stock <= threshold), 0) AS low_stock, " +
+                     "COALESCE(SUM(stock = 0), 0) AS out_of_stock, " +
+                     "COALESCE(SUM(expiry_date < CURDATE()), 0) AS expired, " +
+                     "COALESCE(SUM(expiry_date >= CURDATE() AND expiry_date <= DATE_ADD(CURDATE(), INTERVAL ? DAY)), 0) AS expiring_soon, " +
+                     "COALESCE(SUM(stock * price), 0) AS inventory_value FROM medicines) med, " +
+                     "(SELECT COALESCE(SUM(final_amount), 0) AS todays_amount, COUNT(*) AS todays_count FROM sales " +
+                     "WHERE status = 'COMPLETED' AND sale_date >= CURDATE() AND sale_date < DATE_ADD(CURDATE(), INTERVAL 1 DAY)) sal, " +
+                     "(SELECT COUNT(*) AS active_suppliers FROM suppliers WHERE is_active = TRUE) sup";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            pstmt.setInt(1, expiringSoonDays);
+            rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return new DashboardStats(
+                    rs.getInt("total_medicines"),
+                    rs.getInt("low_stock"),
+                    rs.getInt("out_of_stock"),
+                    rs.getInt("expired"),
+                    rs.getInt("expiring_soon"),
+                    rs.getDouble("inventory_value"),
+                    rs.getDouble("todays_amount"),
+                    rs.getInt("todays_count"),
+                    rs.getInt("active_suppliers"),
+                    LocalDateTime.now()
+                );
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting dashboard statistics: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        return null;
+    }
+}
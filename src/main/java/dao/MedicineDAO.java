@@ -2,16 +2,31 @@ package dao;
 
 import models.Medicine;
 import utils.DatabaseConnection;
+import utils.IdAllocator;
+import utils.OptimisticLockStats;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Medicine operations
  */
 public class MedicineDAO {
+    // Attempts for a version-checked update that keeps losing to concurrent stock writes
+    private static final int MAX_UPDATE_ATTEMPTS = Integer.getInteger("medicine.update.maxAttempts", 3);
+    // Placeholders per IN (...) lookup; well under MySQL's 65535 per statement
+    private static final int IDS_PER_QUERY = 1000;
+    
     private DatabaseConnection dbConnection;
+    private final OptimisticLockStats lockStats = new OptimisticLockStats();
     
     public MedicineDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
@@ -19,10 +34,14 @@ public class MedicineDAO {
     
     // Create a new medicine
     public boolean createMedicine(Medicine medicine) {
-        String sql = "INSERT INTO medicines (name, category, stock, price, expiry_date, supplier_id, threshold, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO medicines (id, name, category, stock, price, expiry_date, supplier_id, threshold, description) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
         try {
+            if (medicine.getId() == null || medicine.getId().isEmpty()) {
+                medicine.setId(IdAllocator.getInstance().nextId(IdAllocator.MEDICINE));
+            }
             int result = dbConnection.executeUpdate(sql,
+                medicine.getId(),
                 medicine.getName(),
                 medicine.getCategory(),
                 medicine.getStock(),
@@ -32,6 +51,8 @@ public class MedicineDAO {
                 medicine.getThreshold(),
                 medicine.getDescription()
             );
+            medicine.setVersion(0);
+            medicine.setLoaded(medicine);
             return result > 0;
         } catch (SQLException e) {
             System.err.println("Error creating medicine: " + e.getMessage());
@@ -42,11 +63,13 @@ public class MedicineDAO {
     // Get medicine by ID
     public Medicine getMedicineById(String id) {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.id = ?";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, id);
             rs = pstmt.executeQuery();
             
@@ -56,20 +79,70 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting medicine by ID: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return null;
     }
     
+    // Get several medicines by id, returned in the order the ids were given
+    public List<Medicine> getMedicinesByIds(List<String> ids) {
+        List<Medicine> medicines = new ArrayList<>(ids.size());
+        if (ids.isEmpty()) {
+            return medicines;
+        }
+        Map<String, Medicine> byId = new HashMap<>();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            // Chunked, since an unlimited search can return the whole catalog
+            for (int from = 0; from < ids.size(); from += IDS_PER_QUERY) {
+                List<String> chunk = ids.subList(from, Math.min(from + IDS_PER_QUERY, ids.size()));
+                StringBuilder sql = new StringBuilder("SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.id IN (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+                pstmt = dbConnection.prepareStatement(conn, sql.toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    pstmt.setString(i + 1, chunk.get(i));
+                }
+                rs = pstmt.executeQuery();
+                
+                while (rs.next()) {
+                    Medicine medicine = mapResultSetToMedicine(rs);
+                    byId.put(medicine.getId(), medicine);
+                }
+                rs.close();
+                pstmt.close();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting medicines by ID: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        for (String id : ids) {
+            Medicine medicine = byId.get(id);
+            if (medicine != null) {
+                medicines.add(medicine);
+            }
+        }
+        return medicines;
+    }
+    
     // Get all medicines
     public List<Medicine> getAllMedicines() {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id ORDER BY m.name";
         List<Medicine> medicines = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -78,32 +151,255 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting all medicines: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return medicines;
     }
     
-    // Update medicine
+    /**
+     * Keyset-paginated listing ordered by (name, id). Pass the name and id of the
+     * last row of the previous page, or nulls for the first page. Each page is an
+     * index range read on idx_name, however deep into the catalog it is.
+     */
+    public List<Medicine> getMedicinesPage(String afterName, String afterId, int limit) {
+        return findMedicinesPage(null, null, afterName, afterId, 0, limit);
+    }
+    
+    /**
+     * Filtered page in (name, id) order. searchTerm matches name or id, category
+     * must match exactly; either may be null. When the previous page's last key is
+     * known the page is read by keyset, otherwise by offset (used for jumps).
+     */
+    public List<Medicine> findMedicinesPage(String searchTerm, String category,
+                                            String afterName, String afterId, int offset, int limit) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendFilter(sql, params, searchTerm, category);
+        if (afterName != null) {
+            sql.append(" AND m.name >= ? AND (m.name > ? OR m.id > ?)");
+            params.add(afterName);
+            params.add(afterName);
+            params.add(afterId);
+        }
+        sql.append(" ORDER BY m.name, m.id LIMIT ?");
+        params.add(limit);
+        if (afterName == null && offset > 0) {
+            sql.append(" OFFSET ?");
+            params.add(offset);
+        }
+        
+        List<Medicine> medicines = new ArrayList<>(limit);
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                medicines.add(mapResultSetToMedicine(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting medicines page: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        return medicines;
+    }
+    
+    // Count medicines matching the same filter as findMedicinesPage
+    public int countMedicines(String searchTerm, String category) {
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM medicines m WHERE 1 = 1");
+        List<Object> params = new ArrayList<>();
+        appendFilter(sql, params, searchTerm, category);
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting medicines: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        return 0;
+    }
+    
+    private void appendFilter(StringBuilder sql, List<Object> params, String searchTerm, String category) {
+        if (searchTerm != null && !searchTerm.isEmpty()) {
+            String searchPattern = "%" + searchTerm + "%";
+            sql.append(" AND (m.name LIKE ? OR m.id LIKE ?)");
+            params.add(searchPattern);
+            params.add(searchPattern);
+        }
+        if (category != null) {
+            sql.append(" AND m.category = ?");
+            params.add(category);
+        }
+    }
+    
+    /**
+     * Streams every medicine ordered by name through a server-side cursor,
+     * fetching fetchSize rows at a time and mapping each row only as it is
+     * handed to the consumer. Memory stays constant regardless of catalog size.
+     */
+    public boolean forEachMedicine(int fetchSize, Consumer<Medicine> consumer) {
+        String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id ORDER BY m.name, m.id";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            pstmt.setFetchSize(fetchSize);
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                consumer.accept(mapResultSetToMedicine(rs));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error streaming medicines: " + e.getMessage());
+            return false;
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+    }
+    
+    /**
+     * Streams medicines whose row, or whose supplier's row, was updated at or
+     * after since, each with the later of the two updated_date values.
+     */
+    public boolean forEachMedicineChangedSince(Timestamp since, BiConsumer<Medicine, Timestamp> consumer) {
+        String select = "SELECT m.*, s.name as supplier_name, " +
+                        "GREATEST(m.updated_date, COALESCE(s.updated_date, m.updated_date)) AS changed_at " +
+                        "FROM medicines m ";
+        String sql = select + "LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.updated_date >= ? " +
+                     "UNION " + select + "JOIN suppliers s ON m.supplier_id = s.id WHERE s.updated_date >= ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            pstmt.setTimestamp(1, since);
+            pstmt.setTimestamp(2, since);
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                consumer.accept(mapResultSetToMedicine(rs), rs.getTimestamp("changed_at"));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error reading changed medicines: " + e.getMessage());
+            return false;
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+    }
+    
+    /**
+     * Updates a medicine only if its row still has the version it was read at.
+     * If another write got there first and changed nothing but stock (the
+     * newer row matches the values the edit was loaded from), the edit is
+     * applied on top of it: its other fields as edited, its stock delta
+     * (stock - loaded stock) replayed on the newer stock, retried up to
+     * MAX_UPDATE_ATTEMPTS. Any other concurrent change rejects the update.
+     * On success the medicine carries the new version and stock.
+     */
     public boolean updateMedicine(Medicine medicine) {
-        String sql = "UPDATE medicines SET name = ?, category = ?, stock = ?, price = ?, expiry_date = ?, supplier_id = ?, threshold = ?, description = ? WHERE id = ?";
+        String sql = "UPDATE medicines SET name = ?, category = ?, stock = ?, price = ?, expiry_date = ?, supplier_id = ?, threshold = ?, description = ?, version = version + 1 WHERE id = ? AND version = ?";
         
         try {
-            int result = dbConnection.executeUpdate(sql,
-                medicine.getName(),
-                medicine.getCategory(),
-                medicine.getStock(),
-                medicine.getPrice(),
-                medicine.getExpiryDate(),
-                medicine.getSupplier(), // This should be supplier_id
-                medicine.getThreshold(),
-                medicine.getDescription(),
-                medicine.getId()
-            );
-            return result > 0;
+            for (int attempt = 1; attempt <= MAX_UPDATE_ATTEMPTS; attempt++) {
+                int result = dbConnection.executeUpdate(sql,
+                    medicine.getName(),
+                    medicine.getCategory(),
+                    medicine.getStock(),
+                    medicine.getPrice(),
+                    medicine.getExpiryDate(),
+                    medicine.getSupplier(), // This should be supplier_id
+                    medicine.getThreshold(),
+                    medicine.getDescription(),
+                    medicine.getId(),
+                    medicine.getVersion()
+                );
+                if (result > 0) {
+                    medicine.setVersion(medicine.getVersion() + 1);
+                    medicine.setLoaded(medicine);
+                    lockStats.recordUpdate();
+                    return true;
+                }
+                
+                lockStats.recordConflict();
+                if (attempt == MAX_UPDATE_ATTEMPTS) {
+                    break;
+                }
+                Medicine current = getMedicineById(medicine.getId());
+                // Without the loaded values, only an edit that changed nothing but stock can be merged
+                Medicine loaded = medicine.getLoaded() != null ? medicine.getLoaded() : medicine;
+                if (current == null || !sameExceptStock(loaded, current)) {
+                    break; // deleted, or a concurrent edit we cannot merge
+                }
+                int mergedStock = current.getStock() + (medicine.getStock() - medicine.getLoadedStock());
+                if (mergedStock < 0) {
+                    break;
+                }
+                medicine.setStock(mergedStock);
+                medicine.setLoaded(current);
+                medicine.setVersion(current.getVersion());
+                lockStats.recordMerge();
+                lockStats.recordRetry();
+                backOff(attempt);
+            }
         } catch (SQLException e) {
             System.err.println("Error updating medicine: " + e.getMessage());
             return false;
         }
+        lockStats.recordRejected();
+        return false;
+    }
+    
+    // Every column an edit can change, apart from stock
+    private static boolean sameExceptStock(Medicine a, Medicine b) {
+        return Objects.equals(a.getName(), b.getName())
+            && Objects.equals(a.getCategory(), b.getCategory())
+            && Double.compare(a.getPrice(), b.getPrice()) == 0
+            && Objects.equals(a.getExpiryDate(), b.getExpiryDate())
+            && Objects.equals(a.getSupplier(), b.getSupplier())
+            && a.getThreshold() == b.getThreshold()
+            && Objects.equals(a.getDescription(), b.getDescription());
+    }
+    
+    // A few randomized milliseconds, so two terminals retrying the same row do not collide again
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1, 1 + 5 * attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    public OptimisticLockStats getLockStats() {
+        return lockStats;
     }
     
     // Delete medicine
@@ -123,12 +419,14 @@ public class MedicineDAO {
     public List<Medicine> searchMedicines(String searchTerm) {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.name LIKE ? OR m.id LIKE ? OR m.category LIKE ? ORDER BY m.name";
         List<Medicine> medicines = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
             String searchPattern = "%" + searchTerm + "%";
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, searchPattern);
             pstmt.setString(2, searchPattern);
             pstmt.setString(3, searchPattern);
@@ -140,7 +438,7 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error searching medicines: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return medicines;
     }
@@ -149,11 +447,13 @@ public class MedicineDAO {
     public List<Medicine> getMedicinesByCategory(String category) {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.category = ? ORDER BY m.name";
         List<Medicine> medicines = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, category);
             rs = pstmt.executeQuery();
             
@@ -163,7 +463,7 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting medicines by category: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return medicines;
     }
@@ -172,11 +472,13 @@ public class MedicineDAO {
     public List<Medicine> getLowStockMedicines() {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.stock <= m.threshold ORDER BY m.stock ASC";
         List<Medicine> medicines = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -185,7 +487,7 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting low stock medicines: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return medicines;
     }
@@ -194,11 +496,13 @@ public class MedicineDAO {
     public List<Medicine> getOutOfStockMedicines() {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.stock = 0 ORDER BY m.name";
         List<Medicine> medicines = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -207,7 +511,7 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting out of stock medicines: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return medicines;
     }
@@ -216,11 +520,13 @@ public class MedicineDAO {
     public List<Medicine> getExpiredMedicines() {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.expiry_date < CURDATE() ORDER BY m.expiry_date";
         List<Medicine> medicines = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -229,7 +535,7 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting expired medicines: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return medicines;
     }
@@ -238,11 +544,13 @@ public class MedicineDAO {
     public List<Medicine> getExpiringSoonMedicines(int days) {
         String sql = "SELECT m.*, s.name as supplier_name FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.expiry_date <= DATE_ADD(CURDATE(), INTERVAL ? DAY) AND m.expiry_date >= CURDATE() ORDER BY m.expiry_date";
         List<Medicine> medicines = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setInt(1, days);
             rs = pstmt.executeQuery();
             
@@ -252,7 +560,7 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting expiring soon medicines: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return medicines;
     }
@@ -260,10 +568,12 @@ public class MedicineDAO {
     // Update stock using stored procedure
     public boolean updateStock(String medicineId, int quantity, String operation) {
         String sql = "CALL UpdateMedicineStock(?, ?, ?)";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, medicineId);
             pstmt.setInt(2, quantity);
             pstmt.setString(3, operation);
@@ -273,13 +583,70 @@ public class MedicineDAO {
             System.err.println("Error updating stock: " + e.getMessage());
             return false;
         } finally {
-            if (pstmt != null) {
+            DatabaseConnection.closeResources(pstmt, conn);
+        }
+    }
+    
+    /**
+     * Decrements stock for several medicines atomically. Each line is a conditional
+     * UPDATE sent in one JDBC batch; if any medicine lacks stock the whole batch is
+     * rolled back. Joins the caller's transaction when one is open. Returns false
+     * if the decrement is refused; a lost connection is thrown so the caller can tell.
+     */
+    public boolean reduceStock(Map<String, Integer> quantitiesById) throws SQLException {
+        if (quantitiesById.isEmpty()) {
+            return true;
+        }
+        String sql = "UPDATE medicines SET stock = stock - ?, version = version + 1 WHERE id = ? AND stock >= ?";
+        
+        // Sorted by id so concurrent checkouts lock rows in the same order
+        Map<String, Integer> lines = new TreeMap<>(quantitiesById);
+        boolean ownTransaction = !dbConnection.isInTransaction();
+        
+        try {
+            if (ownTransaction) {
+                dbConnection.beginTransaction();
+            }
+            
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            try {
+                conn = dbConnection.getConnection();
+                pstmt = dbConnection.prepareStatement(conn, sql);
+                for (Map.Entry<String, Integer> line : lines.entrySet()) {
+                    pstmt.setInt(1, line.getValue());
+                    pstmt.setString(2, line.getKey());
+                    pstmt.setInt(3, line.getValue());
+                    pstmt.addBatch();
+                }
+                
+                int[] results = pstmt.executeBatch();
+                for (int result : results) {
+                    if (result != 1) {
+                        throw new SQLException("Insufficient stock or unknown medicine in batch");
+                    }
+                }
+            } finally {
+                DatabaseConnection.closeResources(pstmt, conn);
+            }
+            
+            if (ownTransaction) {
+                dbConnection.commitTransaction();
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error reducing stock: " + e.getMessage());
+            if (ownTransaction) {
                 try {
-                    pstmt.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing PreparedStatement: " + e.getMessage());
+                    dbConnection.rollbackTransaction();
+                } catch (SQLException ex) {
+                    System.err.println("Error rolling back stock update: " + ex.getMessage());
                 }
             }
+            if (DatabaseConnection.isConnectionFailure(e)) {
+                throw e;
+            }
+            return false;
         }
     }
     
@@ -287,11 +654,13 @@ public class MedicineDAO {
     public List<String> getCategories() {
         String sql = "SELECT DISTINCT category FROM medicines ORDER BY category";
         List<String> categories = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -300,19 +669,45 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting categories: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return categories;
     }
     
+    // Get distinct supplier names (falls back to supplier_id when the supplier row is missing)
+    public List<String> getSupplierNames() {
+        String sql = "SELECT DISTINCT COALESCE(s.name, m.supplier_id) AS supplier FROM medicines m LEFT JOIN suppliers s ON m.supplier_id = s.id WHERE m.supplier_id IS NOT NULL ORDER BY supplier";
+        List<String> suppliers = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                suppliers.add(rs.getString("supplier"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting supplier names: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        return suppliers;
+    }
+    
     // Get medicine statistics
     public int getTotalMedicineCount() {
         String sql = "SELECT COUNT(*) FROM medicines";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             if (rs.next()) {
@@ -321,18 +716,20 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting total medicine count: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return 0;
     }
     
     public int getLowStockCount() {
         String sql = "SELECT COUNT(*) FROM medicines WHERE stock <= threshold";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             if (rs.next()) {
@@ -341,18 +738,20 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting low stock count: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return 0;
     }
     
     public double getTotalInventoryValue() {
         String sql = "SELECT SUM(stock * price) FROM medicines";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             if (rs.next()) {
@@ -361,7 +760,7 @@ public class MedicineDAO {
         } catch (SQLException e) {
             System.err.println("Error getting total inventory value: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return 0.0;
     }
@@ -390,6 +789,8 @@ public class MedicineDAO {
         
         medicine.setThreshold(rs.getInt("threshold"));
         medicine.setDescription(rs.getString("description"));
+        medicine.setVersion(rs.getInt("version"));
+        medicine.setLoaded(medicine);
         
         return medicine;
     }
@@ -0,0 +1,240 @@
+package dao;
+
+import models.Sale;
+import utils.DatabaseConnection;
+import utils.IdAllocator;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for Sale operations
+ * A sale's header and items are always written together in one transaction
+ * and read back together in one joined query.
+ */
+public class SaleDAO {
+    private DatabaseConnection dbConnection;
+    
+    private static final String SELECT_SALE_WITH_ITEMS =
+        "SELECT s.id, s.customer_id, s.customer_name, s.sale_date, s.total_amount, s.discount, s.final_amount, s.status, s.cashier_id, " +
+        "si.id AS item_id, si.medicine_id, si.medicine_name, si.price AS item_price, si.quantity, si.subtotal " +
+        "FROM sales s LEFT JOIN sale_items si ON si.sale_id = s.id";
+    
+    public SaleDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+    
+    // Insert a new sale with its items; fails if the id is already taken
+    public boolean createSale(Sale sale) throws SQLException {
+        return writeSale(sale, false);
+    }
+    
+    // Insert or update a sale and replace its items
+    public boolean saveSale(Sale sale) throws SQLException {
+        return writeSale(sale, true);
+    }
+    
+    /**
+     * Claims a sale's journal entry id inside the caller's transaction, so the
+     * sale is recorded once whether it commits online or is replayed from the
+     * offline journal. Returns false if it was already recorded.
+     */
+    public boolean claimJournalEntry(String entryId) throws SQLException {
+        String sql = "INSERT IGNORE INTO sale_journal_entries (entry_id) VALUES (?)";
+        return dbConnection.executeUpdate(sql, entryId) > 0;
+    }
+    
+    /**
+     * Writes the sale header and its items with one batched insert.
+     * Joins the caller's transaction when one is open. Returns false if the
+     * sale is refused; a lost connection is thrown so the caller can tell.
+     */
+    private boolean writeSale(Sale sale, boolean allowUpdate) throws SQLException {
+        String insertSql = "INSERT INTO sales (id, customer_id, customer_name, sale_date, total_amount, discount, final_amount, status, cashier_id) " +
+                           "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        String upsertSql = insertSql + " ON DUPLICATE KEY UPDATE customer_id = VALUES(customer_id), customer_name = VALUES(customer_name), " +
+                           "total_amount = VALUES(total_amount), discount = VALUES(discount), final_amount = VALUES(final_amount), " +
+                           "status = VALUES(status), cashier_id = VALUES(cashier_id)";
+        String deleteItemsSql = "DELETE FROM sale_items WHERE sale_id = ?";
+        String insertItemSql = "INSERT INTO sale_items (sale_id, medicine_id, medicine_name, price, quantity, subtotal) VALUES (?, ?, ?, ?, ?, ?)";
+        
+        boolean ownTransaction = !dbConnection.isInTransaction();
+        
+        try {
+            if (sale.getId() == null || sale.getId().isEmpty()) {
+                sale.setId(IdAllocator.getInstance().nextId(IdAllocator.SALE));
+            }
+            if (ownTransaction) {
+                dbConnection.beginTransaction();
+            }
+            
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            try {
+                conn = dbConnection.getConnection();
+                
+                pstmt = dbConnection.prepareStatement(conn, allowUpdate ? upsertSql : insertSql);
+                pstmt.setString(1, sale.getId());
+                pstmt.setString(2, sale.getCustomerId());
+                pstmt.setString(3, sale.getCustomerName());
+                pstmt.setTimestamp(4, Timestamp.valueOf(sale.getSaleDate()));
+                pstmt.setDouble(5, sale.getTotalAmount());
+                pstmt.setDouble(6, sale.getDiscount());
+                pstmt.setDouble(7, sale.getFinalAmount());
+                pstmt.setString(8, sale.getStatus().name());
+                pstmt.setString(9, sale.getCashierId());
+                pstmt.executeUpdate();
+                pstmt.close();
+                
+                if (allowUpdate) {
+                    pstmt = dbConnection.prepareStatement(conn, deleteItemsSql);
+                    pstmt.setString(1, sale.getId());
+                    pstmt.executeUpdate();
+                    pstmt.close();
+                }
+                
+                if (!sale.getItems().isEmpty()) {
+                    pstmt = dbConnection.prepareStatement(conn, insertItemSql);
+                    for (Sale.SaleItem item : sale.getItems()) {
+                        pstmt.setString(1, sale.getId());
+                        pstmt.setString(2, item.getMedicineId());
+                        pstmt.setString(3, item.getMedicineName());
+                        pstmt.setDouble(4, item.getPrice());
+                        pstmt.setInt(5, item.getQuantity());
+                        pstmt.setDouble(6, item.getSubtotal());
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+            } finally {
+                DatabaseConnection.closeResources(pstmt, conn);
+            }
+            
+            if (ownTransaction) {
+                dbConnection.commitTransaction();
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error saving sale: " + e.getMessage());
+            if (ownTransaction) {
+                try {
+                    dbConnection.rollbackTransaction();
+                } catch (SQLException ex) {
+                    System.err.println("Error rolling back sale: " + ex.getMessage());
+                }
+            }
+            if (DatabaseConnection.isConnectionFailure(e)) {
+                throw e;
+            }
+            return false;
+        }
+    }
+    
+    // Get sale by ID, items included
+    public Sale getSaleById(String id) {
+        String sql = SELECT_SALE_WITH_ITEMS + " WHERE s.id = ? ORDER BY si.id";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            pstmt.setString(1, id);
+            rs = pstmt.executeQuery();
+            
+            List<Sale> sales = mapResultSetToSales(rs);
+            if (!sales.isEmpty()) {
+                return sales.get(0);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting sale by ID: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        return null;
+    }
+    
+    // Get all sales with their items, newest first
+    public List<Sale> getAllSales() {
+        String sql = SELECT_SALE_WITH_ITEMS + " ORDER BY s.sale_date DESC, s.id, si.id";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            rs = pstmt.executeQuery();
+            
+            return mapResultSetToSales(rs);
+        } catch (SQLException e) {
+            System.err.println("Error getting all sales: " + e.getMessage());
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        return new ArrayList<>();
+    }
+    
+    // Delete sale (items cascade)
+    public boolean deleteSale(String id) {
+        String sql = "DELETE FROM sales WHERE id = ?";
+        
+        try {
+            int result = dbConnection.executeUpdate(sql, id);
+            return result > 0;
+        } catch (SQLException e) {
+            System.err.println("Error deleting sale: " + e.getMessage());
+            return false;
+        }
+    }
+    
+    // Helper method to fold joined sale/item rows into Sale objects, keeping row order
+    private List<Sale> mapResultSetToSales(ResultSet rs) throws SQLException {
+        Map<String, Sale> sales = new LinkedHashMap<>();
+        
+        while (rs.next()) {
+            String saleId = rs.getString("id");
+            Sale sale = sales.get(saleId);
+            if (sale == null) {
+                sale = mapResultSetToSale(rs);
+                sales.put(saleId, sale);
+            }
+            
+            if (rs.getObject("item_id") != null) {
+                Sale.SaleItem item = new Sale.SaleItem(
+                    rs.getString("medicine_id"),
+                    rs.getString("medicine_name"),
+                    rs.getDouble("item_price"),
+                    rs.getInt("quantity")
+                );
+                item.setSubtotal(rs.getDouble("subtotal"));
+                sale.getItems().add(item);
+            }
+        }
+        return new ArrayList<>(sales.values());
+    }
+    
+    // Helper method to map the header columns to a Sale object
+    private Sale mapResultSetToSale(ResultSet rs) throws SQLException {
+        Sale sale = new Sale();
+        sale.setId(rs.getString("id"));
+        sale.setCustomerId(rs.getString("customer_id"));
+        sale.setCustomerName(rs.getString("customer_name"));
+        
+        Timestamp saleDate = rs.getTimestamp("sale_date");
+        if (saleDate != null) {
+            sale.setSaleDate(saleDate.toLocalDateTime());
+        }
+        
+        sale.setTotalAmount(rs.getDouble("total_amount"));
+        sale.setDiscount(rs.getDouble("discount"));
+        sale.setFinalAmount(rs.getDouble("final_amount"));
+        sale.setStatus(Sale.SaleStatus.valueOf(rs.getString("status")));
+        sale.setCashierId(rs.getString("cashier_id"));
+        
+        return sale;
+    }
+}
@@ -0,0 +1,88 @@
+package dao;
+
+import utils.DatabaseConnection;
+import java.sql.*;
+
+/**
+ * Data Access Object for row_tombstones, the log of deleted users, suppliers
+ * and medicines that the delete triggers write for delta sync
+ */
+public class TombstoneDAO {
+    private DatabaseConnection dbConnection;
+    
+    public interface TombstoneConsumer {
+        void accept(String tableName, String rowId, Timestamp deletedAt);
+    }
+    
+    public TombstoneDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+    
+    // Deletions recorded at or after since
+    public boolean forEachTombstoneSince(Timestamp since, TombstoneConsumer consumer) {
+        String sql = "SELECT table_name, row_id, deleted_date FROM row_tombstones WHERE deleted_date >= ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            pstmt.setTimestamp(1, since);
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                consumer.accept(rs.getString("table_name"), rs.getString("row_id"), rs.getTimestamp("deleted_date"));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error reading tombstones: " + e.getMessage());
+            return false;
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+    }
+    
+    // Deletes tombstones recorded before cutoff; returns how many, or -1 on failure
+    public int purgeTombstonesBefore(Timestamp cutoff) {
+        String sql = "DELETE FROM row_tombstones WHERE deleted_date < ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            pstmt.setTimestamp(1, cutoff);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("Error purging tombstones: " + e.getMessage());
+            return -1;
+        } finally {
+            DatabaseConnection.closeResources(pstmt, conn);
+        }
+    }
+    
+    /**
+     * The database clock, which stamps updated_date and deleted_date. Sync
+     * watermarks are kept in this clock so terminal clock skew cannot skip rows.
+     * Returns null if the query fails.
+     */
+    public Timestamp getServerTime() {
+        String sql = "SELECT CURRENT_TIMESTAMP";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            rs = pstmt.executeQuery();
+            return rs.next() ? rs.getTimestamp(1) : null;
+        } catch (SQLException e) {
+            System.err.println("Error reading server time: " + e.getMessage());
+            return null;
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+    }
+}
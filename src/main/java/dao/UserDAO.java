@@ -2,10 +2,13 @@ package dao;
 
 import models.User;
 import utils.DatabaseConnection;
+import utils.IdAllocator;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Data Access Object for User operations
@@ -19,10 +22,14 @@ public class UserDAO {
     
     // Create a new user
     public boolean createUser(User user) {
-        String sql = "INSERT INTO users (username, email, password_hash, role, full_name, phone, is_active) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String sql = "INSERT INTO users (id, username, email, password_hash, role, full_name, phone, is_active) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
         try {
+            if (user.getId() == null || user.getId().isEmpty()) {
+                user.setId(IdAllocator.getInstance().nextId(IdAllocator.USER));
+            }
             int result = dbConnection.executeUpdate(sql,
+                user.getId(),
                 user.getUsername(),
                 user.getEmail(),
                 user.getPasswordHash(),
@@ -41,11 +48,13 @@ public class UserDAO {
     // Get user by ID
     public User getUserById(String id) {
         String sql = "SELECT * FROM users WHERE id = ?";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, id);
             rs = pstmt.executeQuery();
             
@@ -55,7 +64,7 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error getting user by ID: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return null;
     }
@@ -63,11 +72,13 @@ public class UserDAO {
     // Get user by username
     public User getUserByUsername(String username) {
         String sql = "SELECT * FROM users WHERE username = ?";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, username);
             rs = pstmt.executeQuery();
             
@@ -77,7 +88,7 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error getting user by username: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return null;
     }
@@ -86,11 +97,13 @@ public class UserDAO {
     public List<User> getAllUsers() {
         String sql = "SELECT * FROM users ORDER BY created_date DESC";
         List<User> users = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -99,7 +112,7 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error getting all users: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return users;
     }
@@ -143,11 +156,13 @@ public class UserDAO {
     // Check if username exists
     public boolean usernameExists(String username) {
         String sql = "SELECT COUNT(*) FROM users WHERE username = ?";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, username);
             rs = pstmt.executeQuery();
             
@@ -157,7 +172,7 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error checking username existence: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return false;
     }
@@ -165,11 +180,13 @@ public class UserDAO {
     // Check if email exists
     public boolean emailExists(String email) {
         String sql = "SELECT COUNT(*) FROM users WHERE email = ?";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, email);
             rs = pstmt.executeQuery();
             
@@ -179,7 +196,7 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error checking email existence: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return false;
     }
@@ -188,11 +205,13 @@ public class UserDAO {
     public List<User> getUsersByRole(User.UserRole role) {
         String sql = "SELECT * FROM users WHERE role = ? ORDER BY created_date DESC";
         List<User> users = new ArrayList<>();
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             pstmt.setString(1, role.name());
             rs = pstmt.executeQuery();
             
@@ -202,11 +221,75 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error getting users by role: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return users;
     }
     
+    // {id, username, email} of every user, for in-memory availability checks
+    public List<String[]> getUserKeys() {
+        String sql = "SELECT id, username, email FROM users";
+        List<String[]> keys = new ArrayList<>();
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                keys.add(new String[] {rs.getString("id"), rs.getString("username"), rs.getString("email")});
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting user keys: " + e.getMessage());
+            return null;
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+        return keys;
+    }
+    
+    // Id, username and email of users updated at or after since, with their updated_date
+    public boolean forEachUserChangedSince(Timestamp since, BiConsumer<String[], Timestamp> consumer) {
+        String sql = "SELECT id, username, email, updated_date FROM users WHERE updated_date >= ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            pstmt.setTimestamp(1, since);
+            rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                consumer.accept(new String[] {rs.getString("id"), rs.getString("username"), rs.getString("email")},
+                                rs.getTimestamp("updated_date"));
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error reading changed users: " + e.getMessage());
+            return false;
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+    }
+    
+    // Replace only the password hash (e.g. upgrading a legacy hash on login)
+    public boolean updatePasswordHash(String userId, String passwordHash) {
+        String sql = "UPDATE users SET password_hash = ? WHERE id = ?";
+        
+        try {
+            int result = dbConnection.executeUpdate(sql, passwordHash, userId);
+            return result > 0;
+        } catch (SQLException e) {
+            System.err.println("Error updating password hash: " + e.getMessage());
+            return false;
+        }
+    }
+    
     // Update last login
     public boolean updateLastLogin(String userId) {
         String sql = "UPDATE users SET last_login = NOW() WHERE id = ?";
@@ -220,14 +303,48 @@ public class UserDAO {
         }
     }
     
+    /**
+     * Writes many last_login values in one batch. A row is only moved forward,
+     * so a late flush never overwrites a newer login.
+     */
+    public boolean updateLastLogins(Map<String, LocalDateTime> lastLoginById) {
+        if (lastLoginById.isEmpty()) {
+            return true;
+        }
+        String sql = "UPDATE users SET last_login = ? WHERE id = ? AND (last_login IS NULL OR last_login < ?)";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
+            for (Map.Entry<String, LocalDateTime> login : lastLoginById.entrySet()) {
+                Timestamp at = Timestamp.valueOf(login.getValue());
+                pstmt.setTimestamp(1, at);
+                pstmt.setString(2, login.getKey());
+                pstmt.setTimestamp(3, at);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error updating last logins: " + e.getMessage());
+            return false;
+        } finally {
+            DatabaseConnection.closeResources(pstmt, conn);
+        }
+    }
+    
     // Get user statistics
     public int getTotalUserCount() {
         String sql = "SELECT COUNT(*) FROM users";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             if (rs.next()) {
@@ -236,18 +353,20 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error getting total user count: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return 0;
     }
     
     public int getActiveUserCount() {
         String sql = "SELECT COUNT(*) FROM users WHERE is_active = TRUE";
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         
         try {
-            pstmt = dbConnection.getConnection().prepareStatement(sql);
+            conn = dbConnection.getConnection();
+            pstmt = dbConnection.prepareStatement(conn, sql);
             rs = pstmt.executeQuery();
             
             if (rs.next()) {
@@ -256,7 +375,7 @@ public class UserDAO {
         } catch (SQLException e) {
             System.err.println("Error getting active user count: " + e.getMessage());
         } finally {
-            DatabaseConnection.closeResources(rs, pstmt);
+            DatabaseConnection.closeResources(rs, pstmt, conn);
         }
         return 0;
     }
@@ -0,0 +1,55 @@
+package models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable snapshot of the headline dashboard counters
+ */
+public class DashboardStats {
+    public static final DashboardStats EMPTY = new DashboardStats(0, 0, 0, 0, 0, 0.0, 0.0, 0, 0, null);
+
+    private final int totalMedicines;
+    private final int lowStockCount;
+    private final int outOfStockCount;
+    private final int expiredCount;
+    private final int expiringSoonCount;
+    private final double totalInventoryValue;
+    private final double todaysSalesAmount;
+    private final int todaysSalesCount;
+    private final int activeSuppliers;
+    private final LocalDateTime loadedAt;
+
+    public DashboardStats(int totalMedicines, int lowStockCount, int outOfStockCount,
+                          int expiredCount, int expiringSoonCount, double totalInventoryValue,
+                          double todaysSalesAmount, int todaysSalesCount, int activeSuppliers,
+                          LocalDateTime loadedAt) {
+        this.totalMedicines = totalMedicines;
+        this.lowStockCount = lowStockCount;
+        this.outOfStockCount = outOfStockCount;
+        this.expiredCount = expiredCount;
+        this.expiringSoonCount = expiringSoonCount;
+        this.totalInventoryValue = totalInventoryValue;
+        this.todaysSalesAmount = todaysSalesAmount;
+        this.todaysSalesCount = todaysSalesCount;
+        this.activeSuppliers = activeSuppliers;
+        this.loadedAt = loadedAt;
+    }
+
+    // Getters
+    public int getTotalMedicines() { return totalMedicines; }
+    public int getLowStockCount() { return lowStockCount; }
+    public int getOutOfStockCount() { return outOfStockCount; }
+    public int getExpiredCount() { return expiredCount; }
+    public int getExpiringSoonCount() { return expiringSoonCount; }
+    public double getTotalInventoryValue() { return totalInventoryValue; }
+    public double getTodaysSalesAmount() { return todaysSalesAmount; }
+    public int getTodaysSalesCount() { return todaysSalesCount; }
+    public int getActiveSuppliers() { return activeSuppliers; }
+    public LocalDateTime getLoadedAt() { return loadedAt; }
+
+    @Override
+    public String toString() {
+        return "Medicines: " + totalMedicines + " | Low Stock: " + lowStockCount +
+               " | Today's Sales: $" + String.format("%.2f", todaysSalesAmount);
+    }
+}
@@ -0,0 +1,65 @@
+package models;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable result of one analytics pass over an InventorySnapshot:
+ * headline counts, valuation per category and an expiry histogram.
+ */
+public class InventoryReport {
+    // Expiry histogram buckets, in days from the report date
+    public static final String[] EXPIRY_BUCKETS = {
+        "Expired", "0-30 days", "31-90 days", "91-180 days", "181-365 days", "Over 1 year", "No expiry date"
+    };
+
+    private final int totalMedicines;
+    private final long totalValueCents;
+    private final int lowStockCount;
+    private final int outOfStockCount;
+    private final int expiredCount;
+    private final int expiringSoonCount;
+    private final String[] categories;
+    private final int[] countByCategory;
+    private final long[] valueCentsByCategory;
+    private final int[] expiryHistogram;
+    private final LocalDate reportDate;
+
+    public InventoryReport(int totalMedicines, long totalValueCents, int lowStockCount,
+                           int outOfStockCount, int expiredCount, int expiringSoonCount,
+                           String[] categories, int[] countByCategory, long[] valueCentsByCategory,
+                           int[] expiryHistogram, LocalDate reportDate) {
+        this.totalMedicines = totalMedicines;
+        this.totalValueCents = totalValueCents;
+        this.lowStockCount = lowStockCount;
+        this.outOfStockCount = outOfStockCount;
+        this.expiredCount = expiredCount;
+        this.expiringSoonCount = expiringSoonCount;
+        this.categories = categories.clone();
+        this.countByCategory = countByCategory.clone();
+        this.valueCentsByCategory = valueCentsByCategory.clone();
+        this.expiryHistogram = expiryHistogram.clone();
+        this.reportDate = reportDate;
+    }
+
+    // Getters
+    public int getTotalMedicines() { return totalMedicines; }
+    public double getTotalInventoryValue() { return totalValueCents / 100.0; }
+    public int getLowStockCount() { return lowStockCount; }
+    public int getOutOfStockCount() { return outOfStockCount; }
+    public int getExpiredCount() { return expiredCount; }
+    public int getExpiringSoonCount() { return expiringSoonCount; }
+    public LocalDate getReportDate() { return reportDate; }
+    public String[] getCategories() { return categories.clone(); }
+    public int[] getCountByCategory() { return countByCategory.clone(); }
+    public int[] getExpiryHistogram() { return expiryHistogram.clone(); }
+
+    public double getValueByCategory(int index) {
+        return valueCentsByCategory[index] / 100.0;
+    }
+
+    @Override
+    public String toString() {
+        return "Medicines: " + totalMedicines + " | Low Stock: " + lowStockCount +
+               " | Value: $" + String.format("%.2f", getTotalInventoryValue());
+    }
+}
@@ -0,0 +1,277 @@
+package models;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, column-oriented copy of the medicine catalog for reports.
+ * Each column is a primitive array indexed by row; category and supplier
+ * are dictionary-encoded, price is held in cents and expiry as an epoch day,
+ * so aggregates are plain loops over int/long arrays with no per-row objects.
+ */
+public class InventorySnapshot {
+    // Expiry column value for medicines with no expiry date
+    private static final int NO_EXPIRY = Integer.MAX_VALUE;
+    
+    private final int size;
+    private final String[] id;
+    private final String[] name;
+    private final int[] stock;
+    private final int[] threshold;
+    private final long[] priceCents;
+    private final int[] expiryEpochDay;
+    private final int[] categoryCode;
+    private final int[] supplierCode;
+    private final String[] categories;
+    private final String[] suppliers;
+    private final LocalDateTime loadedAt;
+    
+    private InventorySnapshot(Builder builder) {
+        this.size = builder.size;
+        this.id = Arrays.copyOf(builder.id, size);
+        this.name = Arrays.copyOf(builder.name, size);
+        this.stock = Arrays.copyOf(builder.stock, size);
+        this.threshold = Arrays.copyOf(builder.threshold, size);
+        this.priceCents = Arrays.copyOf(builder.priceCents, size);
+        this.expiryEpochDay = Arrays.copyOf(builder.expiryEpochDay, size);
+        this.categoryCode = Arrays.copyOf(builder.categoryCode, size);
+        this.supplierCode = Arrays.copyOf(builder.supplierCode, size);
+        this.categories = builder.categories.toArray(new String[0]);
+        this.suppliers = builder.suppliers.toArray(new String[0]);
+        this.loadedAt = LocalDateTime.now();
+    }
+    
+    // Row accessors
+    public int size() { return size; }
+    public String getId(int row) { return id[row]; }
+    public String getName(int row) { return name[row]; }
+    public int getStock(int row) { return stock[row]; }
+    public int getThreshold(int row) { return threshold[row]; }
+    public double getPrice(int row) { return priceCents[row] / 100.0; }
+    public String getCategory(int row) { return categories[categoryCode[row]]; }
+    public String getSupplier(int row) { return suppliers[supplierCode[row]]; }
+    public LocalDateTime getLoadedAt() { return loadedAt; }
+    
+    // Raw column values, for analytics that loop over rows themselves
+    public long getPriceCents(int row) { return priceCents[row]; }
+    public int getExpiryEpochDay(int row) { return expiryEpochDay[row]; }
+    public int getCategoryCode(int row) { return categoryCode[row]; }
+    public int getCategoryCount() { return categories.length; }
+    public boolean hasExpiry(int row) { return expiryEpochDay[row] != NO_EXPIRY; }
+    
+    public LocalDate getExpiryDate(int row) {
+        return expiryEpochDay[row] == NO_EXPIRY ? null : LocalDate.ofEpochDay(expiryEpochDay[row]);
+    }
+    
+    // Dictionary of distinct categories; index i matches countByCategory()[i] and valueCentsByCategory()[i]
+    public String[] getCategories() {
+        return categories.clone();
+    }
+    
+    // Aggregates
+    public long getTotalInventoryValueCents() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total += stock[i] * priceCents[i];
+        }
+        return total;
+    }
+    
+    public double getTotalInventoryValue() {
+        return getTotalInventoryValueCents() / 100.0;
+    }
+    
+    // Same rule as Medicine.isLowStock(): includes out-of-stock rows
+    public int getLowStockCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (stock[i] <= threshold[i]) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    public int getOutOfStockCount() {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (stock[i] == 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    public int getExpiredCount(LocalDate today) {
+        int day = (int) today.toEpochDay();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (expiryEpochDay[i] < day) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    // Not yet expired, but expiring within the given number of days
+    public int getExpiringSoonCount(LocalDate today, int days) {
+        int from = (int) today.toEpochDay();
+        int to = from + days;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (expiryEpochDay[i] >= from && expiryEpochDay[i] <= to) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    public int[] countByCategory() {
+        int[] counts = new int[categories.length];
+        for (int i = 0; i < size; i++) {
+            counts[categoryCode[i]]++;
+        }
+        return counts;
+    }
+    
+    public long[] valueCentsByCategory() {
+        long[] values = new long[categories.length];
+        for (int i = 0; i < size; i++) {
+            values[categoryCode[i]] += stock[i] * priceCents[i];
+        }
+        return values;
+    }
+    
+    // Filters return row numbers, for use with the row accessors
+    public int[] lowStockRows() {
+        int[] rows = new int[size];
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (stock[i] <= threshold[i]) {
+                rows[n++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+    
+    /**
+     * Approximate heap footprint of the snapshot in bytes: the primitive
+     * columns plus the id/name strings and dictionaries (compact Latin-1
+     * strings, 64-bit JVM with compressed oops). Compare with
+     * estimateObjectListBytes() for the same catalog held as List<Medicine>.
+     */
+    public long estimateBytes() {
+        long bytes = size * (4L + 4L + 8L + 4L + 4L + 4L) + 6 * 16L; // primitive columns + array headers
+        bytes += size * 8L + 32L;                                     // id and name reference arrays
+        for (int i = 0; i < size; i++) {
+            bytes += stringBytes(id[i]) + stringBytes(name[i]);
+        }
+        for (String category : categories) {
+            bytes += 4 + stringBytes(category);
+        }
+        for (String supplier : suppliers) {
+            bytes += 4 + stringBytes(supplier);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Approximate footprint of the same rows as a List<Medicine>: each object
+     * header and fields, plus its own LocalDate and id/name/category/supplier
+     * strings (category and supplier strings are separate per row when read
+     * from JDBC). Description is left out, which flatters the object list.
+     */
+    public long estimateObjectListBytes() {
+        long perMedicine = 12 + 4 * 6 + 4 + 4 + 8; // header, six references, stock, threshold, price
+        perMedicine = (perMedicine + 7) / 8 * 8;
+        long localDate = 24;
+        long bytes = 16 + size * 4L + 16;          // ArrayList + backing array
+        for (int i = 0; i < size; i++) {
+            bytes += perMedicine + localDate + stringBytes(id[i]) + stringBytes(name[i])
+                   + stringBytes(getCategory(i)) + stringBytes(getSupplier(i));
+        }
+        return bytes;
+    }
+    
+    private static long stringBytes(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // String object (24) + byte[] header (16) + contents, padded to 8
+        return 24 + (16 + value.length() + 7) / 8 * 8;
+    }
+    
+    @Override
+    public String toString() {
+        return "InventorySnapshot: " + size + " SKUs, ~" + (size == 0 ? 0 : estimateBytes() / size) +
+               " bytes/SKU (object list ~" + (size == 0 ? 0 : estimateObjectListBytes() / size) + ")";
+    }
+    
+    /**
+     * Accumulates rows (e.g. from a streamed query) and freezes them into a
+     * snapshot. Not thread-safe.
+     */
+    public static class Builder {
+        private int size;
+        private String[] id = new String[256];
+        private String[] name = new String[256];
+        private int[] stock = new int[256];
+        private int[] threshold = new int[256];
+        private long[] priceCents = new long[256];
+        private int[] expiryEpochDay = new int[256];
+        private int[] categoryCode = new int[256];
+        private int[] supplierCode = new int[256];
+        private final List<String> categories = new ArrayList<>();
+        private final List<String> suppliers = new ArrayList<>();
+        private final Map<String, Integer> categoryCodes = new HashMap<>();
+        private final Map<String, Integer> supplierCodes = new HashMap<>();
+        
+        public Builder add(Medicine medicine) {
+            if (size == id.length) {
+                grow();
+            }
+            id[size] = medicine.getId();
+            name[size] = medicine.getName();
+            stock[size] = medicine.getStock();
+            threshold[size] = medicine.getThreshold();
+            priceCents[size] = Math.round(medicine.getPrice() * 100);
+            expiryEpochDay[size] = medicine.getExpiryDate() == null
+                ? NO_EXPIRY : (int) medicine.getExpiryDate().toEpochDay();
+            categoryCode[size] = encode(medicine.getCategory(), categories, categoryCodes);
+            supplierCode[size] = encode(medicine.getSupplier(), suppliers, supplierCodes);
+            size++;
+            return this;
+        }
+        
+        public InventorySnapshot build() {
+            return new InventorySnapshot(this);
+        }
+        
+        private static int encode(String value, List<String> dictionary, Map<String, Integer> codes) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+        
+        private void grow() {
+            int capacity = id.length * 2;
+            id = Arrays.copyOf(id, capacity);
+            name = Arrays.copyOf(name, capacity);
+            stock = Arrays.copyOf(stock, capacity);
+            threshold = Arrays.copyOf(threshold, capacity);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            expiryEpochDay = Arrays.copyOf(expiryEpochDay, capacity);
+            categoryCode = Arrays.copyOf(categoryCode, capacity);
+            supplierCode = Arrays.copyOf(supplierCode, capacity);
+        }
+    }
+}
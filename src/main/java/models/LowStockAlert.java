@@ -35,7 +35,6 @@ public class LowStockAlert {
         this.currentStock = currentStock;
         this.threshold = threshold;
         this.priority = calculatePriority();
-        this.id = generateId();
     }
 
     // Getters and Setters
@@ -101,10 +100,6 @@ public class LowStockAlert {
         return currentStock == 0;
     }
 
-    private String generateId() {
-        return "ALT" + String.format("%03d", (int)(Math.random() * 1000));
-    }
-
     @Override
     public String toString() {
         return medicineName + " - Stock: " + currentStock + "/" + threshold + " (" + priority + ")";
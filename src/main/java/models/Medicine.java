@@ -12,6 +12,9 @@ public class Medicine {
     private String supplier;
     private int threshold;
     private String description;
+    private int version; // medicines.version when read; updates only apply if it is unchanged
+    // Column values when read, so a concurrent stock-only change can be told apart and the edit merged
+    private Medicine loaded;
 
     // Constructors
     public Medicine() {}
@@ -25,7 +28,20 @@ public class Medicine {
         this.expiryDate = expiryDate;
         this.supplier = supplier;
         this.threshold = threshold;
-        this.id = generateId();
+    }
+
+    public Medicine(Medicine other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.category = other.category;
+        this.stock = other.stock;
+        this.price = other.price;
+        this.expiryDate = other.expiryDate;
+        this.supplier = other.supplier;
+        this.threshold = other.threshold;
+        this.description = other.description;
+        this.version = other.version;
+        this.loaded = other.loaded;
     }
 
     // Getters and Setters
@@ -56,6 +72,21 @@ public class Medicine {
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
+    public int getVersion() { return version; }
+    public void setVersion(int version) { this.version = version; }
+
+    // The values this medicine had when read, or null if it was never read or written
+    public Medicine getLoaded() { return loaded; }
+
+    // Records row as the values last read for this medicine; the snapshot is never modified
+    public void setLoaded(Medicine row) {
+        Medicine snapshot = new Medicine(row);
+        snapshot.loaded = null;
+        this.loaded = snapshot;
+    }
+
+    public int getLoadedStock() { return loaded == null ? stock : loaded.stock; }
+
     // Business Logic Methods
     public boolean isLowStock() {
         return stock <= threshold;
@@ -84,10 +115,6 @@ public class Medicine {
         this.stock += quantity;
     }
 
-    private String generateId() {
-        return "MED" + String.format("%03d", (int)(Math.random() * 1000));
-    }
-
     @Override
     public String toString() {
         return name + " (" + id + ") - Stock: " + stock + " - $" + price;
@@ -32,7 +32,6 @@ public class Sale {
         this();
         this.customerName = customerName;
         this.cashierId = cashierId;
-        this.id = generateId();
     }
 
     // Getters and Setters
@@ -94,10 +93,6 @@ public class Sale {
         calculateTotal();
     }
 
-    private String generateId() {
-        return "INV" + String.format("%03d", (int)(Math.random() * 1000));
-    }
-
     @Override
     public String toString() {
         return id + " - " + customerName + " - $" + String.format("%.2f", finalAmount);
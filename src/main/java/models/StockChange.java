@@ -0,0 +1,47 @@
+package models;
+
+/**
+ * Immutable change-feed event for one medicine. delta is the stock change
+ * when known (e.g. -3 for a sale of three), stock the resulting level when
+ * known; either is UNKNOWN otherwise. sequence is assigned by the feed.
+ */
+public class StockChange {
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    public enum Kind {
+        SAVED,    // created or edited
+        ADJUSTED, // stock added / removed / set
+        SOLD,     // decremented by a sale
+        DELETED
+    }
+
+    private final long sequence;
+    private final String medicineId;
+    private final Kind kind;
+    private final int delta;
+    private final int stock;
+    private final long timestamp;
+
+    public StockChange(long sequence, String medicineId, Kind kind, int delta, int stock, long timestamp) {
+        this.sequence = sequence;
+        this.medicineId = medicineId;
+        this.kind = kind;
+        this.delta = delta;
+        this.stock = stock;
+        this.timestamp = timestamp;
+    }
+
+    // Getters
+    public long getSequence() { return sequence; }
+    public String getMedicineId() { return medicineId; }
+    public Kind getKind() { return kind; }
+    public int getDelta() { return delta; }
+    public int getStock() { return stock; }
+    public long getTimestamp() { return timestamp; }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + kind + " " + medicineId +
+               (delta == UNKNOWN ? "" : " delta=" + delta) + (stock == UNKNOWN ? "" : " stock=" + stock);
+    }
+}
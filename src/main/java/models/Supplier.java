@@ -29,7 +29,6 @@ public class Supplier {
         this.email = email;
         this.phone = phone;
         this.address = address;
-        this.id = generateId();
     }
 
     // Getters and Setters
@@ -75,10 +74,6 @@ public class Supplier {
         return medicineIds.size();
     }
 
-    private String generateId() {
-        return "SUP" + String.format("%03d", (int)(Math.random() * 1000));
-    }
-
     @Override
     public String toString() {
         return name + " (" + contactPerson + ")";
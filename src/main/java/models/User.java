@@ -44,7 +44,6 @@ public class User {
         this.email = email;
         this.passwordHash = passwordHash;
         this.role = role;
-        this.id = generateId();
     }
 
     // Getters and Setters
@@ -101,10 +100,6 @@ public class User {
         return role == UserRole.ADMIN;
     }
 
-    private String generateId() {
-        return "USR" + String.format("%03d", (int)(Math.random() * 1000));
-    }
-
     @Override
     public String toString() {
         return "User{" +
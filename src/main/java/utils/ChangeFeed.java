@@ -0,0 +1,89 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import models.StockChange;
+
+/**
+ * In-process feed of stock changes held in a fixed-size ring buffer.
+ * Producers claim a sequence number and write their slot; they never wait
+ * for consumers. Each consumer keeps its own cursor (the next sequence it
+ * wants) and reads at its own pace. A consumer that falls more than a ring's
+ * length behind gets an overrun and must resynchronize from the database.
+ */
+public class ChangeFeed {
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(16, Integer.getInteger("changefeed.capacity", 4096)));
+    
+    private final AtomicReferenceArray<StockChange> ring = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong nextSequence = new AtomicLong(1);
+    private final int mask = CAPACITY - 1;
+    
+    // Result of a read: the events available from the cursor, and where to read next
+    public static class Batch {
+        private final List<StockChange> events;
+        private final long nextCursor;
+        private final boolean overrun;
+        
+        Batch(List<StockChange> events, long nextCursor, boolean overrun) {
+            this.events = events;
+            this.nextCursor = nextCursor;
+            this.overrun = overrun;
+        }
+        
+        public List<StockChange> getEvents() { return events; }
+        public long getNextCursor() { return nextCursor; }
+        // True if events were lost between the cursor and this batch
+        public boolean isOverrun() { return overrun; }
+    }
+    
+    public void publish(String medicineId, StockChange.Kind kind, int delta, int stock) {
+        long sequence = nextSequence.getAndIncrement();
+        ring.set((int) (sequence & mask), new StockChange(sequence, medicineId, kind, delta, stock, System.currentTimeMillis()));
+    }
+    
+    // Cursor for a subscriber that only wants changes from now on
+    public long currentCursor() {
+        return nextSequence.get();
+    }
+    
+    /**
+     * Up to max events starting at cursor. Stops at the first slot a producer
+     * has claimed but not yet written, so events are always in order.
+     */
+    public Batch read(long cursor, int max) {
+        long head = nextSequence.get();
+        boolean overrun = false;
+        if (cursor < 1) {
+            cursor = 1;
+        }
+        if (cursor > head) {
+            // Ahead of the feed: a cursor from before a restart, when sequences began again at 1
+            cursor = head;
+            overrun = true;
+        }
+        if (head - cursor > CAPACITY) {
+            cursor = head - CAPACITY;
+            overrun = true;
+        }
+        
+        List<StockChange> events = new ArrayList<>();
+        while (cursor < head && events.size() < max) {
+            StockChange event = ring.get((int) (cursor & mask));
+            if (event == null || event.getSequence() < cursor) {
+                break; // claimed, not yet written
+            }
+            if (event.getSequence() > cursor) {
+                // Lapped while reading: skip to the oldest event still in the ring
+                overrun = true;
+                cursor = nextSequence.get() - CAPACITY;
+                continue;
+            }
+            events.add(event);
+            cursor++;
+        }
+        return new Batch(events, cursor, overrun);
+    }
+}
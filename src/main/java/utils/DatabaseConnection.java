@@ -2,36 +2,64 @@ package utils;
 
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
-import java.util.Properties;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 
 /**
  * Database Connection Manager for MySQL
- * Handles connection pooling and database operations
+ * Hands out pooled connections from a HikariCP DataSource. Callers borrow a
+ * connection per operation and give it back through closeResources().
  */
 public class DatabaseConnection {
     private static DatabaseConnection instance;
-    private Connection connection;
+    private HikariDataSource dataSource;
+    
+    // Connection bound to the current thread between beginTransaction() and commit/rollback
+    private final ThreadLocal<Connection> transactionConnection = new ThreadLocal<>();
+    
+    // Database configuration (override with -Ddb.url=... etc.)
+    private static final String DB_URL = System.getProperty("db.url", "jdbc:mysql://localhost:3306/pms");
+    private static final String DB_USER = System.getProperty("db.username", "root"); // Change as needed
+    private static final String DB_PASSWORD = System.getProperty("db.password", "12345678"); // Change as needed
+    private static final String DB_DRIVER = System.getProperty("db.driver", "com.mysql.cj.jdbc.Driver");
+    
+    // Pool configuration (override with -Ddb.pool.maxSize=... etc.)
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final int POOL_MIN_IDLE = Integer.getInteger("db.pool.minIdle", 2);
+    private static final long CONNECTION_TIMEOUT_MS = Long.getLong("db.pool.connectionTimeoutMs", 10000L);
+    private static final long VALIDATION_TIMEOUT_MS = Long.getLong("db.pool.validationTimeoutMs", 5000L);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 600000L);
+    private static final long MAX_LIFETIME_MS = Long.getLong("db.pool.maxLifetimeMs", 1800000L);
+    private static final long KEEPALIVE_MS = Long.getLong("db.pool.keepaliveMs", 300000L);
+    private static final long LEAK_DETECTION_MS = Long.getLong("db.pool.leakDetectionMs", 0L); // 0 = disabled
+    
+    // Server-side prepared statement cache, per physical connection
+    private static final int STMT_CACHE_SIZE = Integer.getInteger("db.stmtCache.size", 250);
+    private static final int STMT_CACHE_SQL_LIMIT = Integer.getInteger("db.stmtCache.sqlLimit", 2048);
     
-    // Database configuration
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/pms";
-    private static final String DB_USER = "root"; // Change as needed
-    private static final String DB_PASSWORD = "12345678"; // Change as needed
-    private static final String DB_DRIVER = "com.mysql.cj.jdbc.Driver";
+    private final StatementCacheStats statementCacheStats = new StatementCacheStats(STMT_CACHE_SIZE);
     
-    // Connection properties
-    private static final String CONNECTION_PROPERTIES = 
-        "?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&useUnicode=true&characterEncoding=UTF-8";
+    // Run by the shutdown hook before the pool is closed (e.g. flushing write-behind queues)
+    private static final List<Runnable> beforeCloseTasks = new CopyOnWriteArrayList<>();
     
     private DatabaseConnection() {
         try {
-            initializeConnection();
+            initializeDataSource();
         } catch (SQLException e) {
-            System.err.println("Failed to initialize database connection: " + e.getMessage());
+            System.err.println("Failed to initialize database connection pool: " + e.getMessage());
             e.printStackTrace();
         }
     }
@@ -43,78 +71,121 @@ public class DatabaseConnection {
         return instance;
     }
     
-    private void initializeConnection() throws SQLException {
+    private void initializeDataSource() throws SQLException {
         try {
             // Load MySQL JDBC driver
             Class.forName(DB_DRIVER);
-            
-            // Create connection with properties
-            Properties props = new Properties();
-            props.setProperty("user", DB_USER);
-            props.setProperty("password", DB_PASSWORD);
-            props.setProperty("useSSL", "false");
-            props.setProperty("serverTimezone", "UTC");
-            props.setProperty("allowPublicKeyRetrieval", "true");
-            props.setProperty("useUnicode", "true");
-            props.setProperty("characterEncoding", "UTF-8");
-            props.setProperty("autoReconnect", "true");
-            props.setProperty("failOverReadOnly", "false");
-            props.setProperty("maxReconnects", "3");
-            
-            connection = DriverManager.getConnection(DB_URL + CONNECTION_PROPERTIES, props);
-            
-            // Test connection
-            if (connection != null && !connection.isClosed()) {
-                System.out.println("Database connection established successfully!");
-                
-                // Set auto-commit to true for normal operations
-                connection.setAutoCommit(true);
-                
-                // Test with a simple query
-                testConnection();
-            }
-            
         } catch (ClassNotFoundException e) {
             throw new SQLException("MySQL JDBC Driver not found. Please add mysql-connector-java to your classpath.", e);
-        } catch (SQLException e) {
-            System.err.println("Database connection failed: " + e.getMessage());
-            System.err.println("Please ensure:");
-            System.err.println("1. MySQL server is running");
-            System.err.println("2. Database 'pharmacy_management_system' exists");
-            System.err.println("3. Username and password are correct");
-            System.err.println("4. MySQL JDBC driver is in classpath");
-            throw e;
         }
+        
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("pms-pool");
+        config.setDriverClassName(DB_DRIVER);
+        config.setJdbcUrl(DB_URL);
+        config.setUsername(DB_USER);
+        config.setPassword(DB_PASSWORD);
+        
+        // Driver properties
+        config.addDataSourceProperty("useSSL", "false");
+        config.addDataSourceProperty("serverTimezone", "UTC");
+        config.addDataSourceProperty("allowPublicKeyRetrieval", "true");
+        config.addDataSourceProperty("useUnicode", "true");
+        config.addDataSourceProperty("characterEncoding", "UTF-8");
+        
+        // Prepare each distinct SQL once per connection on the server and reuse the handle
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", String.valueOf(STMT_CACHE_SIZE));
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", String.valueOf(STMT_CACHE_SQL_LIMIT));
+        config.addDataSourceProperty("cacheResultSetMetadata", "true");
+        
+        // Statements that set a fetch size read through a server-side cursor instead of buffering everything
+        config.addDataSourceProperty("useCursorFetch", "true");
+        
+        // Send JDBC batches as multi-row statements instead of one round trip per row
+        config.addDataSourceProperty("rewriteBatchedStatements", "true");
+        
+        // Pool sizing, validation and leak detection
+        config.setMaximumPoolSize(POOL_MAX_SIZE);
+        config.setMinimumIdle(Math.min(POOL_MIN_IDLE, POOL_MAX_SIZE));
+        config.setConnectionTimeout(CONNECTION_TIMEOUT_MS);
+        config.setValidationTimeout(VALIDATION_TIMEOUT_MS);
+        config.setIdleTimeout(IDLE_TIMEOUT_MS);
+        config.setMaxLifetime(MAX_LIFETIME_MS);
+        config.setKeepaliveTime(KEEPALIVE_MS);
+        config.setLeakDetectionThreshold(LEAK_DETECTION_MS);
+        config.setAutoCommit(true);
+        
+        // Start even if MySQL is down; borrowing will fail until it comes back
+        config.setInitializationFailTimeout(-1);
+        
+        dataSource = new HikariDataSource(config);
+        System.out.println("Database connection pool initialized (max " + POOL_MAX_SIZE + " connections)");
+        
+        testConnection();
     }
     
     private void testConnection() {
-        try (Statement stmt = connection.createStatement();
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery("SELECT 1 as test")) {
             
             if (rs.next()) {
                 System.out.println("Database connection test successful!");
             }
         } catch (SQLException e) {
-            System.err.println("Database connection test failed: " + e.getMessage());
+            System.err.println("Database connection failed: " + e.getMessage());
+            System.err.println("Please ensure:");
+            System.err.println("1. MySQL server is running");
+            System.err.println("2. Database 'pharmacy_management_system' exists");
+            System.err.println("3. Username and password are correct");
+            System.err.println("4. MySQL JDBC driver is in classpath");
         }
     }
     
-    public Connection getConnection() {
+    /**
+     * Borrows a connection from the pool. Inside a transaction the thread's
+     * transaction connection is returned instead. Release it with
+     * closeResources() (or close()) when done.
+     */
+    public Connection getConnection() throws SQLException {
+        Connection txConn = transactionConnection.get();
+        if (txConn != null) {
+            return txConn;
+        }
+        if (dataSource == null) {
+            throw new SQLException("Database connection pool is not initialized", "08003");
+        }
+        return dataSource.getConnection();
+    }
+    
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+    
+    /**
+     * Prepares a statement through the driver's statement cache and records
+     * a hit or miss for it. DAOs should use this instead of conn.prepareStatement().
+     */
+    public PreparedStatement prepareStatement(Connection conn, String sql) throws SQLException {
+        statementCacheStats.recordPrepare(conn.unwrap(Connection.class), sql);
+        return conn.prepareStatement(sql);
+    }
+    
+    public StatementCacheStats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+    
+    // Return a borrowed connection to the pool unless it belongs to an open transaction
+    public static void releaseConnection(Connection conn) {
         try {
-            // Check if connection is still valid
-            if (connection == null || connection.isClosed() || !connection.isValid(5)) {
-                System.out.println("Reconnecting to database...");
-                initializeConnection();
+            if (conn != null && (instance == null || conn != instance.transactionConnection.get())) {
+                conn.close();
             }
         } catch (SQLException e) {
-            System.err.println("Error checking connection validity: " + e.getMessage());
-            try {
-                initializeConnection();
-            } catch (SQLException ex) {
-                System.err.println("Failed to reconnect: " + ex.getMessage());
-            }
+            System.err.println("Error closing Connection: " + e.getMessage());
         }
-        return connection;
     }
     
     // Utility method to close resources
@@ -131,15 +202,8 @@ public class DatabaseConnection {
             System.err.println("Error closing PreparedStatement: " + e.getMessage());
         }
         
-        // Note: We don't close the main connection as it's managed by the singleton
-        // Only close if it's a different connection instance
-        try {
-            if (conn != null && conn != instance.connection) {
-                conn.close();
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing Connection: " + e.getMessage());
-        }
+        // Pooled connections go back to the pool; a transaction's connection stays open
+        releaseConnection(conn);
     }
     
     public static void closeResources(PreparedStatement pstmt, Connection conn) {
@@ -150,9 +214,11 @@ public class DatabaseConnection {
         closeResources(rs, pstmt, null);
     }
     
-    // Execute a query and return ResultSet (caller must close resources)
+    // Execute a query and return ResultSet (caller must close the ResultSet, its statement
+    // and release rs.getStatement().getConnection())
     public ResultSet executeQuery(String sql, Object... params) throws SQLException {
-        PreparedStatement pstmt = getConnection().prepareStatement(sql);
+        Connection conn = getConnection();
+        PreparedStatement pstmt = prepareStatement(conn, sql);
         
         // Set parameters
         for (int i = 0; i < params.length; i++) {
@@ -164,9 +230,11 @@ public class DatabaseConnection {
     
     // Execute an update/insert/delete query
     public int executeUpdate(String sql, Object... params) throws SQLException {
+        Connection conn = null;
         PreparedStatement pstmt = null;
         try {
-            pstmt = getConnection().prepareStatement(sql);
+            conn = getConnection();
+            pstmt = prepareStatement(conn, sql);
             
             // Set parameters
             for (int i = 0; i < params.length; i++) {
@@ -175,22 +243,18 @@ public class DatabaseConnection {
             
             return pstmt.executeUpdate();
         } finally {
-            if (pstmt != null) {
-                try {
-                    pstmt.close();
-                } catch (SQLException e) {
-                    System.err.println("Error closing PreparedStatement: " + e.getMessage());
-                }
-            }
+            closeResources(pstmt, conn);
         }
     }
     
     // Execute insert and return generated key
     public String executeInsertWithGeneratedKey(String sql, Object... params) throws SQLException {
+        Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         try {
-            pstmt = getConnection().prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            conn = getConnection();
+            pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             
             // Set parameters
             for (int i = 0; i < params.length; i++) {
@@ -209,42 +273,104 @@ public class DatabaseConnection {
                 throw new SQLException("Creating record failed, no ID obtained.");
             }
         } finally {
-            closeResources(rs, pstmt);
+            closeResources(rs, pstmt, conn);
         }
     }
     
-    // Begin transaction
+    public boolean isInTransaction() {
+        return transactionConnection.get() != null;
+    }
+    
+    // Begin transaction: binds one pooled connection to the calling thread
     public void beginTransaction() throws SQLException {
-        getConnection().setAutoCommit(false);
+        if (transactionConnection.get() != null) {
+            throw new SQLException("Transaction already in progress on this thread");
+        }
+        Connection conn = getConnection();
+        conn.setAutoCommit(false);
+        transactionConnection.set(conn);
     }
     
     // Commit transaction
     public void commitTransaction() throws SQLException {
-        getConnection().commit();
-        getConnection().setAutoCommit(true);
+        Connection conn = transactionConnection.get();
+        if (conn == null) {
+            throw new SQLException("No transaction in progress on this thread");
+        }
+        try {
+            conn.commit();
+        } finally {
+            endTransaction(conn);
+        }
     }
     
     // Rollback transaction
     public void rollbackTransaction() throws SQLException {
-        getConnection().rollback();
-        getConnection().setAutoCommit(true);
+        Connection conn = transactionConnection.get();
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.rollback();
+        } finally {
+            endTransaction(conn);
+        }
+    }
+    
+    private void endTransaction(Connection conn) {
+        transactionConnection.remove();
+        try {
+            conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            System.err.println("Error resetting auto-commit: " + e.getMessage());
+        }
+        releaseConnection(conn);
+    }
+    
+    /**
+     * True if the exception (or one of its causes) means the database could not
+     * be reached, as opposed to a statement the database rejected: SQLSTATE
+     * class 08, or the driver and pool's connection exception types.
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException || t instanceof SQLNonTransientConnectionException
+                || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
     
     // Check if database exists and is accessible
     public boolean isDatabaseAccessible() {
-        try (Statement stmt = getConnection().createStatement();
-             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users LIMIT 1")) {
-            return true;
+        Connection conn = null;
+        try {
+            conn = getConnection();
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users LIMIT 1")) {
+                return true;
+            }
         } catch (SQLException e) {
             System.err.println("Database accessibility check failed: " + e.getMessage());
             return false;
+        } finally {
+            releaseConnection(conn);
         }
     }
     
     // Get database metadata
     public void printDatabaseInfo() {
+        Connection conn = null;
         try {
-            DatabaseMetaData metaData = getConnection().getMetaData();
+            conn = getConnection();
+            DatabaseMetaData metaData = conn.getMetaData();
             System.out.println("=== Database Information ===");
             System.out.println("Database Product: " + metaData.getDatabaseProductName());
             System.out.println("Database Version: " + metaData.getDatabaseProductVersion());
@@ -252,27 +378,54 @@ public class DatabaseConnection {
             System.out.println("Driver Version: " + metaData.getDriverVersion());
             System.out.println("URL: " + metaData.getURL());
             System.out.println("Username: " + metaData.getUserName());
+            printPoolInfo();
+            System.out.println(String.format("Statement cache hit rate: %.1f%%", statementCacheStats.getHitRate() * 100));
             System.out.println("============================");
         } catch (SQLException e) {
             System.err.println("Error getting database metadata: " + e.getMessage());
+        } finally {
+            releaseConnection(conn);
         }
     }
     
-    // Close the connection (should be called on application shutdown)
+    // Print current pool usage
+    public void printPoolInfo() {
+        if (dataSource == null || dataSource.getHikariPoolMXBean() == null) {
+            return;
+        }
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        System.out.println("Pool: " + pool.getActiveConnections() + " active, " +
+                           pool.getIdleConnections() + " idle, " +
+                           pool.getTotalConnections() + " total, " +
+                           pool.getThreadsAwaitingConnection() + " waiting");
+    }
+    
+    // Close the pool (should be called on application shutdown)
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+            System.out.println("Database connection pool closed.");
         }
     }
     
-    // Shutdown hook to ensure connection is closed
+    /**
+     * Registers work that must still reach the database on a clean shutdown.
+     * Tasks run in registration order, before the pool is closed.
+     */
+    public static void runBeforeClose(Runnable task) {
+        beforeCloseTasks.add(task);
+    }
+    
+    // Shutdown hook to ensure the pool is closed
     static {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            for (Runnable task : beforeCloseTasks) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error in shutdown task: " + e.getMessage());
+                }
+            }
             if (instance != null) {
                 instance.closeConnection();
             }
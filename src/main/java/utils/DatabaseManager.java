@@ -1,13 +1,41 @@
 package utils;
 
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
+import dao.DashboardDAO;
 import dao.MedicineDAO;
+import dao.SaleDAO;
+import dao.TombstoneDAO;
 import dao.UserDAO;
+import models.DashboardStats;
+import models.InventoryReport;
+import models.InventorySnapshot;
 import models.LowStockAlert;
 import models.Medicine;
 import models.Sale;
+import models.StockChange;
 import models.Supplier;
 import models.User;
 
@@ -21,14 +49,81 @@ public class DatabaseManager {
     // DAO instances
     private UserDAO userDAO;
     private MedicineDAO medicineDAO;
+    private DashboardDAO dashboardDAO;
+    private SaleDAO saleDAO;
     // Add other DAOs as needed
     
+    // Batched, coalesced last_login writes
+    private LastLoginRecorder lastLoginRecorder;
+    
+    // Taken usernames / emails for sign-up checks, loaded at startup
+    private final UserAvailabilityIndex userAvailability = new UserAvailabilityIndex();
+    
+    // Medicine lookups by id (sale path), invalidated on every local write and refreshed by delta sync
+    private static final int MEDICINE_CACHE_SIZE = Integer.getInteger("cache.medicines.maxSize", 2000);
+    private static final long MEDICINE_CACHE_TTL_MS = Long.getLong("cache.medicines.ttlMs", 30000L);
+    private final MedicineCache medicineCache = new MedicineCache(MEDICINE_CACHE_SIZE, MEDICINE_CACHE_TTL_MS);
+    
+    // In-memory catalog indexes (trigram, fuzzy, bitmap); built in the background and kept current by local writes
+    private static final long SEARCH_INDEX_TTL_MS = Long.getLong("search.index.ttlMs", 300000L);
+    // Optional cap on search results; 0 (the default) returns every match
+    private static final int SEARCH_RESULT_LIMIT = Integer.getInteger("search.resultLimit", 0);
+    private final MedicineSearchIndex searchIndex = new MedicineSearchIndex();
+    private final MedicineFuzzyIndex fuzzyIndex = new MedicineFuzzyIndex();
+    private final MedicineBitmapIndex bitmapIndex = new MedicineBitmapIndex();
+    // Ids whose stock changed in SQL since the bitmap index last saw them
+    private final Set<String> stockChangedIds = ConcurrentHashMap.newKeySet();
+    // Rebuilds read the catalog on this thread; until the first one finishes, lists are served by SQL
+    private final ExecutorService catalogIndexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "catalog-index");
+        t.setDaemon(true);
+        return t;
+    });
+    // Guarded by catalogIndexer
+    private boolean catalogBuildPending;
+    private CompletableFuture<Boolean> catalogBuild;
+    // Guarded by searchIndex; non-null while a rebuild reads the catalog. Rows changed meanwhile
+    // (null = deleted), and stock-changed ids, replayed onto the new snapshot.
+    private Map<String, Medicine> changesDuringBuild;
+    private Set<String> stockChangedDuringBuild;
+    
+    // Fork/join pool for inventory reports (analytics.parallelism, default = cores)
+    private final InventoryAnalytics inventoryAnalytics = new InventoryAnalytics();
+    
+    // Stock change events for live views (Swing panels, SSE clients)
+    private final ChangeFeed changeFeed = new ChangeFeed();
+    
+    // Local journal for sales completed while MySQL is unreachable, replayed when it is back
+    private OfflineCheckout offlineCheckout;
+    
+    // Applies other terminals' writes to the caches and indexes above
+    private DeltaSync deltaSync;
+    // Bumped when a change cannot be applied row by row; the indexes are stale until rebuilt past it
+    private final AtomicInteger catalogInvalidations = new AtomicInteger();
+    private volatile int catalogBuiltAt = -1;
+    
+    // Dashboard statistics snapshot, refreshed in the background
+    private static final long STATS_TTL_MS = Long.getLong("dashboard.stats.ttlMs", 10000L);
+    private static final int EXPIRING_SOON_DAYS = 30;
+    private volatile DashboardStats dashboardStats;
+    private volatile long dashboardStatsLoadedAt;
+    private final AtomicBoolean statsRefreshPending = new AtomicBoolean(false);
+    private final List<Consumer<DashboardStats>> statsListeners = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService statsRefresher;
+    
     private DatabaseManager() {
         initializeDAOs();
         // Test database connection
         if (!testConnection()) {
             System.err.println("Warning: Database connection failed. Application may not work properly.");
+            offlineCheckout.goOffline();
+        } else {
+            deltaSync.resetWatermarks();
+            loadUserAvailability();
+            scheduleCatalogBuild();
         }
+        deltaSync.start();
+        startStatsRefresher();
     }
     
     public static synchronized DatabaseManager getInstance() {
@@ -41,6 +136,47 @@ public class DatabaseManager {
     private void initializeDAOs() {
         userDAO = new UserDAO();
         medicineDAO = new MedicineDAO();
+        dashboardDAO = new DashboardDAO();
+        saleDAO = new SaleDAO();
+        lastLoginRecorder = new LastLoginRecorder(userDAO);
+        offlineCheckout = new OfflineCheckout(saleDAO, medicineDAO, sale -> afterSaleCommitted(quantitiesOf(sale)));
+        deltaSync = new DeltaSync(medicineDAO, userDAO, new TombstoneDAO(), new DeltaSync.Listener() {
+            @Override
+            public void medicineChanged(Medicine medicine) {
+                applyRemoteMedicine(medicine);
+            }
+            
+            @Override
+            public void medicineDeleted(String id) {
+                applyRemoteMedicineDelete(id);
+            }
+            
+            @Override
+            public void userChanged(String id, String username, String email) {
+                userAvailability.put(id, username, email);
+            }
+            
+            @Override
+            public void userDeleted(String id) {
+                userAvailability.remove(id);
+            }
+            
+            @Override
+            public void supplierDeleted(String id) {
+                // Medicines of a deleted supplier lose its name without their own row being stamped
+                medicineCache.clear();
+                catalogInvalidations.incrementAndGet();
+            }
+        });
+    }
+    
+    private void startStatsRefresher() {
+        statsRefresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dashboard-stats-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        statsRefresher.scheduleWithFixedDelay(this::refreshDashboardStats, 0, STATS_TTL_MS, TimeUnit.MILLISECONDS);
     }
     
     private boolean testConnection() {
@@ -67,79 +203,506 @@ public class DatabaseManager {
     }
     
     public boolean saveUser(User user) {
+        boolean saved;
         if (user.getId() == null || user.getId().isEmpty()) {
-            return userDAO.createUser(user);
+            saved = userDAO.createUser(user);
         } else {
-            return userDAO.updateUser(user);
+            saved = userDAO.updateUser(user);
+        }
+        if (saved) {
+            userAvailability.put(user.getId(), user.getUsername(), user.getEmail());
         }
+        return saved;
+    }
+    
+    public boolean updatePasswordHash(String userId, String passwordHash) {
+        return userDAO.updatePasswordHash(userId, passwordHash);
+    }
+    
+    // Queued and written in a later batch instead of rewriting the whole users row
+    public void recordLogin(User user) {
+        lastLoginRecorder.record(user.getId(), user.getLastLogin());
+    }
+    
+    public void flushLogins() {
+        lastLoginRecorder.flush();
     }
     
     public boolean deleteUser(String id) {
-        return userDAO.deleteUser(id);
+        boolean deleted = userDAO.deleteUser(id);
+        if (deleted) {
+            userAvailability.remove(id);
+        }
+        return deleted;
     }
     
+    // Answered in memory once loaded; the database is only asked if the load failed
     public boolean isUsernameAvailable(String username) {
+        if (userAvailability.isLoaded()) {
+            return !userAvailability.isUsernameTaken(username);
+        }
         return !userDAO.usernameExists(username);
     }
     
     public boolean isEmailAvailable(String email) {
+        if (userAvailability.isLoaded()) {
+            return !userAvailability.isEmailTaken(email);
+        }
         return !userDAO.emailExists(email);
     }
     
+    private void loadUserAvailability() {
+        List<String[]> keys = userDAO.getUserKeys();
+        if (keys != null) {
+            userAvailability.load(keys);
+        }
+    }
+    
     // Medicine Operations
     public List<Medicine> getAllMedicines() {
         return medicineDAO.getAllMedicines();
     }
     
+    public List<Medicine> getMedicinesPage(String afterName, String afterId, int limit) {
+        return medicineDAO.getMedicinesPage(afterName, afterId, limit);
+    }
+    
+    public List<Medicine> findMedicinesPage(String searchTerm, String category,
+                                            String afterName, String afterId, int offset, int limit) {
+        return medicineDAO.findMedicinesPage(searchTerm, category, afterName, afterId, offset, limit);
+    }
+    
+    public int countMedicines(String searchTerm, String category) {
+        return medicineDAO.countMedicines(searchTerm, category);
+    }
+    
+    public boolean forEachMedicine(int fetchSize, Consumer<Medicine> consumer) {
+        return medicineDAO.forEachMedicine(fetchSize, consumer);
+    }
+    
     public Medicine getMedicineById(String id) {
-        return medicineDAO.getMedicineById(id);
+        Medicine cached = medicineCache.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        // A write that invalidates the id while we read keeps this row out of the cache
+        long loadToken = medicineCache.loadToken();
+        Medicine medicine = medicineDAO.getMedicineById(id);
+        medicineCache.put(medicine, loadToken);
+        return medicine;
     }
     
     public List<Medicine> getMedicinesByCategory(String category) {
         return medicineDAO.getMedicinesByCategory(category);
     }
     
+    // Updates are version-checked; false also means a concurrent edit could not be merged
     public boolean saveMedicine(Medicine medicine) {
+        boolean saved;
         if (medicine.getId() == null || medicine.getId().isEmpty()) {
-            return medicineDAO.createMedicine(medicine);
+            saved = medicineDAO.createMedicine(medicine);
         } else {
-            return medicineDAO.updateMedicine(medicine);
+            saved = medicineDAO.updateMedicine(medicine);
+            medicineCache.invalidate(medicine.getId());
         }
+        if (saved) {
+            indexMedicine(medicine);
+            changeFeed.publish(medicine.getId(), StockChange.Kind.SAVED, StockChange.UNKNOWN, medicine.getStock());
+            invalidateDashboardStats();
+        }
+        return saved;
     }
     
     public boolean deleteMedicine(String id) {
-        return medicineDAO.deleteMedicine(id);
+        boolean deleted = medicineDAO.deleteMedicine(id);
+        medicineCache.invalidate(id);
+        if (deleted) {
+            unindexMedicine(id);
+            changeFeed.publish(id, StockChange.Kind.DELETED, StockChange.UNKNOWN, StockChange.UNKNOWN);
+            invalidateDashboardStats();
+        }
+        return deleted;
     }
     
+    /**
+     * Substring search over name, id and category, best matches first.
+     * Served from the trigram index; falls back to the LIKE query until the
+     * index has been loaded.
+     */
     public List<Medicine> searchMedicines(String searchTerm) {
-        return medicineDAO.searchMedicines(searchTerm);
+        return searchMedicines(searchTerm, SEARCH_RESULT_LIMIT);
+    }
+    
+    // Same, best matches first, at most limit of them (0 = no limit)
+    public List<Medicine> searchMedicines(String searchTerm, int limit) {
+        int max = limit > 0 ? limit : Integer.MAX_VALUE;
+        if (!catalogIndexesReady()) {
+            List<Medicine> medicines = medicineDAO.searchMedicines(searchTerm);
+            return medicines.size() > max ? new ArrayList<>(medicines.subList(0, max)) : medicines;
+        }
+        return medicineDAO.getMedicinesByIds(searchIndex.search(searchTerm, max));
+    }
+    
+    /**
+     * True if the indexes can answer now. Never blocks: a missing, stale or
+     * expired index is rebuilt in the background, and callers fall back to
+     * SQL meanwhile. Past the TTL the old indexes keep serving until the
+     * rebuild replaces them; delta sync keeps them current in between.
+     */
+    private boolean catalogIndexesReady() {
+        boolean ready = searchIndex.isBuilt() && catalogBuiltAt == catalogInvalidations.get();
+        if (!ready || System.currentTimeMillis() - searchIndex.getBuiltAt() >= SEARCH_INDEX_TTL_MS) {
+            scheduleCatalogBuild();
+        }
+        return ready;
+    }
+    
+    /**
+     * Waits until the catalog indexes are built, starting a build if none is
+     * running. False if the catalog could not be read. Never call on the EDT.
+     */
+    public boolean awaitCatalogIndexes() {
+        if (catalogIndexesReady()) {
+            return true;
+        }
+        scheduleCatalogBuild().join();
+        return catalogIndexesReady();
+    }
+    
+    private CompletableFuture<Boolean> scheduleCatalogBuild() {
+        synchronized (catalogIndexer) {
+            if (!catalogBuildPending) {
+                catalogBuildPending = true;
+                catalogBuild = CompletableFuture.supplyAsync(this::buildCatalogIndexes, catalogIndexer);
+            }
+            return catalogBuild;
+        }
+    }
+    
+    /*
+     * Reads the catalog without holding the index lock, so writes are never
+     * held up by it. Changes indexed while the read runs are recorded and
+     * replayed onto the new snapshot, which may predate them.
+     */
+    private boolean buildCatalogIndexes() {
+        try {
+            int invalidations = catalogInvalidations.get();
+            synchronized (searchIndex) {
+                changesDuringBuild = new HashMap<>();
+                stockChangedDuringBuild = new HashSet<>();
+            }
+            List<Medicine> catalog = new ArrayList<>();
+            boolean read = medicineDAO.forEachMedicine(500, catalog::add);
+            synchronized (searchIndex) {
+                Map<String, Medicine> changes = changesDuringBuild;
+                Set<String> stockChanges = stockChangedDuringBuild;
+                changesDuringBuild = null;
+                stockChangedDuringBuild = null;
+                if (!read) {
+                    return false;
+                }
+                bitmapIndex.rebuild(catalog);
+                fuzzyIndex.rebuild(catalog);
+                searchIndex.rebuild(catalog);
+                changes.forEach((id, medicine) -> {
+                    if (medicine == null) {
+                        unindexMedicine(id);
+                    } else {
+                        indexMedicine(medicine);
+                    }
+                });
+                // Decrements committed before the read are in the snapshot; later ones are re-read on next use
+                stockChangedIds.clear();
+                stockChangedIds.addAll(stockChanges);
+                catalogBuiltAt = invalidations;
+                return true;
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error building catalog indexes: " + e.getMessage());
+            return false;
+        } finally {
+            synchronized (catalogIndexer) {
+                catalogBuildPending = false;
+            }
+        }
+    }
+    
+    // Stock changed by a SQL decrement; the bitmap index re-reads these rows before its next filter
+    private void markStockChanged(Collection<String> ids) {
+        synchronized (searchIndex) {
+            stockChangedIds.addAll(ids);
+            if (stockChangedDuringBuild != null) {
+                stockChangedDuringBuild.addAll(ids);
+            }
+        }
+    }
+    
+    // A medicine row written by another terminal (delta sync)
+    private void applyRemoteMedicine(Medicine medicine) {
+        // Not cached: a local write may have landed after the poll read this row
+        medicineCache.invalidate(medicine.getId());
+        synchronized (searchIndex) {
+            if (searchIndex.isBuilt() || changesDuringBuild != null) {
+                indexMedicine(medicine);
+                stockChangedIds.remove(medicine.getId());
+            }
+        }
+        changeFeed.publish(medicine.getId(), StockChange.Kind.SAVED, StockChange.UNKNOWN, medicine.getStock());
+        invalidateDashboardStats();
+    }
+    
+    private void applyRemoteMedicineDelete(String id) {
+        medicineCache.invalidate(id);
+        synchronized (searchIndex) {
+            if (searchIndex.isBuilt() || changesDuringBuild != null) {
+                unindexMedicine(id);
+            }
+        }
+        changeFeed.publish(id, StockChange.Kind.DELETED, StockChange.UNKNOWN, StockChange.UNKNOWN);
+        invalidateDashboardStats();
+    }
+    
+    /*
+     * Single-row index updates take the index lock and are recorded while a
+     * rebuild is reading the catalog, so they are replayed onto the new
+     * snapshot instead of being overwritten by it.
+     */
+    private void indexMedicine(Medicine medicine) {
+        synchronized (searchIndex) {
+            searchIndex.put(medicine);
+            fuzzyIndex.put(medicine);
+            bitmapIndex.put(medicine);
+            if (changesDuringBuild != null) {
+                changesDuringBuild.put(medicine.getId(), medicine);
+            }
+        }
+    }
+    
+    private void unindexMedicine(String id) {
+        synchronized (searchIndex) {
+            searchIndex.remove(id);
+            fuzzyIndex.remove(id);
+            bitmapIndex.remove(id);
+            if (changesDuringBuild != null) {
+                changesDuringBuild.put(id, null);
+            }
+        }
+    }
+    
+    public DeltaSync getDeltaSync() {
+        return deltaSync;
+    }
+    
+    /**
+     * Typo-tolerant name lookup: medicines whose name or a word of it is within
+     * maxDistance edits of the term, closest first. Empty if the index cannot be loaded.
+     * Has no SQL equivalent, so it waits for the first index build; call it off the EDT.
+     */
+    public List<Medicine> fuzzySearchMedicines(String searchTerm, int maxDistance) {
+        if (!awaitCatalogIndexes()) {
+            return new ArrayList<>();
+        }
+        return medicineDAO.getMedicinesByIds(fuzzyIndex.search(searchTerm, maxDistance,
+                                                               SEARCH_RESULT_LIMIT > 0 ? SEARCH_RESULT_LIMIT : Integer.MAX_VALUE));
+    }
+    
+    /**
+     * Medicines matching any of the categories AND any of the stock levels AND
+     * any of the expiry windows (null or empty = no filter), resolved on the
+     * bitmap index. Until it is built a category-only filter is answered by
+     * SQL; other filters wait for the build, so call this off the EDT. Falls
+     * back to an empty list if the catalog cannot be loaded.
+     */
+    public List<Medicine> filterMedicines(Collection<String> categories,
+                                          Collection<MedicineBitmapIndex.StockLevel> stockLevels,
+                                          Collection<MedicineBitmapIndex.ExpiryWindow> expiryWindows) {
+        boolean categoryOnly = (stockLevels == null || stockLevels.isEmpty())
+            && (expiryWindows == null || expiryWindows.isEmpty()) && categories != null && !categories.isEmpty();
+        if (categoryOnly && !catalogIndexesReady()) {
+            List<Medicine> medicines = new ArrayList<>();
+            for (String category : new LinkedHashSet<>(categories)) {
+                medicines.addAll(medicineDAO.getMedicinesByCategory(category));
+            }
+            return medicines;
+        }
+        if (!awaitCatalogIndexes()) {
+            return new ArrayList<>();
+        }
+        return filterIndexed(categories, stockLevels, expiryWindows);
+    }
+    
+    private List<Medicine> filterIndexed(Collection<String> categories,
+                                         Collection<MedicineBitmapIndex.StockLevel> stockLevels,
+                                         Collection<MedicineBitmapIndex.ExpiryWindow> expiryWindows) {
+        refreshStockChanges();
+        return bitmapIndex.filter(categories, stockLevels, expiryWindows);
+    }
+    
+    // Re-read medicines whose stock was changed by SQL decrements, in one query
+    private void refreshStockChanges() {
+        if (stockChangedIds.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>(stockChangedIds);
+        stockChangedIds.removeAll(ids);
+        List<Medicine> changed = medicineDAO.getMedicinesByIds(ids);
+        for (Medicine medicine : changed) {
+            indexMedicine(medicine);
+        }
     }
     
+    public MedicineSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+    
+    // The stock and expiry lists below come from the bitmap index once built, in the same order as their queries
+    
     public List<Medicine> getLowStockMedicines() {
-        return medicineDAO.getLowStockMedicines();
+        if (!catalogIndexesReady()) {
+            return medicineDAO.getLowStockMedicines();
+        }
+        List<Medicine> medicines = filterIndexed(null, EnumSet.of(MedicineBitmapIndex.StockLevel.OUT_OF_STOCK,
+                                                                  MedicineBitmapIndex.StockLevel.LOW_STOCK), null);
+        medicines.sort(Comparator.comparingInt(Medicine::getStock));
+        return medicines;
     }
     
     public List<Medicine> getOutOfStockMedicines() {
-        return medicineDAO.getOutOfStockMedicines();
+        if (!catalogIndexesReady()) {
+            return medicineDAO.getOutOfStockMedicines();
+        }
+        List<Medicine> medicines = filterIndexed(null, EnumSet.of(MedicineBitmapIndex.StockLevel.OUT_OF_STOCK), null);
+        medicines.sort(Comparator.comparing(Medicine::getName, String.CASE_INSENSITIVE_ORDER));
+        return medicines;
     }
     
     public List<Medicine> getExpiredMedicines() {
-        return medicineDAO.getExpiredMedicines();
+        if (!catalogIndexesReady()) {
+            return medicineDAO.getExpiredMedicines();
+        }
+        List<Medicine> medicines = filterIndexed(null, null, EnumSet.of(MedicineBitmapIndex.ExpiryWindow.EXPIRED));
+        medicines.sort(Comparator.comparing(Medicine::getExpiryDate));
+        return medicines;
     }
     
     public List<Medicine> getExpiringSoonMedicines(int days) {
-        return medicineDAO.getExpiringSoonMedicines(days);
+        // The index buckets one fixed window; other horizons still go to SQL
+        if (days != MedicineBitmapIndex.EXPIRING_SOON_DAYS || !catalogIndexesReady()) {
+            return medicineDAO.getExpiringSoonMedicines(days);
+        }
+        List<Medicine> medicines = filterIndexed(null, null, EnumSet.of(MedicineBitmapIndex.ExpiryWindow.EXPIRING_SOON));
+        medicines.sort(Comparator.comparing(Medicine::getExpiryDate));
+        return medicines;
     }
     
     public boolean updateMedicineStock(String medicineId, int quantity, String operation) {
-        return medicineDAO.updateStock(medicineId, quantity, operation);
+        boolean updated = medicineDAO.updateStock(medicineId, quantity, operation);
+        medicineCache.invalidate(medicineId);
+        if (updated) {
+            markStockChanged(Collections.singleton(medicineId));
+            int delta = "SUBTRACT".equalsIgnoreCase(operation) ? -quantity : quantity;
+            changeFeed.publish(medicineId, StockChange.Kind.ADJUSTED, delta, StockChange.UNKNOWN);
+            invalidateDashboardStats();
+        }
+        return updated;
+    }
+    
+    // Atomically decrement stock for all lines (e.g. a sale); all or nothing
+    public boolean reduceMedicineStock(Map<String, Integer> quantitiesById) {
+        boolean reduced;
+        try {
+            reduced = medicineDAO.reduceStock(quantitiesById);
+        } catch (SQLException e) {
+            reduced = false;
+        }
+        quantitiesById.keySet().forEach(medicineCache::invalidate);
+        if (reduced) {
+            markStockChanged(quantitiesById.keySet());
+            quantitiesById.forEach((id, quantity) ->
+                changeFeed.publish(id, StockChange.Kind.SOLD, -quantity, StockChange.UNKNOWN));
+            invalidateDashboardStats();
+        }
+        return reduced;
+    }
+    
+    /**
+     * Columnar copy of the whole catalog, read with one streamed query.
+     * Returns null if the read fails.
+     */
+    public InventorySnapshot getInventorySnapshot() {
+        InventorySnapshot.Builder builder = new InventorySnapshot.Builder();
+        if (!medicineDAO.forEachMedicine(500, builder::add)) {
+            return null;
+        }
+        return builder.build();
+    }
+    
+    // One parallel pass over the snapshot for every report aggregate
+    public InventoryReport getInventoryReport(InventorySnapshot snapshot) {
+        return inventoryAnalytics.analyze(snapshot, LocalDate.now());
+    }
+    
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+    
+    public MedicineCache getMedicineCache() {
+        return medicineCache;
     }
     
     public List<String> getMedicineCategories() {
         return medicineDAO.getCategories();
     }
     
+    public List<String> getMedicineSuppliers() {
+        return medicineDAO.getSupplierNames();
+    }
+    
     // Statistics Methods
+    
+    /**
+     * Returns the cached dashboard snapshot without touching the database.
+     * Until the background refresher has loaded one this is DashboardStats.EMPTY;
+     * stats listeners are told when a snapshot arrives.
+     */
+    public DashboardStats getDashboardStats() {
+        DashboardStats stats = dashboardStats;
+        if (stats == null) {
+            invalidateDashboardStats();
+            return DashboardStats.EMPTY;
+        }
+        if (System.currentTimeMillis() - dashboardStatsLoadedAt > STATS_TTL_MS) {
+            invalidateDashboardStats();
+        }
+        return stats;
+    }
+    
+    // Called on the refresher thread with each newly loaded snapshot
+    public void addDashboardStatsListener(Consumer<DashboardStats> listener) {
+        statsListeners.add(listener);
+    }
+    
+    public void removeDashboardStatsListener(Consumer<DashboardStats> listener) {
+        statsListeners.remove(listener);
+    }
+    
+    // Schedule an immediate background refresh (coalesced if one is already queued)
+    public void invalidateDashboardStats() {
+        if (statsRefresher != null && statsRefreshPending.compareAndSet(false, true)) {
+            statsRefresher.execute(this::refreshDashboardStats);
+        }
+    }
+    
+    private void refreshDashboardStats() {
+        statsRefreshPending.set(false);
+        DashboardStats stats = dashboardDAO.getDashboardStats(EXPIRING_SOON_DAYS);
+        if (stats != null) {
+            dashboardStats = stats;
+            dashboardStatsLoadedAt = System.currentTimeMillis();
+            statsListeners.forEach(listener -> listener.accept(stats));
+        }
+    }
+    
     public int getTotalMedicines() {
         return medicineDAO.getTotalMedicineCount();
     }
@@ -153,33 +716,115 @@ public class DatabaseManager {
     }
     
     public double getTodaysSales() {
-        // This would be implemented with SaleDAO
-        // For now, return a placeholder value
-        return 0.0;
+        return getDashboardStats().getTodaysSalesAmount();
     }
     
     public int getActiveSuppliers() {
-        // This would be implemented with SupplierDAO
-        // For now, return a placeholder value
-        return 0;
+        return getDashboardStats().getActiveSuppliers();
     }
     
-    // Placeholder methods for compatibility with existing code
+    // Sale Operations
     public List<Sale> getAllSales() {
-        // TODO: Implement with SaleDAO
-        return new ArrayList<>();
+        return saleDAO.getAllSales();
     }
     
     public Sale getSaleById(String id) {
-        // TODO: Implement with SaleDAO
-        return null;
+        return saleDAO.getSaleById(id);
     }
     
     public boolean saveSale(Sale sale) {
-        // TODO: Implement with SaleDAO
-        return false;
+        boolean saved;
+        try {
+            saved = saleDAO.saveSale(sale);
+        } catch (SQLException e) {
+            saved = false;
+        }
+        if (saved && sale.getStatus() == Sale.SaleStatus.COMPLETED) {
+            invalidateDashboardStats();
+        }
+        return saved;
+    }
+    
+    /**
+     * Commits a completed sale: stock decrements, sale header and items all go
+     * in one transaction, so either everything is recorded or nothing is.
+     * A new sale is inserted (never overwriting an existing id); otherwise the
+     * stored pending sale is updated. If the database cannot be reached, a new
+     * sale is journaled locally instead and left without an id until it is
+     * replayed (see OfflineCheckout).
+     */
+    public boolean commitSale(Sale sale, boolean newSale) {
+        // While offline, skip the pool timeout and journal straight away
+        if (newSale && offlineCheckout.isOffline()) {
+            return offlineCheckout.record(sale);
+        }
+        Map<String, Integer> quantities = quantitiesOf(sale);
+        // Claimed in the same transaction, so if the connection drops during the
+        // commit the sale can be journaled under this id and is not recorded twice
+        String entryId = newSale ? SalesJournal.newEntryId() : null;
+        
+        DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+        boolean committed = false;
+        boolean unreachable = false;
+        try {
+            dbConnection.beginTransaction();
+            if ((entryId == null || saleDAO.claimJournalEntry(entryId))
+                    && medicineDAO.reduceStock(quantities)
+                    && (newSale ? saleDAO.createSale(sale) : saleDAO.saveSale(sale))) {
+                dbConnection.commitTransaction();
+                committed = true;
+            } else {
+                dbConnection.rollbackTransaction();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error committing sale: " + e.getMessage());
+            unreachable = DatabaseConnection.isConnectionFailure(e);
+            try {
+                dbConnection.rollbackTransaction();
+            } catch (SQLException ex) {
+                System.err.println("Error rolling back sale: " + ex.getMessage());
+            }
+        }
+        
+        if (!committed && unreachable && newSale && offlineCheckout.isAvailable()) {
+            offlineCheckout.goOffline();
+            return offlineCheckout.record(sale, entryId);
+        }
+        if (committed) {
+            afterSaleCommitted(quantities);
+        } else {
+            quantities.keySet().forEach(medicineCache::invalidate);
+        }
+        return committed;
+    }
+    
+    private static Map<String, Integer> quantitiesOf(Sale sale) {
+        Map<String, Integer> quantities = new HashMap<>();
+        for (Sale.SaleItem item : sale.getItems()) {
+            quantities.merge(item.getMedicineId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+    
+    private void afterSaleCommitted(Map<String, Integer> quantities) {
+        quantities.keySet().forEach(medicineCache::invalidate);
+        markStockChanged(quantities.keySet());
+        quantities.forEach((id, quantity) ->
+            changeFeed.publish(id, StockChange.Kind.SOLD, -quantity, StockChange.UNKNOWN));
+        invalidateDashboardStats();
+    }
+    
+    public boolean isOfflineCheckout() {
+        return offlineCheckout.isOffline();
     }
     
+    // Journaled sales not yet in MySQL
+    public int getPendingJournaledSales() {
+        return offlineCheckout.getPendingCount();
+    }
+    
+    // Placeholder methods for compatibility with existing code
+    
     public List<Supplier> getAllSuppliers() {
         // TODO: Implement with SupplierDAO
         return new ArrayList<>();
@@ -218,6 +863,16 @@ public class DatabaseManager {
     // Database connection info
     public void printDatabaseInfo() {
         DatabaseConnection.getInstance().printDatabaseInfo();
+        medicineDAO.getLockStats().printStats();
+    }
+    
+    // Version conflicts, merges and rejections of medicine updates
+    public OptimisticLockStats getOptimisticLockStats() {
+        return medicineDAO.getLockStats();
+    }
+    
+    public StatementCacheStats getStatementCacheStats() {
+        return DatabaseConnection.getInstance().getStatementCacheStats();
     }
     
     public boolean isDatabaseConnected() {
@@ -0,0 +1,227 @@
+package utils;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dao.MedicineDAO;
+import dao.TombstoneDAO;
+import dao.UserDAO;
+import models.Medicine;
+
+/**
+ * Keeps this terminal's caches in step with writes made by other terminals.
+ * Every INTERVAL_MS it reads the medicines and users updated since a
+ * watermark (medicines also when their supplier row changed) and the
+ * tombstones of deleted rows, and hands each change to the listener once.
+ *
+ * updated_date has one-second resolution and a row is stamped before its
+ * transaction commits, so each poll re-reads OVERLAP_MS behind the watermark.
+ * Rows already applied with the same content are skipped, so the overlap
+ * costs a few re-read rows but no duplicate updates.
+ *
+ * Tombstones are only needed until every terminal has polled past them, so
+ * rows older than TOMBSTONE_RETENTION_MS (never less than a few overlap
+ * windows) are deleted every PURGE_INTERVAL_MS.
+ */
+public class DeltaSync {
+    private static final long INTERVAL_MS = Long.getLong("sync.intervalMs", 2000L);
+    private static final long OVERLAP_MS = Long.getLong("sync.overlapMs", 5000L);
+    private static final long TOMBSTONE_RETENTION_MS =
+        Math.max(Long.getLong("sync.tombstoneRetentionMs", 3_600_000L), 4 * (OVERLAP_MS + INTERVAL_MS));
+    private static final long PURGE_INTERVAL_MS = Long.getLong("sync.purgeIntervalMs", 600_000L);
+    
+    public interface Listener {
+        void medicineChanged(Medicine medicine);
+        void medicineDeleted(String id);
+        void userChanged(String id, String username, String email);
+        void userDeleted(String id);
+        void supplierDeleted(String id);
+    }
+    
+    // Watermark in database time plus what was applied inside the overlap window
+    private static final class Cursor {
+        private Timestamp watermark;
+        private final Map<String, Applied> applied = new HashMap<>();
+        
+        private static final class Applied {
+            final Timestamp changedAt;
+            final int fingerprint;
+            
+            Applied(Timestamp changedAt, int fingerprint) {
+                this.changedAt = changedAt;
+                this.fingerprint = fingerprint;
+            }
+        }
+        
+        Cursor(Timestamp start) {
+            this.watermark = start;
+        }
+        
+        Timestamp since() {
+            return new Timestamp(watermark.getTime() - OVERLAP_MS);
+        }
+        
+        // True the first time a key is seen with this content
+        boolean advance(String key, Timestamp changedAt, int fingerprint) {
+            if (changedAt == null) {
+                changedAt = watermark;
+            }
+            if (changedAt.after(watermark)) {
+                watermark = changedAt;
+            }
+            Applied previous = applied.put(key, new Applied(changedAt, fingerprint));
+            return previous == null || previous.fingerprint != fingerprint;
+        }
+        
+        // Forget entries the next poll can no longer return
+        void prune() {
+            long cutoff = watermark.getTime() - OVERLAP_MS;
+            Iterator<Applied> it = applied.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().changedAt.getTime() < cutoff) {
+                    it.remove();
+                }
+            }
+        }
+    }
+    
+    private final MedicineDAO medicineDAO;
+    private final UserDAO userDAO;
+    private final TombstoneDAO tombstoneDAO;
+    private final Listener listener;
+    private ScheduledExecutorService poller;
+    
+    // Guarded by this
+    private Cursor medicines;
+    private Cursor users;
+    private Cursor tombstones;
+    private long polls;
+    private long changesApplied;
+    private long lastPurgeMillis;
+    
+    public DeltaSync(MedicineDAO medicineDAO, UserDAO userDAO, TombstoneDAO tombstoneDAO, Listener listener) {
+        this.medicineDAO = medicineDAO;
+        this.userDAO = userDAO;
+        this.tombstoneDAO = tombstoneDAO;
+        this.listener = listener;
+    }
+    
+    // Starts polling; a non-positive sync.intervalMs leaves it off
+    public synchronized void start() {
+        if (poller != null || INTERVAL_MS <= 0) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "delta-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, INTERVAL_MS, INTERVAL_MS, TimeUnit.MILLISECONDS);
+        DatabaseConnection.runBeforeClose(this::stop);
+    }
+    
+    public synchronized void stop() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+    
+    /**
+     * Anchors the watermarks at the current database time. Call it before the
+     * caches are first loaded, so whatever changes during the load is re-read.
+     */
+    public synchronized boolean resetWatermarks() {
+        Timestamp now = tombstoneDAO.getServerTime();
+        if (now == null) {
+            return false;
+        }
+        medicines = new Cursor(now);
+        users = new Cursor(now);
+        tombstones = new Cursor(now);
+        return true;
+    }
+    
+    // One pass over all three sources; a failed read is retried from the same watermark next time
+    public synchronized void poll() {
+        try {
+            if (medicines == null && !resetWatermarks()) {
+                return;
+            }
+            polls++;
+            
+            medicineDAO.forEachMedicineChangedSince(medicines.since(), (medicine, changedAt) -> {
+                if (medicines.advance(medicine.getId(), changedAt, fingerprint(medicine))) {
+                    changesApplied++;
+                    listener.medicineChanged(medicine);
+                }
+            });
+            medicines.prune();
+            
+            userDAO.forEachUserChangedSince(users.since(), (user, changedAt) -> {
+                if (users.advance(user[0], changedAt, Objects.hash(user[1], user[2]))) {
+                    changesApplied++;
+                    listener.userChanged(user[0], user[1], user[2]);
+                }
+            });
+            users.prune();
+            
+            // After the upserts, so a row changed and then deleted ends up deleted
+            tombstoneDAO.forEachTombstoneSince(tombstones.since(), (table, id, deletedAt) -> {
+                if (!tombstones.advance(table + ":" + id, deletedAt, 0)) {
+                    return;
+                }
+                changesApplied++;
+                switch (table) {
+                    case "medicines":
+                        listener.medicineDeleted(id);
+                        break;
+                    case "users":
+                        listener.userDeleted(id);
+                        break;
+                    case "suppliers":
+                        listener.supplierDeleted(id);
+                        break;
+                    default:
+                        break;
+                }
+            });
+            tombstones.prune();
+            purgeTombstones();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive; the next poll starts from the same watermarks
+            System.err.println("Delta sync failed: " + e.getMessage());
+        }
+    }
+    
+    // Cutoff is taken from the tombstone watermark, so it is in database time and never ahead of this terminal
+    private void purgeTombstones() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurgeMillis < PURGE_INTERVAL_MS) {
+            return;
+        }
+        lastPurgeMillis = now;
+        Timestamp cutoff = new Timestamp(tombstones.watermark.getTime() - TOMBSTONE_RETENTION_MS);
+        tombstoneDAO.purgeTombstonesBefore(cutoff);
+    }
+    
+    public synchronized long getPollCount() {
+        return polls;
+    }
+    
+    public synchronized long getChangesApplied() {
+        return changesApplied;
+    }
+    
+    private static int fingerprint(Medicine medicine) {
+        return Objects.hash(medicine.getVersion(), medicine.getName(), medicine.getCategory(), medicine.getStock(), medicine.getPrice(),
+                            medicine.getExpiryDate(), medicine.getSupplier(), medicine.getThreshold(),
+                            medicine.getDescription());
+    }
+}
@@ -0,0 +1,134 @@
+package utils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hi/lo id generator backed by the id_sequences table.
+ * Each JVM reserves a block of numbers per prefix with one row update and
+ * then hands out ids from memory, so inserts no longer scan MAX(id) and two
+ * terminals can never receive the same id. Model ids are left null until
+ * their DAO's create method assigns one from here on first insert.
+ */
+public class IdAllocator {
+    public static final String MEDICINE = "MED";
+    public static final String SALE = "INV";
+    public static final String USER = "USR";
+    public static final String SUPPLIER = "SUP";
+    public static final String ALERT = "ALT";
+    
+    private static IdAllocator instance;
+    
+    private static final int BLOCK_SIZE = Integer.getInteger("id.blockSize", 50);
+    
+    // Reserves size numbers for a prefix and returns the exclusive upper bound
+    interface BlockReserver {
+        long reserve(String prefix, int size) throws SQLException;
+    }
+    
+    private final BlockReserver reserver;
+    private final int blockSize;
+    private final Map<String, Sequence> sequences = new ConcurrentHashMap<>();
+    
+    private IdAllocator() {
+        DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+        this.reserver = (prefix, size) -> reserveBlock(dbConnection, prefix, size);
+        this.blockSize = BLOCK_SIZE;
+    }
+    
+    IdAllocator(BlockReserver reserver, int blockSize) {
+        this.reserver = reserver;
+        this.blockSize = blockSize;
+    }
+    
+    public static synchronized IdAllocator getInstance() {
+        if (instance == null) {
+            instance = new IdAllocator();
+        }
+        return instance;
+    }
+    
+    // Next id for the prefix, e.g. "MED042"; only touches the database when a block runs out
+    public String nextId(String prefix) throws SQLException {
+        Sequence sequence = sequences.computeIfAbsent(prefix, p -> new Sequence());
+        while (true) {
+            Block block = sequence.block;
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.limit) {
+                    return format(prefix, value);
+                }
+            }
+            synchronized (sequence) {
+                // Another thread may have refilled while we waited
+                if (sequence.block == block) {
+                    long limit = reserver.reserve(prefix, blockSize);
+                    sequence.block = new Block(limit - blockSize, limit);
+                }
+            }
+        }
+    }
+    
+    // Atomically advance the sequence row by size and return the end of the reserved range
+    private static long reserveBlock(DatabaseConnection dbConnection, String prefix, int size) throws SQLException {
+        String updateSql = "UPDATE id_sequences SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?";
+        String insertSql = "INSERT IGNORE INTO id_sequences (name, next_value) VALUES (?, 1)";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        
+        try {
+            // Use a dedicated connection so the reservation never joins (or is rolled back with) a caller's transaction
+            conn = dbConnection.getDataSource().getConnection();
+            
+            pstmt = dbConnection.prepareStatement(conn, updateSql);
+            pstmt.setInt(1, size);
+            pstmt.setString(2, prefix);
+            if (pstmt.executeUpdate() == 0) {
+                pstmt.close();
+                pstmt = dbConnection.prepareStatement(conn, insertSql);
+                pstmt.setString(1, prefix);
+                pstmt.executeUpdate();
+                pstmt.close();
+                
+                pstmt = dbConnection.prepareStatement(conn, updateSql);
+                pstmt.setInt(1, size);
+                pstmt.setString(2, prefix);
+                pstmt.executeUpdate();
+            }
+            pstmt.close();
+            
+            pstmt = dbConnection.prepareStatement(conn, "SELECT LAST_INSERT_ID()");
+            rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                throw new SQLException("Could not reserve id block for " + prefix);
+            }
+            return rs.getLong(1);
+        } finally {
+            DatabaseConnection.closeResources(rs, pstmt, conn);
+        }
+    }
+    
+    static String format(String prefix, long value) {
+        return prefix + String.format("%03d", value);
+    }
+    
+    private static class Sequence {
+        volatile Block block;
+    }
+    
+    private static class Block {
+        final AtomicLong next;
+        final long limit;
+        
+        Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+}
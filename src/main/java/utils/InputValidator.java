@@ -0,0 +1,87 @@
+package utils;
+
+import java.util.regex.Pattern;
+
+/**
+ * Format checks for sign-up and user management input. Patterns are compiled
+ * once; password checks are a single pass over the characters rather than a
+ * regex per character class.
+ */
+public final class InputValidator {
+    public static final int USERNAME_MIN_LENGTH = 3;
+    public static final int USERNAME_MAX_LENGTH = 20;
+    public static final int PASSWORD_MIN_LENGTH = 6;
+    public static final int PASSWORD_MAX_LENGTH = 50;
+    
+    private static final Pattern USERNAME = Pattern.compile("^[a-zA-Z0-9_]+$");
+    private static final Pattern EMAIL = Pattern.compile("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$");
+    private static final String SPECIAL_CHARS = "!@#$%^&*()_+-=[]{};':\"\\|,.<>/?";
+    
+    // Character classes present in a password, from one scan
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+    public static final int DIGIT = 4;
+    public static final int SPECIAL = 8;
+    
+    private InputValidator() {
+    }
+    
+    public static boolean isUsernameFormat(String username) {
+        return username != null && USERNAME.matcher(username).matches();
+    }
+    
+    public static boolean isValidUsername(String username) {
+        if (username == null) {
+            return false;
+        }
+        String trimmed = username.trim();
+        return trimmed.length() >= USERNAME_MIN_LENGTH && trimmed.length() <= USERNAME_MAX_LENGTH
+            && isUsernameFormat(trimmed);
+    }
+    
+    public static boolean isValidEmail(String email) {
+        return email != null && EMAIL.matcher(email.trim()).matches();
+    }
+    
+    // Bitmask of LOWER / UPPER / DIGIT / SPECIAL found in the password
+    public static int characterClasses(String password) {
+        int classes = 0;
+        for (int i = 0; i < password.length(); i++) {
+            char c = password.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                classes |= LOWER;
+            } else if (c >= 'A' && c <= 'Z') {
+                classes |= UPPER;
+            } else if (c >= '0' && c <= '9') {
+                classes |= DIGIT;
+            } else if (SPECIAL_CHARS.indexOf(c) >= 0) {
+                classes |= SPECIAL;
+            }
+        }
+        return classes;
+    }
+    
+    // At least one letter and one digit
+    public static boolean hasLetterAndDigit(String password) {
+        int classes = characterClasses(password);
+        return (classes & (LOWER | UPPER)) != 0 && (classes & DIGIT) != 0;
+    }
+    
+    public static boolean isValidPassword(String password) {
+        return password != null
+            && password.length() >= PASSWORD_MIN_LENGTH && password.length() <= PASSWORD_MAX_LENGTH
+            && hasLetterAndDigit(password);
+    }
+    
+    // 0-6: one point each for length >= 8, length >= 12 and each character class present
+    public static int passwordScore(String password) {
+        if (password == null || password.isEmpty()) {
+            return 0;
+        }
+        int score = 0;
+        if (password.length() >= 8) score++;
+        if (password.length() >= 12) score++;
+        score += Integer.bitCount(characterClasses(password));
+        return score;
+    }
+}
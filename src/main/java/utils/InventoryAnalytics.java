@@ -0,0 +1,154 @@
+package utils;
+
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import models.InventoryReport;
+import models.InventorySnapshot;
+
+/**
+ * Computes every inventory report aggregate in a single parallel pass.
+ * The snapshot's rows are split in halves until chunks are small enough,
+ * each leaf fills its own accumulator with no shared state, and partial
+ * results are merged on the way back up.
+ */
+public class InventoryAnalytics {
+    // Rows below which a chunk is summed sequentially rather than split again
+    private static final int CHUNK_SIZE = Integer.getInteger("analytics.chunkSize", 16384);
+    private static final int EXPIRING_SOON_DAYS = 30;
+    // Upper bounds (inclusive, in days from today) of the dated histogram buckets after "Expired"
+    private static final int[] BUCKET_LIMITS = {30, 90, 180, 365};
+    
+    private final ForkJoinPool pool;
+    
+    public InventoryAnalytics() {
+        this(Integer.getInteger("analytics.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+    
+    public InventoryAnalytics(int parallelism) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+    }
+    
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+    
+    public InventoryReport analyze(InventorySnapshot snapshot, LocalDate today) {
+        Totals totals = pool.invoke(new ChunkTask(snapshot, (int) today.toEpochDay(), 0, snapshot.size()));
+        return new InventoryReport(totals.count, totals.valueCents, totals.lowStock, totals.outOfStock,
+            totals.expired, totals.expiringSoon, snapshot.getCategories(), totals.countByCategory,
+            totals.valueCentsByCategory, totals.expiryHistogram, today);
+    }
+    
+    public void shutdown() {
+        pool.shutdown();
+    }
+    
+    // Per-chunk accumulator
+    private static final class Totals {
+        int count;
+        long valueCents;
+        int lowStock;
+        int outOfStock;
+        int expired;
+        int expiringSoon;
+        final int[] countByCategory;
+        final long[] valueCentsByCategory;
+        final int[] expiryHistogram = new int[InventoryReport.EXPIRY_BUCKETS.length];
+        
+        Totals(int categories) {
+            countByCategory = new int[categories];
+            valueCentsByCategory = new long[categories];
+        }
+        
+        Totals merge(Totals other) {
+            count += other.count;
+            valueCents += other.valueCents;
+            lowStock += other.lowStock;
+            outOfStock += other.outOfStock;
+            expired += other.expired;
+            expiringSoon += other.expiringSoon;
+            for (int i = 0; i < countByCategory.length; i++) {
+                countByCategory[i] += other.countByCategory[i];
+                valueCentsByCategory[i] += other.valueCentsByCategory[i];
+            }
+            for (int i = 0; i < expiryHistogram.length; i++) {
+                expiryHistogram[i] += other.expiryHistogram[i];
+            }
+            return this;
+        }
+    }
+    
+    private static final class ChunkTask extends RecursiveTask<Totals> {
+        private final InventorySnapshot snapshot;
+        private final int today;
+        private final int from;
+        private final int to;
+        
+        ChunkTask(InventorySnapshot snapshot, int today, int from, int to) {
+            this.snapshot = snapshot;
+            this.today = today;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected Totals compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return sum();
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(snapshot, today, from, mid);
+            left.fork();
+            Totals right = new ChunkTask(snapshot, today, mid, to).compute();
+            return left.join().merge(right);
+        }
+        
+        // Scalar totals live in locals and the counts are branch-free, so the loop stays in registers
+        private Totals sum() {
+            Totals totals = new Totals(snapshot.getCategoryCount());
+            int[] countByCategory = totals.countByCategory;
+            long[] valueCentsByCategory = totals.valueCentsByCategory;
+            int[] histogram = totals.expiryHistogram;
+            int lastBucket = histogram.length - 1;
+            long valueCents = 0;
+            int lowStock = 0;
+            int outOfStock = 0;
+            int expired = 0;
+            int expiringSoon = 0;
+            for (int row = from; row < to; row++) {
+                int stock = snapshot.getStock(row);
+                long value = stock * snapshot.getPriceCents(row);
+                int category = snapshot.getCategoryCode(row);
+                
+                valueCents += value;
+                countByCategory[category]++;
+                valueCentsByCategory[category] += value;
+                lowStock += stock <= snapshot.getThreshold(row) ? 1 : 0;
+                outOfStock += stock == 0 ? 1 : 0;
+                
+                if (!snapshot.hasExpiry(row)) {
+                    histogram[lastBucket]++;
+                    continue;
+                }
+                int daysLeft = snapshot.getExpiryEpochDay(row) - today;
+                expired += daysLeft < 0 ? 1 : 0;
+                expiringSoon += daysLeft >= 0 && daysLeft <= EXPIRING_SOON_DAYS ? 1 : 0;
+                // Bucket 0 is expired; each limit passed moves one bucket up
+                int bucket = daysLeft < 0 ? 0 : 1;
+                for (int limit : BUCKET_LIMITS) {
+                    bucket += daysLeft > limit ? 1 : 0;
+                }
+                histogram[bucket]++;
+            }
+            totals.count = to - from;
+            totals.valueCents = valueCents;
+            totals.lowStock = lowStock;
+            totals.outOfStock = outOfStock;
+            totals.expired = expired;
+            totals.expiringSoon = expiringSoon;
+            return totals;
+        }
+    }
+}
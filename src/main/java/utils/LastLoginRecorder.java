@@ -0,0 +1,64 @@
+package utils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import dao.UserDAO;
+
+/**
+ * Write-behind queue for last_login. Logins are coalesced per user (latest
+ * wins) and written in one batched UPDATE every FLUSH_INTERVAL_MS, and once
+ * more from the shutdown hook before the pool closes. A failed flush puts
+ * its entries back so the next one retries them.
+ */
+public class LastLoginRecorder {
+    private static final long FLUSH_INTERVAL_MS = Long.getLong("login.flushIntervalMs", 5000L);
+    
+    private final UserDAO userDAO;
+    private final Map<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    
+    public LastLoginRecorder(UserDAO userDAO) {
+        this.userDAO = userDAO;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "last-login-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        DatabaseConnection.runBeforeClose(() -> {
+            flusher.shutdown();
+            flush();
+        });
+    }
+    
+    public void record(String userId, LocalDateTime loginTime) {
+        pending.merge(userId, loginTime, (a, b) -> a.isAfter(b) ? a : b);
+    }
+    
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    // Synchronized so the scheduled and shutdown flushes never interleave
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, LocalDateTime> batch = new HashMap<>();
+        for (String userId : pending.keySet()) {
+            LocalDateTime loginTime = pending.remove(userId);
+            if (loginTime != null) {
+                batch.put(userId, loginTime);
+            }
+        }
+        if (!userDAO.updateLastLogins(batch)) {
+            batch.forEach(this::record);
+        }
+    }
+}
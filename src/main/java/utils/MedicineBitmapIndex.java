@@ -0,0 +1,186 @@
+package utils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.Medicine;
+
+/**
+ * Bitmap index over an in-memory array of medicines: one bitset per category,
+ * per stock level and per expiry window. A filter ORs the bitsets selected
+ * within each dimension and ANDs the dimensions together, so combined filters
+ * cost a few word-wise operations rather than a scan per predicate.
+ * Expiry windows are relative to the day they were computed and are
+ * re-bucketed on the first query of a new day.
+ */
+public class MedicineBitmapIndex {
+    public static final int EXPIRING_SOON_DAYS = 30;
+    
+    // Disjoint, so OUT_OF_STOCK | LOW_STOCK is what Medicine.isLowStock() means
+    public enum StockLevel { OUT_OF_STOCK, LOW_STOCK, IN_STOCK }
+    
+    // EXPIRING_SOON covers today through EXPIRING_SOON_DAYS from today
+    public enum ExpiryWindow { EXPIRED, EXPIRING_SOON, OK }
+    
+    private final List<Medicine> medicines = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, BitSet> byCategory = new HashMap<>();
+    private final Map<StockLevel, BitSet> byStock = new EnumMap<>(StockLevel.class);
+    private final Map<ExpiryWindow, BitSet> byExpiry = new EnumMap<>(ExpiryWindow.class);
+    private LocalDate bucketedOn;
+    
+    public MedicineBitmapIndex() {
+        for (StockLevel level : StockLevel.values()) {
+            byStock.put(level, new BitSet());
+        }
+        for (ExpiryWindow window : ExpiryWindow.values()) {
+            byExpiry.put(window, new BitSet());
+        }
+    }
+    
+    public synchronized void rebuild(Iterable<Medicine> catalog) {
+        medicines.clear();
+        slotById.clear();
+        live.clear();
+        byCategory.clear();
+        byStock.values().forEach(BitSet::clear);
+        byExpiry.values().forEach(BitSet::clear);
+        bucketedOn = LocalDate.now();
+        for (Medicine medicine : catalog) {
+            putLocked(medicine);
+        }
+    }
+    
+    // Add a medicine or re-index one whose category, stock or expiry changed
+    public synchronized void put(Medicine medicine) {
+        if (medicine != null && medicine.getId() != null) {
+            putLocked(medicine);
+        }
+    }
+    
+    public synchronized void remove(String id) {
+        Integer slot = slotById.remove(id);
+        if (slot != null) {
+            clearSlot(slot);
+            medicines.set(slot, null);
+        }
+    }
+    
+    /**
+     * Medicines matching any of the given categories AND any of the given stock
+     * levels AND any of the given expiry windows. A null or empty collection
+     * leaves that dimension unfiltered. Results are copies, in catalog order.
+     */
+    public synchronized List<Medicine> filter(Collection<String> categories,
+                                              Collection<StockLevel> stockLevels,
+                                              Collection<ExpiryWindow> expiryWindows) {
+        BitSet result = matching(categories, stockLevels, expiryWindows);
+        List<Medicine> matches = new ArrayList<>(result.cardinality());
+        for (int slot = result.nextSetBit(0); slot >= 0; slot = result.nextSetBit(slot + 1)) {
+            matches.add(new Medicine(medicines.get(slot)));
+        }
+        return matches;
+    }
+    
+    public synchronized int count(Collection<String> categories,
+                                  Collection<StockLevel> stockLevels,
+                                  Collection<ExpiryWindow> expiryWindows) {
+        return matching(categories, stockLevels, expiryWindows).cardinality();
+    }
+    
+    private BitSet matching(Collection<String> categories,
+                            Collection<StockLevel> stockLevels,
+                            Collection<ExpiryWindow> expiryWindows) {
+        rebucketIfDayChanged();
+        BitSet result = (BitSet) live.clone();
+        if (categories != null && !categories.isEmpty()) {
+            BitSet any = new BitSet();
+            for (String category : categories) {
+                BitSet bits = byCategory.get(category);
+                if (bits != null) {
+                    any.or(bits);
+                }
+            }
+            result.and(any);
+        }
+        if (stockLevels != null && !stockLevels.isEmpty()) {
+            result.and(union(byStock, stockLevels));
+        }
+        if (expiryWindows != null && !expiryWindows.isEmpty()) {
+            result.and(union(byExpiry, expiryWindows));
+        }
+        return result;
+    }
+    
+    public static StockLevel stockLevelOf(Medicine medicine) {
+        if (medicine.getStock() == 0) {
+            return StockLevel.OUT_OF_STOCK;
+        }
+        return medicine.isLowStock() ? StockLevel.LOW_STOCK : StockLevel.IN_STOCK;
+    }
+    
+    private static ExpiryWindow expiryWindowOf(Medicine medicine, LocalDate today) {
+        LocalDate expiry = medicine.getExpiryDate();
+        if (expiry == null) {
+            return ExpiryWindow.OK;
+        }
+        if (expiry.isBefore(today)) {
+            return ExpiryWindow.EXPIRED;
+        }
+        return expiry.isAfter(today.plusDays(EXPIRING_SOON_DAYS)) ? ExpiryWindow.OK : ExpiryWindow.EXPIRING_SOON;
+    }
+    
+    private static <K> BitSet union(Map<K, BitSet> bitsets, Collection<K> keys) {
+        BitSet any = new BitSet();
+        for (K key : keys) {
+            any.or(bitsets.get(key));
+        }
+        return any;
+    }
+    
+    private void putLocked(Medicine medicine) {
+        Medicine copy = new Medicine(medicine);
+        Integer slot = slotById.get(copy.getId());
+        if (slot == null) {
+            slot = medicines.size();
+            medicines.add(copy);
+            slotById.put(copy.getId(), slot);
+        } else {
+            clearSlot(slot);
+            medicines.set(slot, copy);
+        }
+        if (bucketedOn == null) {
+            bucketedOn = LocalDate.now();
+        }
+        live.set(slot);
+        byCategory.computeIfAbsent(copy.getCategory(), k -> new BitSet()).set(slot);
+        byStock.get(stockLevelOf(copy)).set(slot);
+        byExpiry.get(expiryWindowOf(copy, bucketedOn)).set(slot);
+    }
+    
+    private void clearSlot(int slot) {
+        live.clear(slot);
+        byCategory.values().forEach(bits -> bits.clear(slot));
+        byStock.values().forEach(bits -> bits.clear(slot));
+        byExpiry.values().forEach(bits -> bits.clear(slot));
+    }
+    
+    private void rebucketIfDayChanged() {
+        LocalDate today = LocalDate.now();
+        if (today.equals(bucketedOn)) {
+            return;
+        }
+        byExpiry.values().forEach(BitSet::clear);
+        for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+            byExpiry.get(expiryWindowOf(medicines.get(slot), today)).set(slot);
+        }
+        bucketedOn = today;
+    }
+}
@@ -0,0 +1,166 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import models.Medicine;
+
+/**
+ * Bounded LRU cache of medicines keyed by id.
+ * Entries expire after a short time so stock edited on another terminal is
+ * picked up again; local writes invalidate their entry immediately.
+ * Callers always get a copy, never the cached instance.
+ *
+ * A row read from the database may be invalidated before it is put. Readers
+ * take a loadToken() before the query and pass it to put, which refuses the
+ * row if its id was invalidated since. Invalidation stamps are kept for the
+ * maxSize most recent ids; a load older than the oldest forgotten stamp is
+ * refused too, which only costs a cache miss.
+ */
+public class MedicineCache {
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<String, CacheEntry> entries;
+    // Guarded by entries: bumped by every invalidation, and the value each id was last invalidated at
+    private long invalidationClock;
+    private long forgottenInvalidations;
+    private final Map<String, Long> invalidatedAt;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    
+    public MedicineCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, CacheEntry>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > MedicineCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidatedAt = new LinkedHashMap<String, Long>(Math.min(maxSize, 1024)) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > MedicineCache.this.maxSize) {
+                    forgottenInvalidations = Math.max(forgottenInvalidations, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    // Returns a copy of the cached medicine, or null on a miss
+    public Medicine get(String id) {
+        if (id == null) {
+            return null;
+        }
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(id);
+            if (entry != null && entry.isExpired(ttlMillis)) {
+                entries.remove(id);
+                evictions.increment();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return new Medicine(entry.medicine);
+    }
+    
+    // Take before reading a medicine from the database, then pass to put(Medicine, long)
+    public long loadToken() {
+        synchronized (entries) {
+            return invalidationClock;
+        }
+    }
+    
+    /**
+     * Caches a medicine read from the database after loadToken was taken.
+     * Returns false, caching nothing, if its id was invalidated since.
+     */
+    public boolean put(Medicine medicine, long loadToken) {
+        if (medicine == null || medicine.getId() == null) {
+            return false;
+        }
+        CacheEntry entry = new CacheEntry(new Medicine(medicine));
+        synchronized (entries) {
+            Long invalidated = invalidatedAt.get(medicine.getId());
+            if (loadToken < forgottenInvalidations || (invalidated != null && invalidated > loadToken)) {
+                return false;
+            }
+            entries.put(medicine.getId(), entry);
+            return true;
+        }
+    }
+    
+    public void invalidate(String id) {
+        if (id == null) {
+            return;
+        }
+        synchronized (entries) {
+            invalidatedAt.remove(id); // re-insert so it counts as most recent
+            invalidatedAt.put(id, ++invalidationClock);
+            if (entries.remove(id) != null) {
+                invalidations.increment();
+            }
+        }
+    }
+    
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            invalidatedAt.clear();
+            forgottenInvalidations = ++invalidationClock;
+        }
+    }
+    
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+    
+    // Statistics
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    public long getInvalidations() { return invalidations.sum(); }
+    
+    public double getHitRate() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("MedicineCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, invalidations=%d, hitRate=%.1f%%]",
+            size(), maxSize, getHits(), getMisses(), getEvictions(), getInvalidations(), getHitRate() * 100);
+    }
+    
+    private static class CacheEntry {
+        final Medicine medicine;
+        final long loadedAt;
+        
+        CacheEntry(Medicine medicine) {
+            this.medicine = medicine;
+            this.loadedAt = System.currentTimeMillis();
+        }
+        
+        boolean isExpired(long ttlMillis) {
+            return ttlMillis > 0 && System.currentTimeMillis() - loadedAt > ttlMillis;
+        }
+    }
+}
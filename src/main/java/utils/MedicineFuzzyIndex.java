@@ -0,0 +1,291 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import models.Medicine;
+
+/**
+ * Typo-tolerant medicine lookup. Every lower-cased name and each word of it
+ * is kept in a BK-tree keyed by Levenshtein distance, so a query only visits
+ * the subtrees whose edge distance lies within maxDistance of its own
+ * distance to the parent (triangle inequality) instead of the whole catalog.
+ * There is one tree per term length: a term more than maxDistance characters
+ * longer or shorter than the query cannot match, so a one-word query never
+ * walks the trees of whole names.
+ */
+public class MedicineFuzzyIndex {
+    // Words shorter than this are not indexed on their own ("mg", "500")
+    private static final int MIN_WORD_LENGTH = 4;
+    
+    // Term length -> root of the BK-tree holding terms of that length
+    private final Map<Integer, Node> roots = new HashMap<>();
+    // id -> terms it was indexed under, so an edit or delete can detach it
+    private final Map<String, Set<String>> termsById = new HashMap<>();
+    private final Map<String, String> nameById = new HashMap<>();
+    
+    private static final class Node {
+        final char[] term;
+        final long signature;
+        final Set<String> ids;
+        // children[d] holds the subtree of terms at distance d from this one
+        Node[] children = new Node[0];
+        
+        Node(char[] term, Set<String> ids) {
+            this.term = term;
+            this.signature = signature(term);
+            this.ids = ids;
+        }
+        
+        Node(String term) {
+            this(term.toCharArray(), new LinkedHashSet<>());
+        }
+        
+        // Deep copy allocated in depth-first order, so a search walks memory mostly forwards
+        Node copy() {
+            Node copy = new Node(term.clone(), ids);
+            copy.children = new Node[children.length];
+            for (int d = 0; d < children.length; d++) {
+                if (children[d] != null) {
+                    copy.children[d] = children[d].copy();
+                }
+            }
+            return copy;
+        }
+        
+        Node child(int d) {
+            return d < children.length ? children[d] : null;
+        }
+        
+        void setChild(int d, Node child) {
+            if (d >= children.length) {
+                children = Arrays.copyOf(children, d + 1);
+            }
+            children[d] = child;
+        }
+    }
+    
+    /*
+     * Bit-parallel Levenshtein distance (Myers, in Hyyro's formulation) from
+     * one query to many terms: the query's columns are bit masks, so each
+     * character of a term costs a few word operations instead of a DP row.
+     * Queries longer than 64 characters fall back to distance().
+     */
+    private static final class Pattern {
+        private final String query;
+        private final long[] asciiMasks = new long[128];
+        private final Map<Character, Long> otherMasks = new HashMap<>();
+        private final long lastBit;
+        
+        Pattern(String query) {
+            this.query = query;
+            this.lastBit = query.isEmpty() ? 0 : 1L << (query.length() - 1);
+            for (int i = 0; i < query.length() && i < 64; i++) {
+                char c = query.charAt(i);
+                if (c < 128) {
+                    asciiMasks[c] |= 1L << i;
+                } else {
+                    otherMasks.merge(c, 1L << i, (a, b) -> a | b);
+                }
+            }
+        }
+        
+        int distanceTo(char[] term) {
+            int m = query.length();
+            if (m == 0 || m > 64) {
+                return distance(query, term);
+            }
+            long pv = m == 64 ? -1L : (1L << m) - 1;
+            long mv = 0;
+            int score = m;
+            for (char c : term) {
+                long eq = c < 128 ? asciiMasks[c] : otherMasks.getOrDefault(c, 0L);
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+                if ((ph & lastBit) != 0) {
+                    score++;
+                } else if ((mh & lastBit) != 0) {
+                    score--;
+                }
+                // Row 0 of the DP grows by one per column, so a 1 is shifted in
+                ph = (ph << 1) | 1;
+                mh <<= 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+            return score;
+        }
+    }
+    
+    public synchronized void rebuild(Iterable<Medicine> medicines) {
+        roots.clear();
+        termsById.clear();
+        nameById.clear();
+        for (Medicine medicine : medicines) {
+            addLocked(medicine);
+        }
+        roots.replaceAll((length, root) -> root.copy());
+    }
+    
+    public synchronized void put(Medicine medicine) {
+        if (medicine == null || medicine.getId() == null) {
+            return;
+        }
+        removeLocked(medicine.getId());
+        addLocked(medicine);
+    }
+    
+    public synchronized void remove(String id) {
+        removeLocked(id);
+    }
+    
+    /**
+     * Ids of medicines whose name, or a word in it, is within maxDistance edits
+     * of the term; closest first, ties ordered by name.
+     */
+    public synchronized List<String> search(String term, int maxDistance, int limit) {
+        String query = term == null ? "" : term.trim().toLowerCase();
+        Map<String, Integer> best = new HashMap<>();
+        List<Node> stack = new ArrayList<>();
+        int shortest = Math.max(1, query.length() - maxDistance);
+        int longest = query.isEmpty() ? 0 : query.length() + maxDistance;
+        for (int length = shortest; length <= longest; length++) {
+            Node root = roots.get(length);
+            if (root != null) {
+                stack.add(root);
+            }
+        }
+        Pattern pattern = new Pattern(query);
+        long querySignature = signature(query.toCharArray());
+        while (!stack.isEmpty()) {
+            Node node = stack.remove(stack.size() - 1);
+            // A leaf only matters if it matches, and each edit flips at most two signature bits
+            if (node.children.length == 0 && Long.bitCount(node.signature ^ querySignature) > 2 * maxDistance) {
+                continue;
+            }
+            int d = pattern.distanceTo(node.term);
+            if (d <= maxDistance) {
+                for (String id : node.ids) {
+                    best.merge(id, d, Math::min);
+                }
+            }
+            int last = Math.min(d + maxDistance, node.children.length - 1);
+            for (int i = Math.max(1, d - maxDistance); i <= last; i++) {
+                if (node.children[i] != null) {
+                    stack.add(node.children[i]);
+                }
+            }
+        }
+        
+        List<String> ids = new ArrayList<>(best.keySet());
+        ids.sort((a, b) -> {
+            int byDistance = Integer.compare(best.get(a), best.get(b));
+            return byDistance != 0 ? byDistance : nameById.get(a).compareToIgnoreCase(nameById.get(b));
+        });
+        return ids.size() > limit ? new ArrayList<>(ids.subList(0, limit)) : ids;
+    }
+    
+    private void addLocked(Medicine medicine) {
+        String name = medicine.getName() == null ? "" : medicine.getName().toLowerCase().trim();
+        Set<String> terms = new LinkedHashSet<>();
+        if (!name.isEmpty()) {
+            terms.add(name);
+        }
+        for (String word : name.split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_WORD_LENGTH) {
+                terms.add(word);
+            }
+        }
+        for (String term : terms) {
+            insert(term).ids.add(medicine.getId());
+        }
+        termsById.put(medicine.getId(), terms);
+        nameById.put(medicine.getId(), name);
+    }
+    
+    // Nodes are never unlinked, only emptied; a rebuild compacts the tree
+    private void removeLocked(String id) {
+        Set<String> terms = termsById.remove(id);
+        nameById.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Node node = find(term);
+            if (node != null) {
+                node.ids.remove(id);
+            }
+        }
+    }
+    
+    private Node insert(String term) {
+        Node node = roots.get(term.length());
+        if (node == null) {
+            node = new Node(term);
+            roots.put(term.length(), node);
+            return node;
+        }
+        while (true) {
+            int d = distance(term, node.term);
+            if (d == 0) {
+                return node;
+            }
+            Node child = node.child(d);
+            if (child == null) {
+                child = new Node(term);
+                node.setChild(d, child);
+                return child;
+            }
+            node = child;
+        }
+    }
+    
+    private Node find(String term) {
+        Node node = roots.get(term.length());
+        while (node != null) {
+            int d = distance(term, node.term);
+            if (d == 0) {
+                return node;
+            }
+            node = node.child(d);
+        }
+        return null;
+    }
+    
+    // Which characters (folded to 64 buckets) occur in the term
+    private static long signature(char[] term) {
+        long bits = 0;
+        for (char c : term) {
+            bits |= 1L << (c & 63);
+        }
+        return bits;
+    }
+    
+    // Levenshtein distance with two rolling rows
+    static int distance(String a, char[] b) {
+        int[] previous = new int[b.length + 1];
+        int[] current = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length; j++) {
+                int cost = ca == b[j - 1] ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length];
+    }
+}
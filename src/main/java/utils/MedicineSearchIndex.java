@@ -0,0 +1,330 @@
+package utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import models.Medicine;
+
+/**
+ * In-memory inverted trigram index over medicine name, id and category.
+ * Each trigram maps to the set of slots whose text contains it; a substring
+ * query intersects the postings of its trigrams and then verifies the few
+ * remaining candidates, so LIKE '%term%' never has to scan the table.
+ * Terms shorter than a trigram are matched against the stored text directly.
+ */
+public class MedicineSearchIndex {
+    private static final int GRAM = 3;
+    private static final int RANKS = 6;
+    // Queries matching more than 1/BROAD_QUERY_DIVISOR of the catalog are ordered by name position, not sorted
+    private static final int BROAD_QUERY_DIVISOR = 16;
+    
+    // Slot -> indexed document; freed slots are reused
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Position of every live slot when sorted by name, then id; null until the next search after a rename or insert
+    private volatile NameOrder nameOrder;
+    
+    private volatile long builtAt;
+    
+    private static final class NameOrder {
+        final int[] positionBySlot;
+        final String[] idByPosition;
+        
+        NameOrder(int slots, int live) {
+            this.positionBySlot = new int[slots];
+            this.idByPosition = new String[live];
+        }
+    }
+    
+    private static final class Doc {
+        final String id;
+        final String name;     // lower case
+        final String idKey;    // lower case
+        final String category; // lower case
+        
+        Doc(Medicine medicine) {
+            this.id = medicine.getId();
+            this.name = lower(medicine.getName());
+            this.idKey = lower(medicine.getId());
+            this.category = lower(medicine.getCategory());
+        }
+    }
+    
+    // Replace the whole index, e.g. from a streamed read of the catalog
+    public void rebuild(Iterable<Medicine> medicines) {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            slotById.clear();
+            freeSlots.clear();
+            postings.clear();
+            nameOrder = null;
+            for (Medicine medicine : medicines) {
+                addLocked(medicine);
+            }
+            builtAt = System.currentTimeMillis();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    // Index a new medicine or re-index an edited one
+    public void put(Medicine medicine) {
+        if (medicine == null || medicine.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(medicine.getId());
+            Doc previous = slot == null ? null : docs.get(slot);
+            removeLocked(medicine.getId());
+            addLocked(medicine); // reuses the slot just freed
+            if (previous == null || !previous.name.equals(lower(medicine.getName()))) {
+                nameOrder = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(String id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public boolean isBuilt() {
+        return builtAt != 0;
+    }
+    
+    public long getBuiltAt() {
+        return builtAt;
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // All matches; an empty term matches every medicine
+    public List<String> search(String term) {
+        return search(term, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Ids of medicines whose name, id or category contains the term (ignoring
+     * case), best match first: exact id, name prefix, name word prefix, name
+     * substring, then id or category substring; ties ordered by name.
+     * At most limit ids are returned.
+     */
+    public List<String> search(String term, int limit) {
+        String query = lower(term).trim();
+        List<Match> matches = new ArrayList<>();
+        
+        lock.readLock().lock();
+        try {
+            if (query.length() < GRAM) {
+                return inNameOrder(query, null, limit);
+            }
+            BitSet candidates = candidates(query);
+            if (candidates.cardinality() > slotById.size() / BROAD_QUERY_DIVISOR) {
+                return inNameOrder(query, candidates, limit);
+            }
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                // Trigrams can all be present without the whole term being; verify
+                addIfMatches(matches, docs.get(slot), query);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        // Ranked once per match, not per comparison
+        matches.sort(null);
+        List<String> ids = new ArrayList<>(Math.min(matches.size(), Math.max(limit, 0)));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            ids.add(matches.get(i).doc.id);
+        }
+        return ids;
+    }
+    
+    /**
+     * Broad queries: scan the slots in storage order (sequential memory) and
+     * mark each match's name position in a bitset per rank; reading the
+     * bitsets back yields rank, then name order, without sorting.
+     */
+    private List<String> inNameOrder(String query, BitSet candidates, int limit) {
+        NameOrder order = nameOrder();
+        BitSet[] byRank = new BitSet[RANKS];
+        for (int i = 0; i < RANKS; i++) {
+            byRank[i] = new BitSet(order.idByPosition.length);
+        }
+        for (int slot = 0; slot < docs.size(); slot++) {
+            Doc doc = docs.get(slot);
+            if (doc == null || (candidates != null && !candidates.get(slot))) {
+                continue;
+            }
+            int rank = rank(doc, query);
+            if (rank < RANKS) {
+                byRank[rank].set(order.positionBySlot[slot]);
+            }
+        }
+        List<String> ids = new ArrayList<>();
+        for (BitSet positions : byRank) {
+            for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+                if (ids.size() >= limit) {
+                    return ids;
+                }
+                ids.add(order.idByPosition[position]);
+            }
+        }
+        return ids;
+    }
+    
+    // Called under the read lock; concurrent readers may each compute the same order
+    private NameOrder nameOrder() {
+        NameOrder order = nameOrder;
+        if (order == null) {
+            List<Doc> live = new ArrayList<>(slotById.size());
+            for (int slot : slotById.values()) {
+                live.add(docs.get(slot));
+            }
+            live.sort(Comparator.<Doc, String>comparing(doc -> doc.name).thenComparing(doc -> doc.id));
+            order = new NameOrder(docs.size(), live.size());
+            for (int position = 0; position < live.size(); position++) {
+                String id = live.get(position).id;
+                order.positionBySlot[slotById.get(id)] = position;
+                order.idByPosition[position] = id;
+            }
+            nameOrder = order;
+        }
+        return order;
+    }
+    
+    private static void addIfMatches(List<Match> matches, Doc doc, String query) {
+        int rank = rank(doc, query);
+        if (rank < Integer.MAX_VALUE) {
+            matches.add(new Match(doc, rank));
+        }
+    }
+    
+    private static final class Match implements Comparable<Match> {
+        final Doc doc;
+        final int rank;
+        
+        Match(Doc doc, int rank) {
+            this.doc = doc;
+            this.rank = rank;
+        }
+        
+        // Rank, then name ignoring case, then id
+        @Override
+        public int compareTo(Match other) {
+            if (rank != other.rank) {
+                return Integer.compare(rank, other.rank);
+            }
+            int byName = doc.name.compareTo(other.doc.name);
+            return byName != 0 ? byName : doc.id.compareTo(other.doc.id);
+        }
+    }
+    
+    // Intersect the postings of every trigram in the query, rarest first
+    private BitSet candidates(String query) {
+        List<BitSet> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= query.length(); i++) {
+            BitSet posting = postings.get(query.substring(i, i + GRAM));
+            if (posting == null) {
+                return new BitSet();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(BitSet::cardinality));
+        BitSet result = (BitSet) lists.get(0).clone();
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.and(lists.get(i));
+        }
+        return result;
+    }
+    
+    private static int rank(Doc doc, String query) {
+        if (doc.idKey.equals(query)) {
+            return 0;
+        }
+        if (doc.name.startsWith(query)) {
+            return 1;
+        }
+        int at = doc.name.indexOf(query);
+        if (at > 0) {
+            return Character.isLetterOrDigit(doc.name.charAt(at - 1)) ? 3 : 2;
+        }
+        if (doc.idKey.contains(query)) {
+            return 4;
+        }
+        if (doc.category.contains(query)) {
+            return 5;
+        }
+        return Integer.MAX_VALUE;
+    }
+    
+    private void addLocked(Medicine medicine) {
+        Doc doc = new Doc(medicine);
+        Integer free = freeSlots.poll();
+        int slot;
+        if (free != null) {
+            slot = free;
+            docs.set(slot, doc);
+        } else {
+            slot = docs.size();
+            docs.add(doc);
+        }
+        slotById.put(doc.id, slot);
+        for (String text : new String[] {doc.name, doc.idKey, doc.category}) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                postings.computeIfAbsent(text.substring(i, i + GRAM), k -> new BitSet()).set(slot);
+            }
+        }
+    }
+    
+    private void removeLocked(String id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        Doc doc = docs.get(slot);
+        for (String text : new String[] {doc.name, doc.idKey, doc.category}) {
+            for (int i = 0; i + GRAM <= text.length(); i++) {
+                String gram = text.substring(i, i + GRAM);
+                BitSet posting = postings.get(gram);
+                if (posting != null) {
+                    posting.clear(slot);
+                    if (posting.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        }
+        docs.set(slot, null);
+        freeSlots.push(slot);
+    }
+    
+    private static String lower(String value) {
+        return value == null ? "" : value.toLowerCase();
+    }
+}
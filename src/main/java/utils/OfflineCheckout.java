@@ -0,0 +1,217 @@
+package utils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import dao.MedicineDAO;
+import dao.SaleDAO;
+import models.Sale;
+
+/**
+ * Keeps checkout going while MySQL is unreachable. Once a commit fails for
+ * lack of a connection, new sales go straight to the local SalesJournal
+ * (no pool timeout per sale) until the database answers again. A background
+ * thread replays journaled sales oldest first, REPLAY_BATCH_SIZE per
+ * transaction. Each replay claims the sale's entry id in sale_journal_entries
+ * in the same transaction, so a sale is recorded once even if its ack was
+ * lost. A sale MySQL refuses (e.g. stock sold out meanwhile) is moved to the
+ * rejected journal for review instead of blocking the rest.
+ */
+public class OfflineCheckout {
+    private static final String JOURNAL_PATH = System.getProperty("journal.path", "data/sales.journal");
+    private static final long REPLAY_INTERVAL_MS = Long.getLong("journal.replayIntervalMs", 5000L);
+    private static final int REPLAY_BATCH_SIZE = Integer.getInteger("journal.replayBatchSize", 50);
+    
+    private final SaleDAO saleDAO;
+    private final MedicineDAO medicineDAO;
+    private final DatabaseConnection dbConnection;
+    private final Consumer<Sale> onReplayed;
+    private SalesJournal journal;
+    private SalesJournal rejected;
+    private ScheduledExecutorService replayer;
+    private volatile boolean offline;
+    
+    public OfflineCheckout(SaleDAO saleDAO, MedicineDAO medicineDAO, Consumer<Sale> onReplayed) {
+        this.saleDAO = saleDAO;
+        this.medicineDAO = medicineDAO;
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.onReplayed = onReplayed;
+        try {
+            Path path = Paths.get(JOURNAL_PATH);
+            journal = new SalesJournal(path);
+            rejected = new SalesJournal(path.resolveSibling(path.getFileName() + ".rejected"));
+        } catch (Exception e) {
+            System.err.println("Offline checkout unavailable, cannot open sales journal: " + e.getMessage());
+            journal = null;
+            return;
+        }
+        if (journal.getPendingCount() > 0) {
+            System.out.println("Sales journal holds " + journal.getPendingCount() + " sales awaiting upload");
+        }
+        replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sales-journal-replay");
+            t.setDaemon(true);
+            return t;
+        });
+        replayer.scheduleWithFixedDelay(this::replay, REPLAY_INTERVAL_MS, REPLAY_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        DatabaseConnection.runBeforeClose(() -> {
+            replayer.shutdownNow();
+            journal.close();
+            rejected.close();
+        });
+    }
+    
+    public boolean isAvailable() {
+        return journal != null;
+    }
+    
+    public boolean isOffline() {
+        return offline && journal != null;
+    }
+    
+    public void goOffline() {
+        if (journal != null && !offline) {
+            offline = true;
+            System.err.println("Database unreachable; recording sales in " + journal.getPath());
+        }
+    }
+    
+    /**
+     * Journals a completed sale; it gets its invoice id when replayed.
+     * Returns false if the journal could not be written.
+     */
+    public boolean record(Sale sale) {
+        return record(sale, SalesJournal.newEntryId());
+    }
+    
+    /**
+     * Journals a sale whose online commit failed part way. The entry id it
+     * claimed in that transaction makes the replay a no-op if the commit
+     * did reach MySQL.
+     */
+    public boolean record(Sale sale, String entryId) {
+        if (journal == null) {
+            return false;
+        }
+        sale.setId(null);
+        return journal.append(sale, entryId) != null;
+    }
+    
+    public int getPendingCount() {
+        return journal == null ? 0 : journal.getPendingCount();
+    }
+    
+    public int getRejectedCount() {
+        return rejected == null ? 0 : rejected.getPendingCount();
+    }
+    
+    // Upload journaled sales while the database answers; back online once the journal is empty
+    private void replay() {
+        try {
+            if (journal.getPendingCount() == 0) {
+                if (offline && dbConnection.isDatabaseAccessible()) {
+                    offline = false;
+                    System.out.println("Database reachable again; sales are committed directly");
+                }
+                return;
+            }
+            List<SalesJournal.Entry> batch;
+            while (!(batch = journal.getPending(REPLAY_BATCH_SIZE)).isEmpty()) {
+                if (!replayBatch(batch)) {
+                    return; // database gone again; retry next interval
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Sales journal replay failed: " + e.getMessage());
+        }
+    }
+    
+    // Returns false if the database could not be reached
+    private boolean replayBatch(List<SalesJournal.Entry> batch) {
+        List<Sale> applied = new ArrayList<>();
+        Boolean result = applyInTransaction(batch, applied);
+        if (result == null) {
+            return false;
+        }
+        if (result) {
+            finish(batch, applied);
+            return true;
+        }
+        
+        // Something in the batch was refused: replay one by one to set it aside
+        for (SalesJournal.Entry entry : batch) {
+            List<Sale> single = new ArrayList<>();
+            Boolean singleResult = applyInTransaction(Collections.singletonList(entry), single);
+            if (singleResult == null) {
+                return false;
+            }
+            if (!singleResult) {
+                System.err.println("Journaled sale " + entry.getEntryId() + " was refused by the database; moved to "
+                                   + rejected.getPath());
+                if (rejected.append(entry.getSale()) == null) {
+                    return false;
+                }
+            }
+            finish(Collections.singletonList(entry), single);
+        }
+        return true;
+    }
+    
+    private void finish(List<SalesJournal.Entry> entries, List<Sale> applied) {
+        List<String> entryIds = new ArrayList<>(entries.size());
+        entries.forEach(entry -> entryIds.add(entry.getEntryId()));
+        journal.acknowledge(entryIds);
+        applied.forEach(onReplayed);
+    }
+    
+    /**
+     * Commits the entries in one transaction, adding newly recorded sales to
+     * applied. True if committed, false if MySQL refused one of them, null
+     * if the database could not be reached.
+     */
+    private Boolean applyInTransaction(List<SalesJournal.Entry> entries, List<Sale> applied) {
+        try {
+            dbConnection.beginTransaction();
+            try {
+                for (SalesJournal.Entry entry : entries) {
+                    if (!saleDAO.claimJournalEntry(entry.getEntryId())) {
+                        continue; // already recorded: an earlier replay whose ack was lost, or a commit that did land
+                    }
+                    Sale sale = entry.getSale();
+                    Map<String, Integer> quantities = new HashMap<>();
+                    for (Sale.SaleItem item : sale.getItems()) {
+                        quantities.merge(item.getMedicineId(), item.getQuantity(), Integer::sum);
+                    }
+                    if (!medicineDAO.reduceStock(quantities) || !saleDAO.createSale(sale)) {
+                        dbConnection.rollbackTransaction();
+                        applied.clear();
+                        return Boolean.FALSE;
+                    }
+                    applied.add(sale);
+                }
+                dbConnection.commitTransaction();
+                return Boolean.TRUE;
+            } catch (SQLException e) {
+                dbConnection.rollbackTransaction();
+                throw e;
+            }
+        } catch (SQLException e) {
+            applied.clear();
+            if (DatabaseConnection.isConnectionFailure(e)) {
+                return null;
+            }
+            System.err.println("Error replaying journaled sales: " + e.getMessage());
+            return Boolean.FALSE;
+        }
+    }
+}
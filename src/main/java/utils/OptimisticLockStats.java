@@ -0,0 +1,52 @@
+package utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for version-checked medicine updates: how often a write found the
+ * row changed underneath it, how often that was resolved by replaying a
+ * stock delta on the newer row, and how often it had to be given up.
+ */
+public class OptimisticLockStats {
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder merges = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    
+    public void recordUpdate() { updates.increment(); }
+    public void recordConflict() { conflicts.increment(); }
+    public void recordRetry() { retries.increment(); }
+    public void recordMerge() { merges.increment(); }
+    public void recordRejected() { rejected.increment(); }
+    
+    // Successful updates, including merged ones
+    public long getUpdates() { return updates.sum(); }
+    // Compare-and-set attempts that matched no row version
+    public long getConflicts() { return conflicts.sum(); }
+    public long getRetries() { return retries.sum(); }
+    public long getMerges() { return merges.sum(); }
+    // Updates abandoned: a field other than stock changed concurrently, the row is gone, or retries ran out
+    public long getRejected() { return rejected.sum(); }
+    
+    // Share of updates that hit at least one conflict
+    public double getContentionRate() {
+        long total = getUpdates() + getRejected();
+        return total == 0 ? 0.0 : (double) Math.min(getConflicts(), total) / total;
+    }
+    
+    public void reset() {
+        updates.reset();
+        conflicts.reset();
+        retries.reset();
+        merges.reset();
+        rejected.reset();
+    }
+    
+    public void printStats() {
+        System.out.println("=== Medicine Optimistic Locking ===");
+        System.out.println(String.format("%d updates, %d conflicts, %d retries, %d merged, %d rejected (%.1f%% contended)",
+            getUpdates(), getConflicts(), getRetries(), getMerges(), getRejected(), getContentionRate() * 100));
+        System.out.println("===================================");
+    }
+}
@@ -1,23 +1,126 @@
 package utils;
 
+import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
 /**
- * Simple password hashing utility for demo purposes
- * In production, use bcrypt or similar secure hashing algorithms
+ * Password hashing with PBKDF2-HMAC-SHA256, a random salt per password and a
+ * tunable iteration count. Hashes are stored self-describing as
+ *   pbkdf2-sha256$iterations$salt$hash   (salt and hash in Base64)
+ * so the cost can be raised later without invalidating existing passwords.
+ * Hashes from the old single-salt SHA-256 scheme still verify, and
+ * needsRehash() tells the caller to replace them after a successful login.
  */
 public class PasswordHasher {
     
-    private static final String ALGORITHM = "SHA-256";
-    private static final String SALT = "PharmacyMgmtSalt2024"; // In production, use random salt per password
+    private static final String SCHEME = "pbkdf2-sha256";
+    private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    // Tune per terminal with calibrateIterations(); override with -Dpassword.pbkdf2.iterations=...
+    private static final int ITERATIONS = Integer.getInteger("password.pbkdf2.iterations", 210000);
+    
+    // Legacy scheme: one SHA-256 pass with a global salt
+    private static final String LEGACY_ALGORITHM = "SHA-256";
+    private static final String LEGACY_SALT = "PharmacyMgmtSalt2024";
+    
+    private static final SecureRandom RANDOM = new SecureRandom();
     
     public static String hashPassword(String password) {
+        return hashPassword(password, ITERATIONS);
+    }
+    
+    public static String hashPassword(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        byte[] hash = pbkdf2(password, salt, iterations);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return SCHEME + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(hash);
+    }
+    
+    public static boolean verifyPassword(String password, String hashedPassword) {
+        if (password == null || hashedPassword == null) {
+            return false;
+        }
+        if (!hashedPassword.startsWith(SCHEME + "$")) {
+            byte[] expected = hashedPassword.getBytes(StandardCharsets.UTF_8);
+            return MessageDigest.isEqual(legacyHash(password).getBytes(StandardCharsets.UTF_8), expected);
+        }
+        
+        String[] parts = hashedPassword.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
         try {
-            MessageDigest md = MessageDigest.getInstance(ALGORITHM);
-            md.update(SALT.getBytes());
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(pbkdf2(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false; // malformed stored hash
+        }
+    }
+    
+    // True for legacy hashes and for PBKDF2 hashes below the current cost
+    public static boolean needsRehash(String hashedPassword) {
+        if (hashedPassword == null || !hashedPassword.startsWith(SCHEME + "$")) {
+            return true;
+        }
+        String[] parts = hashedPassword.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+    
+    /**
+     * Largest iteration count (rounded down to a multiple of 10,000) whose hash
+     * takes no more than targetMillis on this machine, measured after a warm-up.
+     */
+    public static int calibrateIterations(long targetMillis) {
+        String sample = "calibration-Pa55word";
+        byte[] salt = new byte[SALT_BYTES];
+        int probe = 10000;
+        pbkdf2(sample, salt, probe); // warm-up
+        
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            pbkdf2(sample, salt, probe);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        double nanosPerIteration = (double) best / probe;
+        int iterations = (int) (targetMillis * 1_000_000L / nanosPerIteration);
+        return Math.max(probe, iterations / 10000 * 10000);
+    }
+    
+    public static int getIterations() {
+        return ITERATIONS;
+    }
+    
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(KDF_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            throw new RuntimeException("Error hashing password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    
+    private static String legacyHash(String password) {
+        try {
+            MessageDigest md = MessageDigest.getInstance(LEGACY_ALGORITHM);
+            md.update(LEGACY_SALT.getBytes());
             byte[] hashedPassword = md.digest(password.getBytes());
             return Base64.getEncoder().encodeToString(hashedPassword);
         } catch (NoSuchAlgorithmException e) {
@@ -25,20 +128,24 @@ public class PasswordHasher {
         }
     }
     
-    public static boolean verifyPassword(String password, String hashedPassword) {
-        String hashOfInput = hashPassword(password);
-        return hashOfInput.equals(hashedPassword);
-    }
-    
     public static String generateRandomPassword(int length) {
         String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-        SecureRandom random = new SecureRandom();
         StringBuilder password = new StringBuilder();
         
         for (int i = 0; i < length; i++) {
-            password.append(chars.charAt(random.nextInt(chars.length())));
+            password.append(chars.charAt(RANDOM.nextInt(chars.length())));
         }
         
         return password.toString();
     }
+    
+    // Prints the iteration count to configure for a target latency, e.g. "java utils.PasswordHasher 250"
+    public static void main(String[] args) {
+        long targetMillis = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        int iterations = calibrateIterations(targetMillis);
+        long start = System.nanoTime();
+        verifyPassword("calibration-Pa55word", hashPassword("calibration-Pa55word", iterations));
+        System.out.println("Target " + targetMillis + " ms: -Dpassword.pbkdf2.iterations=" + iterations +
+                           " (measured " + (System.nanoTime() - start) / 2_000_000 + " ms per hash)");
+    }
 }
@@ -0,0 +1,399 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+import models.Sale;
+
+/**
+ * Append-only file of completed sales that could not be written to MySQL.
+ * Each record is [length][CRC32][payload]; a sale record carries a random
+ * entry id and the whole sale, an ack record the id of a sale that has been
+ * replayed. On open the file is scanned, a torn or corrupt tail (a crash
+ * mid-write) is cut off, and the sales without an ack become pending.
+ *
+ * All writes go through one thread that drains every queued record, writes
+ * them, and forces the file once, so concurrent checkouts share an fsync.
+ * Callers return only after their record is on disk. The file is truncated
+ * once nothing is pending. close() queues a marker rather than interrupting
+ * the writer (an interrupt would close the channel mid-record); writes queued
+ * ahead of it still land, and any submitted after it fail.
+ */
+public class SalesJournal {
+    private static final byte SALE = 1;
+    private static final byte ACK = 2;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int MAX_SYNC_BATCH = 256;
+    
+    // A journaled sale and the id that makes its replay idempotent
+    public static final class Entry {
+        private final String entryId;
+        private final Sale sale;
+        
+        Entry(String entryId, Sale sale) {
+            this.entryId = entryId;
+            this.sale = sale;
+        }
+        
+        public String getEntryId() { return entryId; }
+        public Sale getSale() { return sale; }
+    }
+    
+    private static final class Write {
+        final byte[] record;
+        final Runnable onDurable;
+        final CompletableFuture<Boolean> done = new CompletableFuture<>();
+        
+        Write(byte[] record, Runnable onDurable) {
+            this.record = record;
+            this.onDurable = onDurable;
+        }
+    }
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final Map<String, Entry> pending = new LinkedHashMap<>(); // guarded by itself, in append order
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    // Queued by close(); the writer stops when it reaches it
+    private final Write closeMarker = new Write(new byte[0], () -> {});
+    private final Thread writer;
+    private boolean closed; // guarded by queue, so nothing is queued behind closeMarker
+    
+    public SalesJournal(Path path) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+        this.writer = new Thread(this::writeLoop, "sales-journal-sync");
+        writer.setDaemon(true);
+        writer.start();
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    public static String newEntryId() {
+        return UUID.randomUUID().toString();
+    }
+    
+    /**
+     * Appends a sale and waits until it is durable. Returns its entry id, or
+     * null if it could not be written.
+     */
+    public String append(Sale sale) {
+        return append(sale, newEntryId());
+    }
+    
+    // Appends under an entry id the sale may already have claimed in MySQL
+    public String append(Sale sale, String entryId) {
+        Entry entry = new Entry(entryId, sale);
+        byte[] record;
+        try {
+            record = encodeSale(entry);
+        } catch (IOException e) {
+            System.err.println("Error encoding journaled sale: " + e.getMessage());
+            return null;
+        }
+        return submit(record, () -> {
+            synchronized (pending) {
+                pending.put(entryId, entry);
+            }
+        }) ? entryId : null;
+    }
+    
+    // Marks replayed sales as done, durably
+    public boolean acknowledge(Collection<String> entryIds) {
+        if (entryIds.isEmpty()) {
+            return true;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            for (String entryId : entryIds) {
+                bytes.write(encodeAck(entryId));
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return submit(bytes.toByteArray(), () -> {
+            synchronized (pending) {
+                entryIds.forEach(pending::remove);
+            }
+        });
+    }
+    
+    // Oldest pending sales first
+    public List<Entry> getPending(int max) {
+        synchronized (pending) {
+            List<Entry> entries = new ArrayList<>(Math.min(max, pending.size()));
+            for (Entry entry : pending.values()) {
+                if (entries.size() == max) {
+                    break;
+                }
+                entries.add(entry);
+            }
+            return entries;
+        }
+    }
+    
+    public int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+    
+    // Waits up to 2 s for queued writes; the writer closes the file once they are done
+    public void close() {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(closeMarker);
+        }
+        try {
+            writer.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private boolean submit(byte[] record, Runnable onDurable) {
+        Write write = new Write(record, onDurable);
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            queue.add(write);
+        }
+        try {
+            return write.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+    
+    // Group commit: one write and one force per batch of queued records
+    private void writeLoop() {
+        List<Write> batch = new ArrayList<>();
+        boolean closing = false;
+        while (!closing) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue; // only close() stops the loop
+            }
+            queue.drainTo(batch, MAX_SYNC_BATCH - batch.size());
+            // Nothing is queued after the marker, so it can only be last
+            closing = batch.remove(closeMarker);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            boolean durable;
+            long start = -1;
+            try {
+                start = channel.size();
+                for (Write write : batch) {
+                    ByteBuffer buffer = ByteBuffer.wrap(write.record);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer, channel.size());
+                    }
+                }
+                channel.force(false);
+                durable = true;
+            } catch (IOException e) {
+                System.err.println("Error writing sales journal: " + e.getMessage());
+                durable = false;
+                // Cut off a partial batch so later records are not stranded behind it
+                try {
+                    if (start >= 0) {
+                        channel.truncate(start);
+                    }
+                } catch (IOException ex) {
+                    System.err.println("Error truncating sales journal: " + ex.getMessage());
+                }
+            }
+            for (Write write : batch) {
+                if (durable) {
+                    write.onDurable.run();
+                }
+                write.done.complete(durable);
+            }
+            batch.clear();
+            if (durable && !closing) {
+                compactIfEmpty();
+            }
+        }
+        // Nothing should be queued behind the marker; fail anything that is rather than leave its caller waiting
+        for (Write write; (write = queue.poll()) != null; ) {
+            write.done.complete(false);
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing sales journal: " + e.getMessage());
+        }
+    }
+    
+    private void compactIfEmpty() {
+        synchronized (pending) {
+            if (!pending.isEmpty() || !queue.isEmpty()) {
+                return;
+            }
+            try {
+                channel.truncate(0);
+                channel.force(true);
+            } catch (IOException e) {
+                System.err.println("Error compacting sales journal: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Rebuilds the pending set and cuts off anything after the last intact record
+    private void recover() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(8);
+        while (position + 8 <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || position + 8 + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + 8);
+            if (crc(payload.array()) != checksum) {
+                break;
+            }
+            apply(payload.array());
+            position += 8 + length;
+        }
+        if (position < size) {
+            System.err.println("Sales journal " + path + ": discarding " + (size - position) + " bytes of torn or corrupt tail");
+            channel.truncate(position);
+            channel.force(true);
+        }
+    }
+    
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of sales journal");
+            }
+        }
+    }
+    
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String entryId = in.readUTF();
+        synchronized (pending) {
+            if (type == SALE) {
+                pending.put(entryId, new Entry(entryId, decodeSale(in)));
+            } else if (type == ACK) {
+                pending.remove(entryId);
+            }
+        }
+    }
+    
+    private static byte[] encodeSale(Entry entry) throws IOException {
+        Sale sale = entry.getSale();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(SALE);
+        out.writeUTF(entry.getEntryId());
+        writeNullable(out, sale.getCustomerId());
+        writeNullable(out, sale.getCustomerName());
+        out.writeUTF(sale.getSaleDate().toString());
+        out.writeDouble(sale.getDiscount());
+        writeNullable(out, sale.getCashierId());
+        out.writeInt(sale.getItems().size());
+        for (Sale.SaleItem item : sale.getItems()) {
+            out.writeUTF(item.getMedicineId());
+            writeNullable(out, item.getMedicineName());
+            out.writeDouble(item.getPrice());
+            out.writeInt(item.getQuantity());
+        }
+        return frame(bytes.toByteArray());
+    }
+    
+    private static Sale decodeSale(DataInputStream in) throws IOException {
+        Sale sale = new Sale();
+        sale.setCustomerId(readNullable(in));
+        sale.setCustomerName(readNullable(in));
+        sale.setSaleDate(LocalDateTime.parse(in.readUTF()));
+        sale.setDiscount(in.readDouble());
+        sale.setCashierId(readNullable(in));
+        int itemCount = in.readInt();
+        for (int i = 0; i < itemCount; i++) {
+            String medicineId = in.readUTF();
+            String medicineName = readNullable(in);
+            double price = in.readDouble();
+            int quantity = in.readInt();
+            sale.getItems().add(new Sale.SaleItem(medicineId, medicineName, price, quantity));
+        }
+        sale.completeSale();
+        return sale;
+    }
+    
+    private static byte[] encodeAck(String entryId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(ACK);
+        out.writeUTF(entryId);
+        return frame(bytes.toByteArray());
+    }
+    
+    private static byte[] frame(byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length);
+        record.putInt(crc(payload));
+        record.put(payload);
+        return record.array();
+    }
+    
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+    
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+    
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
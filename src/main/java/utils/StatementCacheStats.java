@@ -0,0 +1,114 @@
+package utils;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit/miss counters for the MySQL driver's per-connection prepared statement cache.
+ * Mirrors the driver's LRU (same size) for each physical connection so a prepare
+ * of SQL the connection already holds counts as a hit.
+ */
+public class StatementCacheStats {
+    private final int cacheSize;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<Connection, Map<String, Boolean>> cachedSqlByConnection =
+        Collections.synchronizedMap(new WeakHashMap<>());
+    
+    public StatementCacheStats(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+    
+    // Record a prepareStatement() call on the given physical connection
+    public void recordPrepare(Connection physicalConnection, String sql) {
+        Map<String, Boolean> cachedSql = cachedSqlByConnection.computeIfAbsent(physicalConnection,
+            c -> new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+        
+        boolean hit;
+        synchronized (cachedSql) {
+            hit = cachedSql.put(sql, Boolean.TRUE) != null;
+        }
+        
+        Counter counter = counters.computeIfAbsent(sql, k -> new Counter());
+        if (hit) {
+            counter.hits.increment();
+        } else {
+            counter.misses.increment();
+        }
+    }
+    
+    public long getTotalHits() {
+        return counters.values().stream().mapToLong(c -> c.hits.sum()).sum();
+    }
+    
+    public long getTotalMisses() {
+        return counters.values().stream().mapToLong(c -> c.misses.sum()).sum();
+    }
+    
+    public double getHitRate() {
+        long hits = getTotalHits();
+        long total = hits + getTotalMisses();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+    
+    // Per-statement snapshot, most prepared first
+    public List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>();
+        counters.forEach((sql, c) -> entries.add(new Entry(sql, c.hits.sum(), c.misses.sum())));
+        entries.sort((a, b) -> Long.compare(b.getPrepares(), a.getPrepares()));
+        return entries;
+    }
+    
+    public void reset() {
+        counters.clear();
+    }
+    
+    public void printStats() {
+        System.out.println("=== Prepared Statement Cache ===");
+        System.out.println(String.format("Overall: %d hits, %d misses (%.1f%% hit rate)",
+            getTotalHits(), getTotalMisses(), getHitRate() * 100));
+        for (Entry entry : getEntries()) {
+            System.out.println(String.format("%6d / %-6d %5.1f%%  %s", entry.getHits(), entry.getPrepares(),
+                entry.getHitRate() * 100, entry.getSql()));
+        }
+        System.out.println("================================");
+    }
+    
+    private static class Counter {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+    }
+    
+    public static class Entry {
+        private final String sql;
+        private final long hits;
+        private final long misses;
+        
+        public Entry(String sql, long hits, long misses) {
+            this.sql = sql;
+            this.hits = hits;
+            this.misses = misses;
+        }
+        
+        public String getSql() { return sql; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getPrepares() { return hits + misses; }
+        
+        public double getHitRate() {
+            long prepares = getPrepares();
+            return prepares == 0 ? 0.0 : (double) hits / prepares;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package utils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory answer to "is this username / email taken?" for sign-up.
+ * Lower-cased keys go through a Bloom filter first, so most available names
+ * are confirmed without touching anything else; filter hits are settled by
+ * an exact set. The UNIQUE constraints in the users table remain the final
+ * authority when the row is actually inserted.
+ */
+public class UserAvailabilityIndex {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    // Headroom so sign-ups don't push the filter past its designed rate
+    private static final int MIN_CAPACITY = 1024;
+    
+    private BloomFilter usernameFilter;
+    private BloomFilter emailFilter;
+    private int capacity;
+    private int removedSinceBuild;
+    private final Set<String> usernames = new HashSet<>();
+    private final Set<String> emails = new HashSet<>();
+    // userId -> {username, email} as indexed, to undo on edit or delete
+    private final Map<String, String[]> keysById = new HashMap<>();
+    private volatile boolean loaded;
+    
+    public UserAvailabilityIndex() {
+        resetFilters(0);
+    }
+    
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    // Replace contents with every existing user; entries are {id, username, email}
+    public synchronized void load(Iterable<String[]> users) {
+        usernames.clear();
+        emails.clear();
+        keysById.clear();
+        for (String[] user : users) {
+            putLocked(user[0], user[1], user[2]);
+        }
+        rebuildFilters();
+        loaded = true;
+    }
+    
+    public synchronized void put(String userId, String username, String email) {
+        removeLocked(userId);
+        putLocked(userId, username, email);
+        if (usernames.size() > capacity) {
+            rebuildFilters();
+        }
+    }
+    
+    public synchronized void remove(String userId) {
+        removeLocked(userId);
+    }
+    
+    public synchronized boolean isUsernameTaken(String username) {
+        String key = key(username);
+        return usernameFilter.mightContain(key) && usernames.contains(key);
+    }
+    
+    public synchronized boolean isEmailTaken(String email) {
+        String key = key(email);
+        return emailFilter.mightContain(key) && emails.contains(key);
+    }
+    
+    private void putLocked(String userId, String username, String email) {
+        String usernameKey = key(username);
+        String emailKey = key(email);
+        usernames.add(usernameKey);
+        emails.add(emailKey);
+        usernameFilter.add(usernameKey);
+        emailFilter.add(emailKey);
+        if (userId != null) {
+            keysById.put(userId, new String[] {usernameKey, emailKey});
+        }
+    }
+    
+    // Bloom filters can't forget, so removed keys linger there until enough pile up to rebuild
+    private void removeLocked(String userId) {
+        String[] keys = userId == null ? null : keysById.remove(userId);
+        if (keys == null) {
+            return;
+        }
+        usernames.remove(keys[0]);
+        emails.remove(keys[1]);
+        if (++removedSinceBuild > capacity / 4) {
+            rebuildFilters();
+        }
+    }
+    
+    private void rebuildFilters() {
+        resetFilters(usernames.size());
+        usernames.forEach(usernameFilter::add);
+        emails.forEach(emailFilter::add);
+    }
+    
+    private void resetFilters(int size) {
+        capacity = Math.max(MIN_CAPACITY, size * 2);
+        usernameFilter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        emailFilter = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        removedSinceBuild = 0;
+    }
+    
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
+    }
+}
@@ -0,0 +1,66 @@
+package views;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs slow field checks (e.g. "is this username taken?") on a background
+ * thread once typing pauses. Each new request for a field cancels the
+ * previous one, and only the latest request's result is handed back on the
+ * EDT, so a slow stale answer can never overwrite a newer one.
+ * Call submit() and cancel() from the EDT.
+ */
+public class DebouncedValidator {
+    private final long delayMillis;
+    private final ScheduledExecutorService executor;
+    private final Map<String, Long> latest = new HashMap<>();
+    private final Map<String, Future<?>> pending = new HashMap<>();
+    private long sequence;
+    
+    public DebouncedValidator(String threadName, long delayMillis) {
+        this.delayMillis = delayMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+    
+    public <T> void submit(String field, Supplier<T> check, Consumer<T> onResult) {
+        long ticket = ++sequence;
+        latest.put(field, ticket);
+        Future<?> previous = pending.put(field, executor.schedule(() -> {
+            T result = check.get();
+            SwingUtilities.invokeLater(() -> {
+                if (latest.get(field) == ticket) {
+                    pending.remove(field);
+                    onResult.accept(result);
+                }
+            });
+        }, delayMillis, TimeUnit.MILLISECONDS));
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+    
+    // Drop a field's pending check without publishing anything (e.g. input became invalid)
+    public void cancel(String field) {
+        latest.put(field, ++sequence);
+        Future<?> previous = pending.remove(field);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -223,19 +223,31 @@ public class LoginFrame extends JFrame {
             return;
         }
         
-        User user = userController.authenticateUser(username, password);
-        if (user != null) {
-            showStatusMessage("Login successful! Redirecting...", true);
-            
-            // Open main dashboard
+        // Hash verification is slow by design, so it runs off the EDT
+        setLoginInProgress(true);
+        showStatusMessage("Signing in...", true);
+        userController.authenticateUserAsync(username, password).whenComplete((user, error) ->
             SwingUtilities.invokeLater(() -> {
-                new MainDashboardFrame(user).setVisible(true);
-                dispose();
-            });
-        } else {
-            showStatusMessage("Invalid username or password", false);
-            passwordField.setText("");
-        }
+                setLoginInProgress(false);
+                if (error != null) {
+                    showStatusMessage("Login is busy, please try again", false);
+                } else if (user != null) {
+                    showStatusMessage("Login successful! Redirecting...", true);
+                    
+                    // Open main dashboard
+                    new MainDashboardFrame(user).setVisible(true);
+                    dispose();
+                } else {
+                    showStatusMessage("Invalid username or password", false);
+                    passwordField.setText("");
+                }
+            }));
+    }
+    
+    private void setLoginInProgress(boolean inProgress) {
+        loginButton.setEnabled(!inProgress);
+        usernameField.setEnabled(!inProgress);
+        passwordField.setEnabled(!inProgress);
     }
     
     private void showStatusMessage(String message, boolean isSuccess) {
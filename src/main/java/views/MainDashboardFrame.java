@@ -6,6 +6,9 @@ import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.GridLayout;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 import javax.swing.BorderFactory;
 import javax.swing.Box;
@@ -19,7 +22,13 @@ import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
+import models.DashboardStats;
+import models.InventoryReport;
+import models.InventorySnapshot;
+import models.Medicine;
+import models.Sale;
 import models.User;
 import utils.DatabaseManager;
 import views.medicines.MedicineSearchPanel;
@@ -32,6 +41,15 @@ public class MainDashboardFrame extends JFrame {
     private JLabel userInfoLabel;
     private JLabel statsLabel;
     
+    // Stat card values, refreshed from the cached DashboardStats snapshot
+    private JLabel totalMedicinesValue;
+    private JLabel lowStockValue;
+    private JLabel todaysSalesValue;
+    private JLabel activeSuppliersValue;
+    
+    // Repaints the cards whenever the background refresher loads a new snapshot
+    private final Consumer<DashboardStats> statsListener = stats -> SwingUtilities.invokeLater(() -> showStats(stats));
+    
     public MainDashboardFrame(User user) {
         this.currentUser = user;
         this.dbManager = DatabaseManager.getInstance();
@@ -39,13 +57,24 @@ public class MainDashboardFrame extends JFrame {
         setupLayout();
         setupEventHandlers();
         setFrameProperties();
+        dbManager.addDashboardStatsListener(statsListener);
         updateStats();
     }
     
+    @Override
+    public void dispose() {
+        dbManager.removeDashboardStatsListener(statsListener);
+        super.dispose();
+    }
+    
     private void initializeComponents() {
         tabbedPane = new JTabbedPane();
         userInfoLabel = new JLabel();
         statsLabel = new JLabel();
+        totalMedicinesValue = new JLabel();
+        lowStockValue = new JLabel();
+        todaysSalesValue = new JLabel();
+        activeSuppliersValue = new JLabel();
         updateUserInfo();
     }
     
@@ -180,22 +209,22 @@ public class MainDashboardFrame extends JFrame {
         
         // Total Medicines
         JPanel medicineStatsPanel = createStatCard("Total Medicines", 
-                                                  String.valueOf(dbManager.getTotalMedicines()),
+                                                  totalMedicinesValue,
                                                   new Color(52, 152, 219));
         
         // Low Stock Items
         JPanel lowStockPanel = createStatCard("Low Stock Items", 
-                                            String.valueOf(dbManager.getLowStockCount()),
+                                            lowStockValue,
                                             new Color(231, 76, 60));
         
         // Today's Sales
         JPanel salesPanel = createStatCard("Today's Sales", 
-                                         String.format("$%.2f", dbManager.getTodaysSales()),
+                                         todaysSalesValue,
                                          new Color(46, 204, 113));
         
         // Active Suppliers
         JPanel suppliersPanel = createStatCard("Active Suppliers", 
-                                             String.valueOf(dbManager.getActiveSuppliers()),
+                                             activeSuppliersValue,
                                              new Color(155, 89, 182));
         
         statsPanel.add(medicineStatsPanel);
@@ -212,12 +241,12 @@ public class MainDashboardFrame extends JFrame {
         
         // Available Medicines
         JPanel medicineStatsPanel = createStatCard("Available Medicines", 
-                                                  String.valueOf(dbManager.getTotalMedicines()),
+                                                  totalMedicinesValue,
                                                   new Color(52, 152, 219));
         
         // Today's Sales
         JPanel salesPanel = createStatCard("Today's Sales", 
-                                         String.format("$%.2f", dbManager.getTodaysSales()),
+                                         todaysSalesValue,
                                          new Color(46, 204, 113));
         
         statsPanel.add(medicineStatsPanel);
@@ -301,7 +330,7 @@ public class MainDashboardFrame extends JFrame {
         
         // Add action listeners for reports
         salesReportBtn.addActionListener(e -> showSalesReport());
-        inventoryReportBtn.addActionListener(e -> showInventoryReport());
+        inventoryReportBtn.addActionListener(e -> showInventoryReport(inventoryReportBtn));
         lowStockReportBtn.addActionListener(e -> showLowStockReport());
         
         buttonPanel.add(salesReportBtn);
@@ -317,7 +346,7 @@ public class MainDashboardFrame extends JFrame {
         return reportsPanel;
     }
     
-    private JPanel createStatCard(String title, String value, Color color) {
+    private JPanel createStatCard(String title, JLabel valueLabel, Color color) {
         JPanel card = new JPanel(new BorderLayout());
         card.setBorder(BorderFactory.createLineBorder(color, 2));
         card.setBackground(Color.WHITE);
@@ -326,7 +355,7 @@ public class MainDashboardFrame extends JFrame {
         titleLabel.setFont(new Font("Arial", Font.PLAIN, 12));
         titleLabel.setForeground(Color.GRAY);
         
-        JLabel valueLabel = new JLabel(value, SwingConstants.CENTER);
+        valueLabel.setHorizontalAlignment(SwingConstants.CENTER);
         valueLabel.setFont(new Font("Arial", Font.BOLD, 24));
         valueLabel.setForeground(color);
         
@@ -372,17 +401,27 @@ public class MainDashboardFrame extends JFrame {
         userInfoLabel.setText("Welcome, " + currentUser.getUsername() + " (" + currentUser.getRole().getDisplayName() + ")");
     }
     
+    // Reads the cached snapshot only; tab switches never hit the database
     private void updateStats() {
-        SwingUtilities.invokeLater(() -> {
-            if (currentUser.getRole() == User.UserRole.ADMIN) {
-                statsLabel.setText("Medicines: " + dbManager.getTotalMedicines() + 
-                                 " | Low Stock: " + dbManager.getLowStockCount() + 
-                                 " | Today's Sales: $" + String.format("%.2f", dbManager.getTodaysSales()));
-            } else {
-                statsLabel.setText("Today's Sales: $" + String.format("%.2f", dbManager.getTodaysSales()) +
-                                 " | Available Medicines: " + dbManager.getTotalMedicines());
-            }
-        });
+        SwingUtilities.invokeLater(() -> showStats(dbManager.getDashboardStats()));
+    }
+    
+    private void showStats(DashboardStats stats) {
+        String todaysSales = String.format("%.2f", stats.getTodaysSalesAmount());
+        
+        if (currentUser.getRole() == User.UserRole.ADMIN) {
+            statsLabel.setText("Medicines: " + stats.getTotalMedicines() + 
+                             " | Low Stock: " + stats.getLowStockCount() + 
+                             " | Today's Sales: $" + todaysSales);
+        } else {
+            statsLabel.setText("Today's Sales: $" + todaysSales +
+                             " | Available Medicines: " + stats.getTotalMedicines());
+        }
+        
+        totalMedicinesValue.setText(String.valueOf(stats.getTotalMedicines()));
+        lowStockValue.setText(String.valueOf(stats.getLowStockCount()));
+        todaysSalesValue.setText("$" + todaysSales);
+        activeSuppliersValue.setText(String.valueOf(stats.getActiveSuppliers()));
     }
     
     private void logout() {
@@ -400,10 +439,11 @@ public class MainDashboardFrame extends JFrame {
         StringBuilder report = new StringBuilder();
         report.append("SALES REPORT\n");
         report.append("=============\n\n");
-        report.append("Total Sales: ").append(dbManager.getAllSales().size()).append("\n");
+        List<Sale> sales = dbManager.getAllSales();
+        report.append("Total Sales: ").append(sales.size()).append("\n");
         report.append("Today's Sales: $").append(String.format("%.2f", dbManager.getTodaysSales())).append("\n");
         report.append("Total Revenue: $").append(String.format("%.2f", 
-            dbManager.getAllSales().stream()
+            sales.stream()
                    .mapToDouble(sale -> sale.getFinalAmount())
                    .sum())).append("\n");
         
@@ -417,33 +457,84 @@ public class MainDashboardFrame extends JFrame {
         JOptionPane.showMessageDialog(this, scrollPane, "Sales Report", JOptionPane.INFORMATION_MESSAGE);
     }
     
-    private void showInventoryReport() {
+    // Reading the snapshot and the parallel pass both run on a worker; the dialog opens when they are done
+    private void showInventoryReport(JButton source) {
+        source.setEnabled(false);
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() {
+                return buildInventoryReport();
+            }
+            
+            @Override
+            protected void done() {
+                source.setEnabled(true);
+                String report;
+                try {
+                    report = get();
+                } catch (InterruptedException | ExecutionException e) {
+                    report = null;
+                }
+                if (report == null) {
+                    JOptionPane.showMessageDialog(MainDashboardFrame.this, "Could not load inventory.",
+                                                  "Inventory Report", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                JTextArea textArea = new JTextArea(report);
+                textArea.setEditable(false);
+                textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+                
+                JScrollPane scrollPane = new JScrollPane(textArea);
+                scrollPane.setPreferredSize(new Dimension(500, 400));
+                
+                JOptionPane.showMessageDialog(MainDashboardFrame.this, scrollPane, "Inventory Report",
+                                              JOptionPane.INFORMATION_MESSAGE);
+            }
+        }.execute();
+    }
+    
+    // Report text, or null if the inventory could not be read
+    private String buildInventoryReport() {
         StringBuilder report = new StringBuilder();
         report.append("INVENTORY REPORT\n");
         report.append("================\n\n");
-        report.append("Total Medicines: ").append(dbManager.getTotalMedicines()).append("\n");
-        report.append("Low Stock Items: ").append(dbManager.getLowStockCount()).append("\n");
+        InventorySnapshot inventory = dbManager.getInventorySnapshot();
+        if (inventory == null) {
+            return null;
+        }
+        InventoryReport summary = dbManager.getInventoryReport(inventory);
+        report.append("Total Medicines: ").append(summary.getTotalMedicines()).append("\n");
+        report.append("Low Stock Items: ").append(summary.getLowStockCount())
+              .append(" (").append(summary.getOutOfStockCount()).append(" out of stock)\n");
         report.append("Total Inventory Value: $").append(String.format("%.2f",
-            dbManager.getAllMedicines().stream()
-                   .mapToDouble(med -> med.getPrice() * med.getStock())
-                   .sum())).append("\n\n");
+            summary.getTotalInventoryValue())).append("\n\n");
+        
+        report.append("VALUE BY CATEGORY:\n");
+        report.append("------------------\n");
+        String[] categories = summary.getCategories();
+        int[] counts = summary.getCountByCategory();
+        for (int i = 0; i < categories.length; i++) {
+            report.append(categories[i]).append(" (").append(counts[i]).append(" items): $")
+                  .append(String.format("%.2f", summary.getValueByCategory(i))).append("\n");
+        }
+        report.append("\n");
+        
+        report.append("EXPIRY:\n");
+        report.append("-------\n");
+        int[] histogram = summary.getExpiryHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            report.append(InventoryReport.EXPIRY_BUCKETS[i]).append(": ").append(histogram[i]).append("\n");
+        }
+        report.append("\n");
         
         report.append("LOW STOCK MEDICINES:\n");
         report.append("--------------------\n");
-        dbManager.getAllMedicines().stream()
-               .filter(med -> med.isLowStock())
-               .forEach(med -> report.append(med.getName())
-                                   .append(" - Stock: ").append(med.getStock())
-                                   .append(" (Min: ").append(med.getThreshold()).append(")\n"));
-        
-        JTextArea textArea = new JTextArea(report.toString());
-        textArea.setEditable(false);
-        textArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        
-        JScrollPane scrollPane = new JScrollPane(textArea);
-        scrollPane.setPreferredSize(new Dimension(500, 400));
-        
-        JOptionPane.showMessageDialog(this, scrollPane, "Inventory Report", JOptionPane.INFORMATION_MESSAGE);
+        for (int row : inventory.lowStockRows()) {
+            report.append(inventory.getName(row))
+                  .append(" - Stock: ").append(inventory.getStock(row))
+                  .append(" (Min: ").append(inventory.getThreshold(row)).append(")\n");
+        }
+        return report.toString();
     }
     
     private void showLowStockReport() {
@@ -451,27 +542,27 @@ public class MainDashboardFrame extends JFrame {
         report.append("LOW STOCK ALERT REPORT\n");
         report.append("======================\n\n");
         
-        long criticalCount = dbManager.getAllMedicines().stream()
+        // Out-of-stock rows are a subset of the low stock query, so one fetch covers both lists
+        List<Medicine> lowStockMedicines = dbManager.getLowStockMedicines();
+        long criticalCount = lowStockMedicines.stream()
                                    .filter(med -> med.getStock() == 0)
                                    .count();
-        long lowStockCount = dbManager.getAllMedicines().stream()
-                                   .filter(med -> med.isLowStock() && med.getStock() > 0)
-                                   .count();
+        long lowStockCount = lowStockMedicines.size() - criticalCount;
         
         report.append("Critical (Out of Stock): ").append(criticalCount).append("\n");
         report.append("Low Stock: ").append(lowStockCount).append("\n\n");
         
         report.append("CRITICAL ITEMS (OUT OF STOCK):\n");
         report.append("------------------------------\n");
-        dbManager.getAllMedicines().stream()
+        lowStockMedicines.stream()
                .filter(med -> med.getStock() == 0)
                .forEach(med -> report.append("• ").append(med.getName())
                                    .append(" - Supplier: ").append(med.getSupplier()).append("\n"));
         
         report.append("\nLOW STOCK ITEMS:\n");
         report.append("----------------\n");
-        dbManager.getAllMedicines().stream()
-               .filter(med -> med.isLowStock() && med.getStock() > 0)
+        lowStockMedicines.stream()
+               .filter(med -> med.getStock() > 0)
                .forEach(med -> report.append("• ").append(med.getName())
                                    .append(" - Stock: ").append(med.getStock())
                                    .append(" (Min: ").append(med.getThreshold()).append(")\n"));
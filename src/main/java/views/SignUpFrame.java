@@ -2,11 +2,11 @@ package views;
 
 import controllers.UserController;
 import models.User;
+import utils.InputValidator;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.regex.Pattern;
 
 public class SignUpFrame extends JFrame {
     private UserController userController;
@@ -31,6 +31,14 @@ public class SignUpFrame extends JFrame {
     private JLabel passwordValidationLabel;
     private JLabel confirmPasswordValidationLabel;
     
+    // Availability lookups run off the EDT once typing pauses
+    private static final long AVAILABILITY_DELAY_MS = 300;
+    private final DebouncedValidator availabilityChecks = new DebouncedValidator("signup-validation", AVAILABILITY_DELAY_MS);
+    private static final Color VALID_COLOR = new Color(46, 204, 113);
+    // Last values confirmed available by a background check
+    private String availableUsername;
+    private String availableEmail;
+    
     public SignUpFrame(LoginFrame parent) {
         this.parentFrame = parent;
         this.userController = new UserController();
@@ -227,24 +235,28 @@ public class SignUpFrame extends JFrame {
         usernameField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
                 validateUsername();
+                updateSignUpButtonState();
             }
         });
         
         emailField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
                 validateEmail();
+                updateSignUpButtonState();
             }
         });
         
         passwordField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
                 validatePassword();
+                updateSignUpButtonState();
             }
         });
         
         confirmPasswordField.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
                 validateConfirmPassword();
+                updateSignUpButtonState();
             }
         });
         
@@ -274,43 +286,78 @@ public class SignUpFrame extends JFrame {
         String username = usernameField.getText().trim();
         
         if (username.isEmpty()) {
+            availabilityChecks.cancel("username");
             setValidationMessage(usernameValidationLabel, "", Color.BLACK);
             return;
         }
         
-        if (username.length() < 3) {
+        if (username.length() < InputValidator.USERNAME_MIN_LENGTH) {
+            availabilityChecks.cancel("username");
             setValidationMessage(usernameValidationLabel, "Username must be at least 3 characters", Color.RED);
             return;
         }
         
-        if (!username.matches("^[a-zA-Z0-9_]+$")) {
+        if (username.length() > InputValidator.USERNAME_MAX_LENGTH) {
+            availabilityChecks.cancel("username");
+            setValidationMessage(usernameValidationLabel, "Username must be at most 20 characters", Color.RED);
+            return;
+        }
+        
+        if (!InputValidator.isUsernameFormat(username)) {
+            availabilityChecks.cancel("username");
             setValidationMessage(usernameValidationLabel, "Username can only contain letters, numbers, and underscores", Color.RED);
             return;
         }
         
-        if (!userController.isUsernameAvailable(username)) {
-            setValidationMessage(usernameValidationLabel, "Username is already taken", Color.RED);
+        if (username.equals(availableUsername)) {
+            availabilityChecks.cancel("username"); // a check for an earlier name must not overwrite this
+            setValidationMessage(usernameValidationLabel, "✓ Username is available", VALID_COLOR);
             return;
         }
         
-        setValidationMessage(usernameValidationLabel, "✓ Username is available", new Color(46, 204, 113));
+        setValidationMessage(usernameValidationLabel, "Checking availability...", Color.GRAY);
+        availabilityChecks.submit("username", () -> userController.isUsernameAvailable(username), available -> {
+            if (available) {
+                availableUsername = username;
+                setValidationMessage(usernameValidationLabel, "✓ Username is available", VALID_COLOR);
+            } else {
+                setValidationMessage(usernameValidationLabel, "Username is already taken", Color.RED);
+            }
+            updateSignUpButtonState();
+        });
     }
     
     private void validateEmail() {
         String email = emailField.getText().trim();
         
         if (email.isEmpty()) {
+            availabilityChecks.cancel("email");
             setValidationMessage(emailValidationLabel, "", Color.BLACK);
             return;
         }
         
-        String emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        if (!Pattern.matches(emailRegex, email)) {
+        if (!InputValidator.isValidEmail(email)) {
+            availabilityChecks.cancel("email");
             setValidationMessage(emailValidationLabel, "Please enter a valid email address", Color.RED);
             return;
         }
         
-        setValidationMessage(emailValidationLabel, "✓ Valid email format", new Color(46, 204, 113));
+        if (email.equals(availableEmail)) {
+            availabilityChecks.cancel("email");
+            setValidationMessage(emailValidationLabel, "✓ Valid email format", VALID_COLOR);
+            return;
+        }
+        
+        setValidationMessage(emailValidationLabel, "Checking email...", Color.GRAY);
+        availabilityChecks.submit("email", () -> !userController.isEmailAlreadyExists(email), available -> {
+            if (available) {
+                availableEmail = email;
+                setValidationMessage(emailValidationLabel, "✓ Valid email format", VALID_COLOR);
+            } else {
+                setValidationMessage(emailValidationLabel, "An account with this email already exists", Color.RED);
+            }
+            updateSignUpButtonState();
+        });
     }
     
     private void validatePassword() {
@@ -321,21 +368,19 @@ public class SignUpFrame extends JFrame {
             return;
         }
         
-        if (password.length() < 6) {
+        if (password.length() < InputValidator.PASSWORD_MIN_LENGTH) {
             setValidationMessage(passwordValidationLabel, "Password must be at least 6 characters", Color.RED);
             return;
         }
         
         // Check for at least one number and one letter
-        boolean hasLetter = password.matches(".*[a-zA-Z].*");
-        boolean hasNumber = password.matches(".*[0-9].*");
-        
-        if (!hasLetter || !hasNumber) {
+        if (!InputValidator.hasLetterAndDigit(password)) {
             setValidationMessage(passwordValidationLabel, "Password must contain at least one letter and one number", Color.RED);
             return;
         }
         
-        setValidationMessage(passwordValidationLabel, "✓ Strong password", new Color(46, 204, 113));
+        setValidationMessage(passwordValidationLabel, "✓ Password strength: " +
+            userController.checkPasswordStrength(password).getDisplayName(), VALID_COLOR);
     }
     
     private void validateConfirmPassword() {
@@ -372,18 +417,12 @@ public class SignUpFrame extends JFrame {
         String password = new String(passwordField.getPassword());
         String confirmPassword = new String(confirmPasswordField.getPassword());
         
-        return !username.isEmpty() && username.length() >= 3 && 
-               userController.isUsernameAvailable(username) &&
-               !email.isEmpty() && isValidEmail(email) &&
+        // Availability comes from the last background check, never a query on the EDT
+        return InputValidator.isValidUsername(username) && username.equals(availableUsername) &&
+               InputValidator.isValidEmail(email) && email.equals(availableEmail) &&
                !fullName.isEmpty() &&
-               !password.isEmpty() && password.length() >= 6 &&
-               password.equals(confirmPassword) &&
-               password.matches(".*[a-zA-Z].*") && password.matches(".*[0-9].*");
-    }
-    
-    private boolean isValidEmail(String email) {
-        String emailRegex = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$";
-        return Pattern.matches(emailRegex, email);
+               InputValidator.isValidPassword(password) &&
+               password.equals(confirmPassword);
     }
     
     private void showRoleInfo() {
@@ -492,6 +531,12 @@ public class SignUpFrame extends JFrame {
         confirmPasswordValidationLabel.setText(" ");
     }
     
+    @Override
+    public void dispose() {
+        availabilityChecks.shutdown();
+        super.dispose();
+    }
+    
     private void backToLogin() {
         parentFrame.setVisible(true);
         dispose();
@@ -2,21 +2,55 @@ package views.medicines;
 
 import controllers.MedicineController;
 import models.Medicine;
+import models.StockChange;
+import utils.ChangeFeed;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MedicineSearchPanel extends JPanel {
     private MedicineController medicineController;
     private JTextField searchField;
     private JComboBox<String> categoryComboBox;
     private JTable medicineTable;
-    private DefaultTableModel tableModel;
+    private MedicineTableModel tableModel;
     private JLabel resultCountLabel;
     
+    // Wait this long after the last keystroke before searching
+    private static final int SEARCH_DELAY_MS = 250;
+    // Result sets up to this size are fetched whole so longer prefixes can be narrowed in memory
+    private static final int IN_MEMORY_LIMIT = 500;
+    // Same order as the SQL pages: name (case-insensitive), then id
+    private static final Comparator<Medicine> BY_NAME_AND_ID =
+        Comparator.comparing(Medicine::getName, String.CASE_INSENSITIVE_ORDER).thenComparing(Medicine::getId);
+    
+    private Timer searchTimer;
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "medicine-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> pendingSearch;
+    private long searchGeneration; // EDT only; results from older searches are dropped
+    
+    // Last result set that was loaded in full, and the filter that produced it
+    private String lastSearchTerm;
+    private String lastCategory;
+    private List<Medicine> lastRows;
+    
+    // Follow stock changes from the change feed
+    private static final int CHANGE_POLL_MS = 1000;
+    private Timer changeTimer;
+    private long changeCursor;
+    
     public MedicineSearchPanel() {
         this.medicineController = new MedicineController();
         initializeComponents();
@@ -42,13 +76,8 @@ public class MedicineSearchPanel extends JPanel {
         resultCountLabel.setFont(new Font("Arial", Font.ITALIC, 12));
         
         // Medicine table
-        String[] columnNames = {"ID", "Name", "Category", "Stock", "Price", "Expiry Date", "Supplier", "Status"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Read-only table for pharmacists
-            }
-        };
+        // Rows are fetched page by page as they scroll into view
+        tableModel = new MedicineTableModel(medicineController);
         
         medicineTable = new JTable(tableModel);
         medicineTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
@@ -127,17 +156,40 @@ public class MedicineSearchPanel extends JPanel {
     }
     
     private void setupEventHandlers() {
-        // Real-time search as user types
-        searchField.addKeyListener(new KeyAdapter() {
+        // Real-time search as user types, once typing pauses
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> performSearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override
-            public void keyReleased(KeyEvent e) {
-                performSearch();
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
             }
         });
         
         // Category filter
         categoryComboBox.addActionListener(e -> performSearch());
         
+        // Live stock changes; reading the feed is in-memory, so polling it costs no queries
+        ChangeFeed changeFeed = medicineController.getChangeFeed();
+        changeCursor = changeFeed.currentCursor();
+        changeTimer = new Timer(CHANGE_POLL_MS, e -> {
+            ChangeFeed.Batch batch = changeFeed.read(changeCursor, 256);
+            changeCursor = batch.getNextCursor();
+            if (batch.isOverrun() || needsRefresh(batch.getEvents())) {
+                refreshMedicines();
+            }
+        });
+        
         // Table selection listener
         medicineTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
@@ -146,62 +198,130 @@ public class MedicineSearchPanel extends JPanel {
         });
     }
     
+    /**
+     * Patches stock changes into the rows on screen. True if the search has
+     * to be re-run: a medicine was created or edited (it may now match or
+     * sort differently), or a row on screen was deleted. Changes to rows
+     * that are not loaded need nothing.
+     */
+    private boolean needsRefresh(List<StockChange> changes) {
+        boolean refresh = false;
+        for (StockChange change : changes) {
+            switch (change.getKind()) {
+                case SOLD:
+                case ADJUSTED:
+                    if (change.getDelta() != StockChange.UNKNOWN) {
+                        tableModel.applyStockDelta(change.getMedicineId(), change.getDelta(), change.getSequence());
+                    } else {
+                        refresh |= tableModel.containsMedicine(change.getMedicineId());
+                    }
+                    break;
+                case DELETED:
+                    refresh |= tableModel.containsMedicine(change.getMedicineId());
+                    break;
+                default:
+                    refresh = true;
+                    break;
+            }
+        }
+        return refresh;
+    }
+    
+    /**
+     * Runs the current search on the background executor. Any search still in
+     * flight is cancelled, and its result is ignored if it completes anyway.
+     * When the new term extends the previous one under the same category and
+     * that result set is in memory, it is narrowed there instead of re-queried.
+     */
     private void performSearch() {
+        searchTimer.stop();
         String searchTerm = searchField.getText().trim();
         String selectedCategory = (String) categoryComboBox.getSelectedItem();
+        String category = "All Categories".equals(selectedCategory) ? null : selectedCategory;
         
-        List<Medicine> allMedicines = medicineController.getAllMedicines();
-        List<Medicine> filteredMedicines = allMedicines.stream()
-            .filter(medicine -> {
-                boolean matchesSearch = searchTerm.isEmpty() || 
-                    medicine.getName().toLowerCase().contains(searchTerm.toLowerCase()) ||
-                    medicine.getId().toLowerCase().contains(searchTerm.toLowerCase());
-                
-                boolean matchesCategory = "All Categories".equals(selectedCategory) ||
-                    medicine.getCategory().equals(selectedCategory);
-                
-                return matchesSearch && matchesCategory;
-            })
-            .collect(java.util.stream.Collectors.toList());
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+        }
+        long generation = ++searchGeneration;
+        if (canNarrow(searchTerm, category)) {
+            // At most IN_MEMORY_LIMIT rows, narrowed here so stock patches cannot interleave
+            showRows(searchTerm, category, narrow(lastRows, searchTerm), tableModel.getLoadedRowsCursor());
+            return;
+        }
+        ChangeFeed changeFeed = medicineController.getChangeFeed();
         
-        updateTable(filteredMedicines);
-        resultCountLabel.setText(filteredMedicines.size() + " medicines found");
+        pendingSearch = searchExecutor.submit(() -> {
+            // Taken before the query runs: changes published earlier are already in its rows
+            long feedCursor = changeFeed.currentCursor();
+            List<Medicine> rows;
+            int count;
+            if (category != null) {
+                // A category is resolved on the in-memory bitmap index, then narrowed by the term
+                rows = narrow(medicineController.filterMedicines(Collections.singleton(category), null, null), searchTerm);
+                rows.sort(BY_NAME_AND_ID);
+                count = rows.size();
+            } else {
+                count = medicineController.countMedicines(searchTerm, category);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                rows = count <= IN_MEMORY_LIMIT
+                    ? medicineController.findMedicinesPage(searchTerm, category, null, null, 0, Math.max(count, 1))
+                    : null;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            
+            SwingUtilities.invokeLater(() -> {
+                if (generation != searchGeneration) {
+                    return; // superseded by a newer search
+                }
+                if (rows != null) {
+                    showRows(searchTerm, category, rows, feedCursor);
+                } else {
+                    tableModel.setFilter(searchTerm, category, count);
+                    lastRows = null;
+                    resultCountLabel.setText(tableModel.getRowCount() + " medicines found");
+                }
+            });
+        });
     }
     
-    private void updateTable(List<Medicine> medicines) {
-        tableModel.setRowCount(0);
-        
-        for (Medicine medicine : medicines) {
-            String status = getStockStatus(medicine);
-            Object[] row = {
-                medicine.getId(),
-                medicine.getName(),
-                medicine.getCategory(),
-                medicine.getStock(),
-                String.format("$%.2f", medicine.getPrice()),
-                medicine.getExpiryDate().toString(),
-                medicine.getSupplier(),
-                status
-            };
-            tableModel.addRow(row);
+    private void showRows(String searchTerm, String category, List<Medicine> rows, long feedCursor) {
+        tableModel.setRows(searchTerm, category, rows, feedCursor);
+        lastSearchTerm = searchTerm;
+        lastCategory = category;
+        lastRows = rows;
+        resultCountLabel.setText(tableModel.getRowCount() + " medicines found");
+    }
+    
+    private boolean canNarrow(String searchTerm, String category) {
+        return lastRows != null
+            && (category == null ? lastCategory == null : category.equals(lastCategory))
+            && searchTerm.toLowerCase().startsWith(lastSearchTerm.toLowerCase());
+    }
+    
+    // Same match as the SQL filter: name or id contains the term, ignoring case
+    private static List<Medicine> narrow(List<Medicine> rows, String searchTerm) {
+        String term = searchTerm.toLowerCase();
+        List<Medicine> narrowed = new ArrayList<>();
+        for (Medicine medicine : rows) {
+            if (medicine.getName().toLowerCase().contains(term) || medicine.getId().toLowerCase().contains(term)) {
+                narrowed.add(medicine);
+            }
         }
+        return narrowed;
     }
     
     private String getStockStatus(Medicine medicine) {
-        if (medicine.getStock() == 0) {
-            return "Out of Stock";
-        } else if (medicine.isLowStock()) {
-            return "Low Stock";
-        } else {
-            return "In Stock";
-        }
+        return MedicineTableModel.getStockStatus(medicine);
     }
     
     private void showMedicineDetails() {
         int selectedRow = medicineTable.getSelectedRow();
         if (selectedRow >= 0) {
-            String medicineId = (String) tableModel.getValueAt(selectedRow, 0);
-            Medicine medicine = medicineController.getMedicineById(medicineId);
+            Medicine medicine = tableModel.getMedicineAt(selectedRow);
             
             if (medicine != null) {
                 StringBuilder details = new StringBuilder();
@@ -246,25 +366,35 @@ public class MedicineSearchPanel extends JPanel {
         }
     }
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        changeTimer.start();
+    }
+    
+    @Override
+    public void removeNotify() {
+        changeTimer.stop();
+        super.removeNotify();
+    }
+    
     private void loadMedicines() {
-        List<Medicine> allMedicines = medicineController.getAllMedicines();
-        updateTable(allMedicines);
-        resultCountLabel.setText(allMedicines.size() + " medicines found");
+        performSearch();
     }
     
     // Public method to get selected medicine (for use in sales)
     public Medicine getSelectedMedicine() {
         int selectedRow = medicineTable.getSelectedRow();
         if (selectedRow >= 0) {
-            String medicineId = (String) tableModel.getValueAt(selectedRow, 0);
-            return medicineController.getMedicineById(medicineId);
+            Medicine row = tableModel.getMedicineAt(selectedRow);
+            return row == null ? null : medicineController.getMedicineById(row.getId());
         }
         return null;
     }
     
     // Public method to refresh the medicine list
     public void refreshMedicines() {
-        loadMedicines();
+        lastRows = null; // stock may have changed, so don't narrow from stale rows
         performSearch(); // Reapply current search/filter
     }
 }
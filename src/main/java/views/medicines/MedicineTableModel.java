@@ -0,0 +1,355 @@
+package views.medicines;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+
+import controllers.MedicineController;
+import models.Medicine;
+import models.StockChange;
+import utils.ChangeFeed;
+
+/**
+ * Read-only, virtualized table model for the medicine search results.
+ * Only the row count is known up front; rows are fetched a page at a time as
+ * the table asks for them, a few neighbouring pages are kept in an LRU, and
+ * cell text is formatted only when painted.
+ *
+ * Queries never run on the EDT: a missing page is read on a background
+ * thread, its rows paint as placeholders meanwhile, and they are repainted
+ * when the page arrives. A page that comes back empty where the count
+ * expects rows (a failed read) is not cached; it is read again after a short
+ * delay. All state is confined to the EDT.
+ *
+ * Every row set remembers the change feed cursor taken just before its query
+ * ran, advanced as stock changes are patched in. Changes older than that are
+ * already in the rows and are not applied again; changes the panel consumed
+ * while the query was running are caught up from the feed when it arrives.
+ */
+public class MedicineTableModel extends AbstractTableModel {
+    public static final String[] COLUMN_NAMES = {"ID", "Name", "Category", "Stock", "Price", "Expiry Date", "Supplier", "Status"};
+    
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 8;
+    // Delay before re-reading a page that came back empty although the count says it has rows
+    private static final int PAGE_RETRY_MS = Integer.getInteger("medicine.pageRetryMs", 2000);
+    private static final String LOADING = "Loading...";
+    
+    private final MedicineController medicineController;
+    private final ExecutorService pageLoader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "medicine-pages");
+        t.setDaemon(true);
+        return t;
+    });
+    
+    private String searchTerm;
+    private String category;
+    private int rowCount;
+    // Bumped on every filter change; pages and counts read for an older filter are dropped
+    private long generation;
+    private final Set<Integer> loadingPages = new HashSet<>();
+    
+    // Recently used pages, plus the last (name, id) of every page seen so the next one can be read by keyset
+    private final Map<Integer, List<Medicine>> pages = new LinkedHashMap<Integer, List<Medicine>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Medicine>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, String[]> pageEndKeys = new HashMap<>();
+    // Next feed sequence each cached page still needs
+    private final Map<Integer, Long> pageCursors = new HashMap<>();
+    
+    // Set instead of pages when the whole result set is already in memory (small searches)
+    private List<Medicine> loadedRows;
+    private long loadedRowsCursor;
+    
+    public MedicineTableModel(MedicineController medicineController) {
+        this.medicineController = medicineController;
+    }
+    
+    /**
+     * Applies a new filter: the COUNT query runs in the background, then the
+     * table gets a single event. Rows themselves are loaded lazily by getValueAt.
+     */
+    public void setFilter(String searchTerm, String category) {
+        long requested = ++generation;
+        pageLoader.execute(() -> {
+            int count = medicineController.countMedicines(searchTerm, category);
+            SwingUtilities.invokeLater(() -> {
+                if (requested == generation) {
+                    setFilter(searchTerm, category, count);
+                }
+            });
+        });
+    }
+    
+    // Same as setFilter(String, String) when the count is already known (e.g. computed off the EDT)
+    public void setFilter(String searchTerm, String category, int rowCount) {
+        this.searchTerm = searchTerm;
+        this.category = category;
+        this.rowCount = rowCount;
+        this.loadedRows = null;
+        clearPages();
+        fireTableDataChanged();
+    }
+    
+    /**
+     * Shows a result set that has already been fetched in full, so no page
+     * reads are made for it. feedCursor is the change feed cursor taken
+     * before the rows were read.
+     */
+    public void setRows(String searchTerm, String category, List<Medicine> rows, long feedCursor) {
+        this.searchTerm = searchTerm;
+        this.category = category;
+        this.rowCount = rows.size();
+        this.loadedRows = rows;
+        this.loadedRowsCursor = feedCursor;
+        clearPages();
+        fireTableDataChanged();
+        catchUp(feedCursor);
+    }
+    
+    // Feed cursor the in-memory rows are current to
+    long getLoadedRowsCursor() {
+        return loadedRowsCursor;
+    }
+    
+    private void clearPages() {
+        generation++;
+        pages.clear();
+        pageEndKeys.clear();
+        pageCursors.clear();
+        loadingPages.clear();
+    }
+    
+    // Re-read the current filter (e.g. after stock changes)
+    public void refresh() {
+        setFilter(searchTerm, category);
+    }
+    
+    // True if the medicine is among the rows currently held
+    public boolean containsMedicine(String medicineId) {
+        return indexOf(medicineId) != null;
+    }
+    
+    /**
+     * Applies a stock change with the given feed sequence to a held row in
+     * place and repaints it. Returns false if the row is not held, in which
+     * case there is nothing to update. A change published before the row was
+     * read is already part of it and is skipped.
+     */
+    public boolean applyStockDelta(String medicineId, int delta, long sequence) {
+        int[] position = indexOf(medicineId);
+        if (position == null) {
+            return false;
+        }
+        long readAt = position[0] < 0 ? loadedRowsCursor : pageCursors.getOrDefault(position[0], Long.MAX_VALUE);
+        if (sequence < readAt) {
+            return true;
+        }
+        if (position[0] < 0) {
+            loadedRowsCursor = sequence + 1;
+        } else {
+            pageCursors.put(position[0], sequence + 1);
+        }
+        List<Medicine> rows = position[0] < 0 ? loadedRows : pages.get(position[0]);
+        // Copy rather than mutate: rows may be shared with other views
+        Medicine patched = new Medicine(rows.get(position[1]));
+        patched.setStock(patched.getStock() + delta);
+        rows.set(position[1], patched);
+        int row = position[0] < 0 ? position[1] : position[0] * PAGE_SIZE + position[1];
+        fireTableRowsUpdated(row, row);
+        return true;
+    }
+    
+    // {page index or -1 for loadedRows, index in that list}, or null if not held
+    private int[] indexOf(String medicineId) {
+        if (loadedRows != null) {
+            for (int i = 0; i < loadedRows.size(); i++) {
+                if (loadedRows.get(i).getId().equals(medicineId)) {
+                    return new int[] {-1, i};
+                }
+            }
+            return null;
+        }
+        for (Map.Entry<Integer, List<Medicine>> page : pages.entrySet()) {
+            List<Medicine> rows = page.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).getId().equals(medicineId)) {
+                    return new int[] {page.getKey(), i};
+                }
+            }
+        }
+        return null;
+    }
+    
+    // The row, or null while its page is still being loaded
+    public Medicine getMedicineAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        if (loadedRows != null) {
+            return loadedRows.get(row);
+        }
+        List<Medicine> page = getPage(row / PAGE_SIZE);
+        int index = row % PAGE_SIZE;
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+    
+    // Cached page, or null after queueing its load
+    private List<Medicine> getPage(int pageIndex) {
+        List<Medicine> page = pages.get(pageIndex);
+        if (page == null && loadingPages.add(pageIndex)) {
+            loadPage(pageIndex);
+        }
+        return page;
+    }
+    
+    private void loadPage(int pageIndex) {
+        long requested = generation;
+        String term = searchTerm;
+        String cat = category;
+        String[] previousEnd = pageIndex == 0 ? null : pageEndKeys.get(pageIndex - 1);
+        
+        pageLoader.execute(() -> {
+            long feedCursor = medicineController.getChangeFeed().currentCursor();
+            List<Medicine> page;
+            if (pageIndex == 0 || previousEnd != null) {
+                page = medicineController.findMedicinesPage(term, cat,
+                    previousEnd == null ? null : previousEnd[0],
+                    previousEnd == null ? null : previousEnd[1], 0, PAGE_SIZE);
+            } else {
+                // Jumped past pages we have never read (e.g. dragged the scrollbar): fall back to offset
+                page = medicineController.findMedicinesPage(term, cat, null, null,
+                    pageIndex * PAGE_SIZE, PAGE_SIZE);
+            }
+            SwingUtilities.invokeLater(() -> pageLoaded(requested, pageIndex, page, feedCursor));
+        });
+    }
+    
+    private void pageLoaded(long requested, int pageIndex, List<Medicine> page, long feedCursor) {
+        if (requested != generation) {
+            return; // filter changed while it was loading
+        }
+        int firstRow = pageIndex * PAGE_SIZE;
+        int lastRow = Math.min(firstRow + PAGE_SIZE, rowCount) - 1;
+        if (page.isEmpty() && firstRow <= lastRow) {
+            retryPage(requested, pageIndex, firstRow, lastRow);
+            return; // the read failed (or rows were deleted since the count); don't cache it as loaded
+        }
+        loadingPages.remove(pageIndex);
+        if (!page.isEmpty()) {
+            Medicine last = page.get(page.size() - 1);
+            pageEndKeys.put(pageIndex, new String[] {last.getName(), last.getId()});
+        }
+        pages.put(pageIndex, page);
+        pageCursors.put(pageIndex, feedCursor);
+        if (firstRow <= lastRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+        catchUp(feedCursor);
+    }
+    
+    // Keeps the page marked as loading until the delay passes, then repaints its rows so getValueAt reads it again
+    private void retryPage(long requested, int pageIndex, int firstRow, int lastRow) {
+        Timer retry = new Timer(PAGE_RETRY_MS, e -> {
+            if (requested == generation) {
+                loadingPages.remove(pageIndex);
+                fireTableRowsUpdated(firstRow, lastRow);
+            }
+        });
+        retry.setRepeats(false);
+        retry.start();
+    }
+    
+    /**
+     * Patches in stock changes published after freshly read rows were queried;
+     * the panel may have consumed them while the query ran. Rows skip what
+     * they already have, so the panel delivering the same changes is harmless.
+     */
+    private void catchUp(long feedCursor) {
+        ChangeFeed feed = medicineController.getChangeFeed();
+        long cursor = feedCursor;
+        while (true) {
+            ChangeFeed.Batch batch = feed.read(cursor, 256);
+            if (batch.isOverrun()) {
+                refresh(); // too far behind to patch; read the rows again
+                return;
+            }
+            if (batch.getEvents().isEmpty()) {
+                return;
+            }
+            for (StockChange change : batch.getEvents()) {
+                boolean stockOnly = change.getKind() == StockChange.Kind.SOLD || change.getKind() == StockChange.Kind.ADJUSTED;
+                if (stockOnly && change.getDelta() != StockChange.UNKNOWN) {
+                    applyStockDelta(change.getMedicineId(), change.getDelta(), change.getSequence());
+                }
+            }
+            cursor = batch.getNextCursor();
+        }
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 3 ? Integer.class : String.class;
+    }
+    
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // Read-only table for pharmacists
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        Medicine medicine = getMedicineAt(row);
+        if (medicine == null) {
+            return column == 1 ? LOADING : null; // placeholder until the page arrives
+        }
+        switch (column) {
+            case 0: return medicine.getId();
+            case 1: return medicine.getName();
+            case 2: return medicine.getCategory();
+            case 3: return medicine.getStock();
+            case 4: return String.format("$%.2f", medicine.getPrice());
+            case 5: return medicine.getExpiryDate() == null ? "" : medicine.getExpiryDate().toString();
+            case 6: return medicine.getSupplier();
+            case 7: return getStockStatus(medicine);
+            default: return null;
+        }
+    }
+    
+    static String getStockStatus(Medicine medicine) {
+        if (medicine.getStock() == 0) {
+            return "Out of Stock";
+        } else if (medicine.isLowStock()) {
+            return "Low Stock";
+        } else {
+            return "In Stock";
+        }
+    }
+}
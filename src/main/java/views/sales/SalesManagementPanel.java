@@ -7,9 +7,16 @@ import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.BorderFactory;
+import javax.swing.DefaultComboBoxModel;
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
@@ -25,6 +32,10 @@ import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SpinnerNumberModel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 
 import controllers.MedicineController;
@@ -42,6 +53,7 @@ public class SalesManagementPanel extends JPanel {
 
     
     private JTextField customerNameField;
+    private JTextField medicineSearchField;
     private JComboBox<Medicine> medicineComboBox;
     private JSpinner quantitySpinner;
     private JTable cartTable;
@@ -60,6 +72,19 @@ public class SalesManagementPanel extends JPanel {
     private List<CartItem> cartItems;
     private double currentTotal;
     
+    // The picker holds one keyset page of in-stock matches for the search term, never the catalog
+    private static final int PICKER_SIZE = 50;
+    private static final int PICKER_MAX_PAGES = 10;
+    private static final int SEARCH_DELAY_MS = 250;
+    private Timer pickerTimer;
+    private final ExecutorService pickerExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "sale-medicine-picker");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> pendingPickerLoad;
+    private long pickerGeneration; // EDT only; results from older loads are dropped
+    
     public SalesManagementPanel(User user) {
         this.currentUser = user;
         this.saleController = new SaleController();
@@ -70,6 +95,7 @@ public class SalesManagementPanel extends JPanel {
         initializeComponents();
         setupLayout();
         setupEventHandlers();
+        setupMedicineRenderer();
         loadMedicines();
         
         if (user.getRole() == User.UserRole.ADMIN) {
@@ -80,6 +106,7 @@ public class SalesManagementPanel extends JPanel {
     private void initializeComponents() {
         // New Sale Components
         customerNameField = new JTextField(20);
+        medicineSearchField = new JTextField(12);
         medicineComboBox = new JComboBox<>();
         quantitySpinner = new JSpinner(new SpinnerNumberModel(1, 1, 999, 1));
         
@@ -169,6 +196,8 @@ public class SalesManagementPanel extends JPanel {
         // Add Medicine Panel
         JPanel addMedicinePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         addMedicinePanel.setBorder(BorderFactory.createTitledBorder("Add Medicine to Cart"));
+        addMedicinePanel.add(new JLabel("Find:"));
+        addMedicinePanel.add(medicineSearchField);
         addMedicinePanel.add(new JLabel("Medicine:"));
         addMedicinePanel.add(medicineComboBox);
         addMedicinePanel.add(new JLabel("Quantity:"));
@@ -243,20 +272,74 @@ public class SalesManagementPanel extends JPanel {
         clearCartButton.addActionListener(e -> clearCart());
         completeSaleButton.addActionListener(e -> completeSale());
         
+        // Reload the picker once typing pauses
+        pickerTimer = new Timer(SEARCH_DELAY_MS, e -> loadMedicines());
+        pickerTimer.setRepeats(false);
+        medicineSearchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                pickerTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                pickerTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                pickerTimer.restart();
+            }
+        });
+        
         // Update buttons state
         updateButtonStates();
     }
     
+    /**
+     * Fills the picker with the first PICKER_SIZE in-stock medicines matching
+     * the search term, read by keyset pages on a background thread, so memory
+     * and latency do not grow with the catalog. A load still in flight is
+     * cancelled and its result ignored.
+     */
     private void loadMedicines() {
-        medicineComboBox.removeAllItems();
-        List<Medicine> medicines = medicineController.getAllMedicines();
-        
-        for (Medicine medicine : medicines) {
-            if (medicine.getStock() > 0) { // Only show medicines with stock
-                medicineComboBox.addItem(medicine);
-            }
+        pickerTimer.stop();
+        String searchTerm = medicineSearchField.getText().trim();
+        if (pendingPickerLoad != null) {
+            pendingPickerLoad.cancel(true);
         }
-        
+        long generation = ++pickerGeneration;
+        
+        pendingPickerLoad = pickerExecutor.submit(() -> {
+            Vector<Medicine> medicines = new Vector<>();
+            String afterName = null;
+            String afterId = null;
+            for (int page = 0; page < PICKER_MAX_PAGES && medicines.size() < PICKER_SIZE; page++) {
+                List<Medicine> rows = medicineController.findMedicinesPage(searchTerm, null, afterName, afterId, 0, PICKER_SIZE);
+                for (Medicine medicine : rows) {
+                    if (medicine.getStock() > 0 && medicines.size() < PICKER_SIZE) { // Only show medicines with stock
+                        medicines.add(medicine);
+                    }
+                }
+                if (rows.size() < PICKER_SIZE || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                Medicine last = rows.get(rows.size() - 1);
+                afterName = last.getName();
+                afterId = last.getId();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (generation == pickerGeneration) {
+                    medicineComboBox.setModel(new DefaultComboBoxModel<>(medicines));
+                }
+            });
+        });
+    }
+    
+    private void setupMedicineRenderer() {
         // Custom renderer to show medicine details
         medicineComboBox.setRenderer(new DefaultListCellRenderer() {
             @Override
@@ -362,25 +445,27 @@ public class SalesManagementPanel extends JPanel {
             return;
         }
         
-        // Create new sale
-        Sale sale = saleController.createNewSale(customerName, currentUser.getId());
-        
-        // Add items to sale
-        boolean success = true;
+        // Build the sale from the cart and commit it in one transaction
+        Map<Medicine, Integer> items = new LinkedHashMap<>();
         for (CartItem item : cartItems) {
-            if (!saleController.addItemToSale(sale.getId(), item.getMedicine().getId(), item.getQuantity())) {
-                success = false;
-                break;
-            }
+            items.put(item.getMedicine(), item.getQuantity());
         }
+        Sale sale = saleController.processSale(customerName, currentUser.getId(), items);
         
-        if (success && saleController.completeSale(sale.getId())) {
+        if (sale != null) {
             // Show receipt
             showReceipt(sale);
             
             // Clear form
             customerNameField.setText("");
             clearCart();
+            
+            // A sale without an id was journaled offline; don't wait on the database to refresh
+            if (sale.getId() == null) {
+                JOptionPane.showMessageDialog(this, "Sale recorded offline. It will be uploaded when the database is reachable.",
+                                            "Offline", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             loadMedicines(); // Refresh medicine list with updated stock
             
             if (currentUser.getRole() == User.UserRole.ADMIN) {
@@ -397,7 +482,7 @@ public class SalesManagementPanel extends JPanel {
         StringBuilder receipt = new StringBuilder();
         receipt.append("PHARMACY RECEIPT\n");
         receipt.append("================\n\n");
-        receipt.append("Invoice ID: ").append(sale.getId()).append("\n");
+        receipt.append("Invoice ID: ").append(sale.getId() != null ? sale.getId() : "Pending (offline)").append("\n");
         receipt.append("Date: ").append(sale.getSaleDate().toLocalDate()).append("\n");
         receipt.append("Time: ").append(sale.getSaleDate().toLocalTime().toString().substring(0, 8)).append("\n");
         receipt.append("Customer: ").append(sale.getCustomerName()).append("\n");
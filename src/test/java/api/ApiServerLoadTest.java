@@ -0,0 +1,111 @@
+package api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import utils.MockDatabase;
+
+/**
+ * Load test against a local ApiServer over a mocked database: load.clients
+ * dashboard clients (default 2000) each issue load.requests requests
+ * (default 5) back to back, all clients at once. The client is asynchronous,
+ * so the test itself needs no thread per client either. It takes tens of
+ * seconds, so it is skipped unless load.clients is set:
+ *   mvn test -Dtest=ApiServerLoadTest -Dload.clients=2000
+ */
+@EnabledIfSystemProperty(named = "load.clients", matches = "\\d+")
+class ApiServerLoadTest {
+    private static final int CLIENTS = Integer.getInteger("load.clients", 2000);
+    private static final int REQUESTS_PER_CLIENT = Integer.getInteger("load.requests", 5);
+    private static final String[] PATHS = {
+        "/api/dashboard", "/api/medicines/search?q=cil&limit=20", "/api/medicines/low-stock", "/api/medicines/categories"
+    };
+    
+    @Test
+    void thousandsOfConcurrentClientsAreServed() throws Exception {
+        try (MockDatabase database = new MockDatabase(2000)) {
+            ApiServer server = new ApiServer("127.0.0.1", 0);
+            server.start();
+            try {
+                run("http://127.0.0.1:" + server.getPort());
+            } finally {
+                server.stop(0);
+            }
+        }
+    }
+    
+    private void run(String baseUrl) {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(30))
+            .build();
+        ConcurrentHashMap<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> clients = new ArrayList<>();
+        for (int c = 0; c < CLIENTS; c++) {
+            CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+            for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + PATHS[(c + r) % PATHS.length]))
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+                chain = chain.thenCompose(ignored -> {
+                    long sent = System.nanoTime();
+                    return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .thenAccept(response -> {
+                            latencies.add(System.nanoTime() - sent);
+                            statuses.computeIfAbsent(response.statusCode(), s -> new AtomicInteger()).incrementAndGet();
+                        })
+                        .exceptionally(e -> {
+                            failures.add(e);
+                            return null;
+                        });
+                });
+            }
+            clients.add(chain);
+        }
+        CompletableFuture.allOf(clients.toArray(new CompletableFuture[0])).join();
+        long elapsedNanos = System.nanoTime() - start;
+        
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+        int ok = statuses.getOrDefault(200, new AtomicInteger()).get();
+        int overloaded = statuses.getOrDefault(503, new AtomicInteger()).get();
+        System.out.printf("ApiServer: %d clients x %d requests in %d ms (%.0f req/sec, p50 %.1f ms, p99 %.1f ms, "
+                          + "%d ok, %d answered 503, %d failed)%n",
+                          CLIENTS, REQUESTS_PER_CLIENT, elapsedNanos / 1_000_000,
+                          sorted.length / (elapsedNanos / 1e9), percentile(sorted, 50), percentile(sorted, 99),
+                          ok, overloaded, failures.size());
+        
+        assertTrue(failures.isEmpty(), () -> "Connection failures, first: " + failures.peek());
+        // Overload is answered with 503; anything else is a bug
+        assertEquals(CLIENTS * REQUESTS_PER_CLIENT, ok + overloaded, statuses::toString);
+        assertTrue(ok > 0);
+    }
+    
+    private static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percent / 100.0 * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,80 @@
+package api;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import utils.MockDatabase;
+
+/**
+ * Writes must not be reachable by a page on another origin: bodies that
+ * skip the CORS preflight are refused, sales need a login token, and login
+ * attempts are throttled per client.
+ */
+class ApiServerSecurityTest {
+    private static final String SALE = "{\"customerName\":\"Walk-in\",\"cashierId\":\"U001\","
+                                       + "\"items\":[{\"medicineId\":\"M000001\",\"quantity\":1}]}";
+    
+    private MockDatabase database;
+    private ApiServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new MockDatabase(100);
+        server = new ApiServer("127.0.0.1", 0);
+        server.start();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        server.stop(0);
+        database.close();
+    }
+    
+    @Test
+    void crossOriginSimplePostIsRejected() throws Exception {
+        HttpResponse<String> response = post("/api/sales", "text/plain", SALE, null);
+        assertEquals(415, response.statusCode());
+        response = post("/api/sales", "application/x-www-form-urlencoded", SALE, null);
+        assertEquals(415, response.statusCode());
+    }
+    
+    @Test
+    void saleWithoutTokenIsUnauthorized() throws Exception {
+        assertEquals(401, post("/api/sales", "application/json", SALE, null).statusCode());
+        HttpResponse<String> response = post("/api/sales", "application/json; charset=utf-8", SALE, "Bearer forged");
+        assertEquals(401, response.statusCode());
+        assertNotNull(response.headers().firstValue("WWW-Authenticate").orElse(null));
+    }
+    
+    @Test
+    void loginAttemptsAreThrottledPerClient() throws Exception {
+        String body = "{\"username\":\"admin\",\"password\":\"guess\"}";
+        for (int attempt = 0; attempt < 5; attempt++) {
+            assertEquals(401, post("/api/users/login", "application/json", body, null).statusCode());
+        }
+        HttpResponse<String> response = post("/api/users/login", "application/json", body, null);
+        assertEquals(429, response.statusCode());
+        assertNotNull(response.headers().firstValue("Retry-After").orElse(null));
+    }
+    
+    private HttpResponse<String> post(String path, String contentType, String body, String authorization)
+            throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+            .header("Content-Type", contentType)
+            .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,79 @@
+package api;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import models.StockChange;
+import utils.ChangeFeed;
+
+/**
+ * A subscriber that stops reading must not hold up delivery to the others.
+ */
+class ChangeStreamTest {
+    
+    @Test
+    void stalledClientDoesNotBlockOthers() throws Exception {
+        ChangeFeed feed = new ChangeFeed();
+        ChangeStream stream = new ChangeStream(feed);
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(1);
+        try {
+            // Blocks on its first event frame, like a socket whose peer's window is full
+            stream.open(exchange(new OutputStream() {
+                @Override
+                public void write(int b) {
+                }
+                
+                @Override
+                public void write(byte[] b, int off, int len) throws java.io.IOException {
+                    if (new String(b, off, len, StandardCharsets.UTF_8).contains("event: stock")) {
+                        stalled.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            throw new java.io.InterruptedIOException();
+                        }
+                    }
+                }
+            }), -1);
+            ByteArrayOutputStream received = new ByteArrayOutputStream() {
+                @Override
+                public synchronized void write(byte[] b, int off, int len) {
+                    super.write(b, off, len);
+                    if (toString(StandardCharsets.UTF_8).contains("M000002")) {
+                        delivered.countDown();
+                    }
+                }
+            };
+            stream.open(exchange(received), -1);
+            
+            feed.publish("M000001", StockChange.Kind.SOLD, -1, StockChange.UNKNOWN);
+            assertTrue(stalled.await(5, TimeUnit.SECONDS));
+            feed.publish("M000002", StockChange.Kind.SOLD, -1, StockChange.UNKNOWN);
+            assertTrue(delivered.await(5, TimeUnit.SECONDS), "healthy client starved behind the stalled one");
+        } finally {
+            release.countDown();
+            stream.shutdown();
+        }
+    }
+    
+    private static HttpExchange exchange(OutputStream body) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(body);
+        return exchange;
+    }
+}
@@ -0,0 +1,170 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import models.Medicine;
+import models.Sale;
+import utils.DatabaseConnection;
+
+/**
+ * Sales committed per second through SaleDAO.createSale: each sale is the
+ * header plus its items in one transaction, the items as one JDBC batch.
+ * Without -Ddb.url it runs against an in-memory H2 database in MySQL mode.
+ * Against MySQL (use a scratch copy of the schema: it needs one user and a
+ * few medicines, and the benchmark's sales are deleted afterwards):
+ *   java -cp target/test-classes:target/classes:$(cat target/test.cp) \
+ *        -Ddb.url=jdbc:mysql://localhost:3306/pms dao.SaleThroughputBenchmark
+ * Options: -Dbench.threads (4), -Dbench.seconds (10), -Dbench.items (5).
+ */
+public class SaleThroughputBenchmark {
+    private static final int THREADS = Integer.getInteger("bench.threads", 4);
+    private static final int SECONDS = Integer.getInteger("bench.seconds", 10);
+    private static final int ITEMS = Integer.getInteger("bench.items", 5);
+    // Sale ids are assigned here ("B" + thread + counter) so they are easy to clean up
+    private static final String ID_PREFIX = "B";
+    
+    public static void main(String[] args) throws Exception {
+        boolean embedded = System.getProperty("db.url") == null;
+        if (embedded) {
+            System.setProperty("db.url", "jdbc:h2:mem:pms;MODE=MySQL;DB_CLOSE_DELAY=-1");
+            System.setProperty("db.driver", "org.h2.Driver");
+            System.setProperty("db.username", "sa");
+            System.setProperty("db.password", "");
+            System.setProperty("db.pool.maxSize", String.valueOf(THREADS));
+        }
+        DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+        if (embedded) {
+            createTables(dbConnection);
+        }
+        String cashierId = firstId(dbConnection, "users");
+        List<Medicine> medicines = medicines(dbConnection);
+        
+        SaleDAO saleDAO = new SaleDAO();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1 + SECONDS);
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        
+        // One second of warm-up, then count sales committed until the deadline
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(pool.submit(() -> {
+                start.await();
+                long committed = 0;
+                long failed = 0;
+                long latencyNanos = 0;
+                for (int n = 0; System.nanoTime() < deadline; n++) {
+                    Sale sale = new Sale("Benchmark", cashierId);
+                    sale.setId(String.format("%s%02d%06d", ID_PREFIX, thread, n));
+                    for (int i = 0; i < ITEMS; i++) {
+                        sale.addItem(medicines.get((n + i) % medicines.size()), 1 + i);
+                    }
+                    sale.completeSale();
+                    long begin = System.nanoTime();
+                    boolean ok = saleDAO.createSale(sale);
+                    if (begin >= measureFrom) {
+                        if (ok) {
+                            committed++;
+                            latencyNanos += System.nanoTime() - begin;
+                        } else {
+                            failed++;
+                        }
+                    }
+                }
+                return new long[] {committed, failed, latencyNanos};
+            }));
+        }
+        start.countDown();
+        long committed = 0;
+        long failed = 0;
+        long latencyNanos = 0;
+        for (Future<long[]> result : results) {
+            long[] r = result.get();
+            committed += r[0];
+            failed += r[1];
+            latencyNanos += r[2];
+        }
+        pool.shutdown();
+        
+        System.out.printf("%s, %d threads, %d items per sale: %d sales in %d s = %.0f sales/sec "
+                          + "(%.0f items/sec, %.2f ms mean commit, %d failed)%n",
+                          embedded ? "H2 in-memory (MySQL mode)" : System.getProperty("db.url"),
+                          THREADS, ITEMS, committed, SECONDS, committed / (double) SECONDS,
+                          committed * ITEMS / (double) SECONDS,
+                          committed == 0 ? 0 : latencyNanos / 1e6 / committed, failed);
+        
+        if (!embedded) {
+            execute(dbConnection, "DELETE FROM sales WHERE id LIKE '" + ID_PREFIX + "%'");
+        }
+        dbConnection.closeConnection();
+    }
+    
+    // Just the columns SaleDAO writes and reads, without the MySQL-only parts of schema.sql
+    private static void createTables(DatabaseConnection dbConnection) throws SQLException {
+        execute(dbConnection, "CREATE TABLE users (id VARCHAR(10) PRIMARY KEY)");
+        execute(dbConnection, "CREATE TABLE medicines (id VARCHAR(10) PRIMARY KEY, name VARCHAR(200) NOT NULL, "
+                              + "price DECIMAL(10,2) NOT NULL)");
+        execute(dbConnection, "CREATE TABLE sales (id VARCHAR(10) PRIMARY KEY, customer_id VARCHAR(10), "
+                              + "customer_name VARCHAR(100) NOT NULL, sale_date DATETIME, total_amount DECIMAL(10,2), "
+                              + "discount DECIMAL(10,2), final_amount DECIMAL(10,2), status VARCHAR(10), "
+                              + "cashier_id VARCHAR(10) NOT NULL REFERENCES users(id))");
+        // No surrogate key on sale_items: H2's MySQL-mode auto-increment hands out duplicates under concurrent batches
+        execute(dbConnection, "CREATE TABLE sale_items ("
+                              + "sale_id VARCHAR(10) NOT NULL REFERENCES sales(id) ON DELETE CASCADE, "
+                              + "medicine_id VARCHAR(10) NOT NULL REFERENCES medicines(id), medicine_name VARCHAR(200) NOT NULL, "
+                              + "price DECIMAL(10,2) NOT NULL, quantity INT NOT NULL, subtotal DECIMAL(10,2) NOT NULL)");
+        execute(dbConnection, "CREATE INDEX idx_sale_id ON sale_items (sale_id)");
+        execute(dbConnection, "INSERT INTO users VALUES ('USR001')");
+        for (int i = 1; i <= 20; i++) {
+            execute(dbConnection, String.format("INSERT INTO medicines VALUES ('MED%03d', 'Medicine %d', %d.50)", i, i, i));
+        }
+    }
+    
+    private static String firstId(DatabaseConnection dbConnection, String table) throws SQLException {
+        try (Connection conn = dbConnection.getDataSource().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM " + table + " ORDER BY id LIMIT 1")) {
+            if (!rs.next()) {
+                throw new SQLException("The benchmark needs at least one row in " + table);
+            }
+            return rs.getString(1);
+        }
+    }
+    
+    private static List<Medicine> medicines(DatabaseConnection dbConnection) throws SQLException {
+        List<Medicine> medicines = new ArrayList<>();
+        try (Connection conn = dbConnection.getDataSource().getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name, price FROM medicines ORDER BY id LIMIT 20")) {
+            while (rs.next()) {
+                Medicine medicine = new Medicine();
+                medicine.setId(rs.getString("id"));
+                medicine.setName(rs.getString("name"));
+                medicine.setPrice(rs.getDouble("price"));
+                medicines.add(medicine);
+            }
+        }
+        if (medicines.isEmpty()) {
+            throw new SQLException("The benchmark needs at least one row in medicines");
+        }
+        return medicines;
+    }
+    
+    private static void execute(DatabaseConnection dbConnection, String sql) throws SQLException {
+        try (Connection conn = dbConnection.getDataSource().getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import models.StockChange;
+
+class ChangeFeedTest {
+    
+    @Test
+    void readsEventsInOrderFromTheCursor() {
+        ChangeFeed feed = new ChangeFeed();
+        long cursor = feed.currentCursor();
+        feed.publish("MED001", StockChange.Kind.SOLD, -2, StockChange.UNKNOWN);
+        feed.publish("MED002", StockChange.Kind.ADJUSTED, 5, StockChange.UNKNOWN);
+        
+        ChangeFeed.Batch batch = feed.read(cursor, 10);
+        
+        assertFalse(batch.isOverrun());
+        assertEquals(2, batch.getEvents().size());
+        assertEquals("MED001", batch.getEvents().get(0).getMedicineId());
+        assertEquals(feed.currentCursor(), batch.getNextCursor());
+    }
+    
+    @Test
+    void cursorAheadOfTheFeedIsAnOverrun() {
+        // e.g. an SSE client's Last-Event-ID from before the server restarted
+        ChangeFeed feed = new ChangeFeed();
+        feed.publish("MED001", StockChange.Kind.SOLD, -1, StockChange.UNKNOWN);
+        
+        ChangeFeed.Batch batch = feed.read(500, 10);
+        
+        assertTrue(batch.isOverrun());
+        assertTrue(batch.getEvents().isEmpty());
+        assertEquals(feed.currentCursor(), batch.getNextCursor());
+        
+        feed.publish("MED002", StockChange.Kind.SOLD, -1, StockChange.UNKNOWN);
+        ChangeFeed.Batch next = feed.read(batch.getNextCursor(), 10);
+        assertFalse(next.isOverrun());
+        assertEquals("MED002", next.getEvents().get(0).getMedicineId());
+    }
+    
+    @Test
+    void cursorLappedByProducersIsAnOverrun() {
+        ChangeFeed feed = new ChangeFeed();
+        long cursor = feed.currentCursor();
+        for (int i = 0; i < 10_000; i++) {
+            feed.publish("MED" + i, StockChange.Kind.SOLD, -1, StockChange.UNKNOWN);
+        }
+        
+        ChangeFeed.Batch batch = feed.read(cursor, 10);
+        
+        assertTrue(batch.isOverrun());
+        assertEquals(10, batch.getEvents().size());
+    }
+}
@@ -0,0 +1,85 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class IdAllocatorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 5_000;
+    
+    // Stands in for the id_sequences row: one atomic add per reservation, with a round trip's delay
+    private static class FakeSequenceTable implements IdAllocator.BlockReserver {
+        final AtomicLong nextValue = new AtomicLong(1);
+        final AtomicInteger reservations = new AtomicInteger();
+        
+        @Override
+        public long reserve(String prefix, int size) {
+            reservations.incrementAndGet();
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return nextValue.addAndGet(size);
+        }
+    }
+    
+    @Test
+    void concurrentCallersNeverShareAnId() throws Exception {
+        FakeSequenceTable table = new FakeSequenceTable();
+        IdAllocator allocator = new IdAllocator(table, 50);
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Callable<Integer> worker = () -> {
+                start.await();
+                int duplicates = 0;
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    if (!ids.add(allocator.nextId(IdAllocator.SALE))) {
+                        duplicates++;
+                    }
+                }
+                return duplicates;
+            };
+            results.add(pool.submit(worker));
+        }
+        
+        start.countDown();
+        int duplicates = 0;
+        for (Future<Integer> result : results) {
+            duplicates += result.get();
+        }
+        pool.shutdown();
+        
+        int total = THREADS * IDS_PER_THREAD;
+        assertEquals(0, duplicates);
+        assertEquals(total, ids.size());
+        // One row update per block, not per id
+        assertTrue(table.reservations.get() <= total / 50 + THREADS);
+    }
+    
+    @Test
+    void idsPastNineHundredNinetyNineKeepAllDigits() {
+        assertEquals("INV007", IdAllocator.format(IdAllocator.SALE, 7));
+        assertEquals("INV999", IdAllocator.format(IdAllocator.SALE, 999));
+        assertEquals("INV1000", IdAllocator.format(IdAllocator.SALE, 1000));
+        assertEquals("INV123456", IdAllocator.format(IdAllocator.SALE, 123456));
+    }
+}
@@ -0,0 +1,96 @@
+package utils;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import models.InventoryReport;
+import models.InventorySnapshot;
+import models.Medicine;
+
+/**
+ * One fork/join pass over a 1M-SKU snapshot at 1, 2, 4 and 8 threads, against
+ * computing each report aggregate in its own sequential loop. Speedup is
+ * sequentialPerAggregate (or forkJoin at 1 thread) divided by forkJoin at n
+ * threads; it is bounded by the cores of the machine running it. Run like
+ * MedicineSearchBenchmark:
+ *   java -cp target/test-classes:target/classes:$(cat target/test.cp) utils.InventoryAnalyticsBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class InventoryAnalyticsBenchmark {
+    @Param({"1000000"})
+    public int catalogSize;
+    
+    private final LocalDate today = LocalDate.now();
+    private InventorySnapshot snapshot;
+    
+    // Separate state so only forkJoin is run once per thread count
+    @State(Scope.Benchmark)
+    public static class Pool {
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+        
+        InventoryAnalytics analytics;
+        
+        @Setup
+        public void setUp() {
+            analytics = new InventoryAnalytics(threads);
+        }
+        
+        @TearDown
+        public void tearDown() {
+            analytics.shutdown();
+        }
+    }
+    
+    @Setup
+    public void setUp() {
+        InventorySnapshot.Builder builder = new InventorySnapshot.Builder();
+        for (Medicine medicine : TestCatalog.generate(catalogSize, 42)) {
+            builder.add(medicine);
+        }
+        snapshot = builder.build();
+    }
+    
+    @Benchmark
+    public InventoryReport forkJoin(Pool pool) {
+        return pool.analytics.analyze(snapshot, today);
+    }
+    
+    // The report as it was computed before: one pass over the catalog per aggregate (no expiry histogram)
+    @Benchmark
+    public void sequentialPerAggregate(Blackhole blackhole) {
+        blackhole.consume(snapshot.getTotalInventoryValueCents());
+        blackhole.consume(snapshot.getLowStockCount());
+        blackhole.consume(snapshot.getOutOfStockCount());
+        blackhole.consume(snapshot.getExpiredCount(today));
+        blackhole.consume(snapshot.getExpiringSoonCount(today, 30));
+        blackhole.consume(snapshot.countByCategory());
+        blackhole.consume(snapshot.valueCentsByCategory());
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(InventoryAnalyticsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
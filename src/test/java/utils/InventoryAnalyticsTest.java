@@ -0,0 +1,56 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import models.InventoryReport;
+import models.InventorySnapshot;
+import models.Medicine;
+
+class InventoryAnalyticsTest {
+    private static final LocalDate TODAY = LocalDate.of(2026, 1, 15);
+    
+    @Test
+    void parallelPassMatchesTheSequentialAggregates() {
+        List<Medicine> catalog = TestCatalog.generate(50_000, 5);
+        catalog.get(0).setExpiryDate(null);
+        catalog.get(1).setStock(0);
+        InventorySnapshot.Builder builder = new InventorySnapshot.Builder();
+        catalog.forEach(builder::add);
+        InventorySnapshot snapshot = builder.build();
+        
+        for (int threads : new int[] {1, 4}) {
+            InventoryAnalytics analytics = new InventoryAnalytics(threads);
+            InventoryReport report = analytics.analyze(snapshot, TODAY);
+            analytics.shutdown();
+            
+            assertEquals(snapshot.size(), report.getTotalMedicines());
+            assertEquals(snapshot.getTotalInventoryValue(), report.getTotalInventoryValue(), 0.001);
+            assertEquals(snapshot.getLowStockCount(), report.getLowStockCount());
+            assertEquals(snapshot.getOutOfStockCount(), report.getOutOfStockCount());
+            assertEquals(snapshot.getExpiredCount(TODAY), report.getExpiredCount());
+            assertEquals(snapshot.getExpiringSoonCount(TODAY, 30), report.getExpiringSoonCount());
+            assertArrayEquals(snapshot.countByCategory(), report.getCountByCategory());
+            assertArrayEquals(histogram(catalog), report.getExpiryHistogram());
+        }
+    }
+    
+    private static int[] histogram(List<Medicine> catalog) {
+        int[] buckets = new int[InventoryReport.EXPIRY_BUCKETS.length];
+        for (Medicine medicine : catalog) {
+            if (medicine.getExpiryDate() == null) {
+                buckets[6]++;
+                continue;
+            }
+            long days = ChronoUnit.DAYS.between(TODAY, medicine.getExpiryDate());
+            buckets[days < 0 ? 0 : days <= 30 ? 1 : days <= 90 ? 2 : days <= 180 ? 3 : days <= 365 ? 4 : 5]++;
+        }
+        return buckets;
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import models.Medicine;
+
+/**
+ * A row read before an invalidation must not be cached after it.
+ */
+class MedicineCacheTest {
+    
+    @Test
+    void rowReadBeforeInvalidationIsRefused() {
+        MedicineCache cache = new MedicineCache(100, 30_000);
+        Medicine stale = medicine("M000001", 10);
+        
+        long token = cache.loadToken();
+        cache.invalidate("M000001"); // a write lands while the row is being read
+        assertFalse(cache.put(stale, token));
+        assertNull(cache.get("M000001"));
+        
+        assertTrue(cache.put(medicine("M000001", 7), cache.loadToken()));
+        assertEquals(7, cache.get("M000001").getStock());
+    }
+    
+    @Test
+    void invalidatingAnotherIdDoesNotRefuse() {
+        MedicineCache cache = new MedicineCache(100, 30_000);
+        long token = cache.loadToken();
+        cache.invalidate("M000002");
+        assertTrue(cache.put(medicine("M000001", 10), token));
+    }
+    
+    @Test
+    void forgottenInvalidationsRefuseOlderLoads() {
+        MedicineCache cache = new MedicineCache(2, 30_000);
+        long token = cache.loadToken();
+        cache.invalidate("M000001");
+        cache.invalidate("M000002");
+        cache.invalidate("M000003"); // M000001's stamp is forgotten
+        assertFalse(cache.put(medicine("M000001", 10), token));
+        
+        token = cache.loadToken();
+        cache.clear();
+        assertFalse(cache.put(medicine("M000004", 10), token));
+    }
+    
+    private static Medicine medicine(String id, int stock) {
+        Medicine medicine = new Medicine(TestCatalog.generate(1, 1).get(0));
+        medicine.setId(id);
+        medicine.setStock(stock);
+        return medicine;
+    }
+}
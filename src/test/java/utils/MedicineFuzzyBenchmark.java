@@ -0,0 +1,59 @@
+package utils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BK-tree fuzzy lookup over a synthetic catalog of 100k names, at the edit
+ * distances MedicineController uses. Run like MedicineSearchBenchmark:
+ *   java -cp target/test-classes:target/classes:$(cat target/test.cp) utils.MedicineFuzzyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedicineFuzzyBenchmark {
+    @Param({"100000"})
+    public int catalogSize;
+    
+    // Misspellings of catalog words, a whole-name typo, and a term close to nothing
+    @Param({"amoxcilin", "paracetmol", "ibuprofen", "zzqxwv"})
+    public String term;
+    
+    @Param({"1", "2"})
+    public int maxDistance;
+    
+    private MedicineFuzzyIndex index;
+    
+    @Setup
+    public void setUp() {
+        index = new MedicineFuzzyIndex();
+        index.rebuild(TestCatalog.generate(catalogSize, 42));
+    }
+    
+    @Benchmark
+    public List<String> bkTree() {
+        return index.search(term, maxDistance, Integer.MAX_VALUE);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MedicineFuzzyBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,87 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import models.Medicine;
+
+class MedicineFuzzyIndexTest {
+    private List<Medicine> catalog;
+    private MedicineFuzzyIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        catalog = new ArrayList<>(TestCatalog.generate(3000, 11));
+        index = new MedicineFuzzyIndex();
+        index.rebuild(catalog);
+    }
+    
+    @Test
+    void matchesTheSameMedicinesAsABruteForceScan() {
+        for (String term : new String[] {"amoxcilin", "paracetmol", "ibuprofen", "cetirizin", "tablts", "zzqxwv"}) {
+            for (int maxDistance = 1; maxDistance <= 2; maxDistance++) {
+                assertEquals(bruteForce(term, maxDistance),
+                             index.search(term, maxDistance, Integer.MAX_VALUE).stream().sorted().collect(Collectors.toList()),
+                             term + " within " + maxDistance);
+            }
+        }
+    }
+    
+    @Test
+    void bitParallelDistanceAgreesWithTheDynamicProgram() {
+        String[] words = {"", "a", "ibuprofen", "ibuprophen", "paracetamol", "amoxicillin", "amoxicilin", "café", "cafe"};
+        for (String a : words) {
+            for (String b : words) {
+                int expected = MedicineFuzzyIndex.distance(a, b.toCharArray());
+                List<String> hits = singleTermIndex(b).search(a, expected, 1);
+                assertEquals(!a.isEmpty() && !b.isEmpty(), !hits.isEmpty(), a + " / " + b);
+                if (expected > 0 && !a.isEmpty() && !b.isEmpty()) {
+                    assertTrue(singleTermIndex(b).search(a, expected - 1, 1).isEmpty(), a + " / " + b);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void editsAfterARebuildAreFound() {
+        Medicine medicine = catalog.get(0);
+        medicine.setName("Ibuprofen 200mg Tablets");
+        index.put(medicine);
+        assertEquals(medicine.getId(), index.search("ibuprofn", 1, 10).get(0));
+        
+        index.remove(medicine.getId());
+        assertFalse(index.search("ibuprofn", 1, 10).contains(medicine.getId()));
+    }
+    
+    private static MedicineFuzzyIndex singleTermIndex(String name) {
+        Medicine medicine = new Medicine(name, "Vitamins", 1, 1.0, null, "Supplier", 1);
+        medicine.setId("MED000001");
+        MedicineFuzzyIndex single = new MedicineFuzzyIndex();
+        single.rebuild(List.of(medicine));
+        return single;
+    }
+    
+    // Same terms as the index: the whole name and each word of four or more characters
+    private List<String> bruteForce(String term, int maxDistance) {
+        List<String> ids = new ArrayList<>();
+        for (Medicine medicine : catalog) {
+            String name = medicine.getName().toLowerCase();
+            boolean match = MedicineFuzzyIndex.distance(term, name.toCharArray()) <= maxDistance;
+            for (String word : name.split("[^\\p{L}\\p{N}]+")) {
+                match |= word.length() >= 4 && MedicineFuzzyIndex.distance(term, word.toCharArray()) <= maxDistance;
+            }
+            if (match) {
+                ids.add(medicine.getId());
+            }
+        }
+        return ids.stream().sorted().collect(Collectors.toList());
+    }
+}
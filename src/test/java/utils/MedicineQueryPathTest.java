@@ -0,0 +1,74 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import controllers.MedicineController;
+import dao.MedicineDAO;
+
+/**
+ * The MedicineController filters, lists and statistics must be answered by
+ * targeted queries or the in-memory indexes, never by loading the whole
+ * medicines table. Runs a real DatabaseManager over mocked DAOs, with the
+ * indexes built before the calls under test.
+ */
+class MedicineQueryPathTest {
+    private MockDatabase database;
+    private MedicineController controller;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new MockDatabase(500);
+        assertTrue(DatabaseManager.getInstance().awaitCatalogIndexes());
+        // Building the indexes is the one catalog read; nothing after it may scan the table
+        MedicineDAO dao = database.getMedicineDAO();
+        verify(dao, times(1)).forEachMedicine(anyInt(), any());
+        clearInvocations(dao);
+        controller = new MedicineController();
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+    
+    @Test
+    void filtersAndStatisticsNeverLoadTheWholeTable() {
+        assertFalse(controller.searchMedicines("cil").isEmpty());
+        controller.searchMedicines("", 20);
+        controller.fuzzySearchMedicines("amoxicilin");
+        controller.searchMedicinesTolerant("zzq");
+        controller.getMedicinesByCategory("Antibiotics");
+        controller.filterMedicines(Collections.singleton("Antibiotics"),
+                                   EnumSet.of(MedicineBitmapIndex.StockLevel.LOW_STOCK), null);
+        controller.getLowStockMedicines();
+        controller.getOutOfStockMedicines();
+        controller.getExpiredMedicines();
+        controller.getExpiringSoonMedicines(30);
+        controller.getExpiringSoonMedicines(90);
+        controller.getCategories();
+        controller.getSuppliers();
+        assertEquals(database.getCatalog().size(), controller.getTotalMedicineCount());
+        controller.getLowStockCount();
+        controller.getTotalInventoryValue();
+        DatabaseManager.getInstance().getDashboardStats();
+        
+        MedicineDAO dao = database.getMedicineDAO();
+        verify(dao, never()).getAllMedicines();
+        verify(dao, never()).forEachMedicine(anyInt(), any());
+    }
+}
@@ -0,0 +1,73 @@
+package utils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import models.Medicine;
+
+/**
+ * Trigram index search against the stream filter it replaced, over a
+ * synthetic catalog. Run with:
+ *   mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/test.cp
+ *   java -cp target/test-classes:target/classes:$(cat target/test.cp) utils.MedicineSearchBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedicineSearchBenchmark {
+    @Param({"10000", "100000"})
+    public int catalogSize;
+    
+    // Selective substring, short prefix, exact id, and a term that matches nothing
+    @Param({"cilli", "am", "MED004217", "zzq"})
+    public String term;
+    
+    private List<Medicine> catalog;
+    private MedicineSearchIndex index;
+    
+    @Setup
+    public void setUp() {
+        catalog = TestCatalog.generate(catalogSize, 42);
+        index = new MedicineSearchIndex();
+        index.rebuild(catalog);
+    }
+    
+    @Benchmark
+    public List<String> trigramIndex() {
+        return index.search(term);
+    }
+    
+    @Benchmark
+    public List<String> streamFilter() {
+        String query = term.toLowerCase();
+        return catalog.stream()
+            .filter(medicine -> medicine.getName().toLowerCase().contains(query)
+                             || medicine.getId().toLowerCase().contains(query)
+                             || medicine.getCategory().toLowerCase().contains(query))
+            .map(Medicine::getId)
+            .collect(Collectors.toList());
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MedicineSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,59 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import models.Medicine;
+
+class MedicineSearchIndexTest {
+    private List<Medicine> catalog;
+    private MedicineSearchIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        catalog = TestCatalog.generate(2000, 7);
+        index = new MedicineSearchIndex();
+        index.rebuild(catalog);
+    }
+    
+    @Test
+    void emptyTermReturnsEveryMedicine() {
+        assertEquals(catalog.size(), index.search("").size());
+        assertEquals(catalog.size(), index.search("   ").size());
+    }
+    
+    @Test
+    void resultsAreNotCappedUnlessAskedTo() {
+        List<String> all = index.search("a");
+        assertTrue(all.size() > 200);
+        assertEquals(10, index.search("a", 10).size());
+        assertEquals(all.subList(0, 10), index.search("a", 10));
+    }
+    
+    @Test
+    void matchesTheSameMedicinesAsASubstringScan() {
+        for (String term : new String[] {"cil", "am", "ta", "MED0012", "antib", "zzq"}) {
+            String query = term.toLowerCase();
+            List<String> expected = catalog.stream()
+                .filter(m -> m.getName().toLowerCase().contains(query)
+                          || m.getId().toLowerCase().contains(query)
+                          || m.getCategory().toLowerCase().contains(query))
+                .map(Medicine::getId)
+                .sorted()
+                .collect(Collectors.toList());
+            List<String> actual = index.search(term).stream().sorted().collect(Collectors.toList());
+            assertEquals(expected, actual, term);
+        }
+    }
+    
+    @Test
+    void exactIdRanksFirst() {
+        assertEquals("MED000123", index.search("med000123").get(0));
+    }
+}
@@ -0,0 +1,103 @@
+package utils;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockConstruction;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.mockito.MockedConstruction;
+
+import dao.DashboardDAO;
+import dao.MedicineDAO;
+import dao.SaleDAO;
+import dao.TombstoneDAO;
+import dao.UserDAO;
+import models.Medicine;
+
+/**
+ * A real DatabaseManager over mocked DAOs serving a synthetic catalog,
+ * installed as the DatabaseManager and DatabaseConnection singletons until
+ * closed. The singletons are swapped rather than mocked statically so that
+ * other threads (API workers, refreshers) see them too.
+ */
+public final class MockDatabase implements AutoCloseable {
+    private final List<Medicine> catalog;
+    private final List<MockedConstruction<?>> constructions = new ArrayList<>();
+    private final MockedConstruction<MedicineDAO> medicineDAOs;
+    private final Object previousConnection;
+    private final Object previousManager;
+    
+    public MockDatabase(int catalogSize) throws ReflectiveOperationException {
+        catalog = TestCatalog.generate(catalogSize, 3);
+        DatabaseConnection connection = mock(DatabaseConnection.class);
+        when(connection.isDatabaseAccessible()).thenReturn(true);
+        previousConnection = swapInstance(DatabaseConnection.class, connection);
+        
+        Map<String, Medicine> byId = catalog.stream().collect(Collectors.toMap(Medicine::getId, Function.identity()));
+        medicineDAOs = mockConstruction(MedicineDAO.class, (dao, context) -> {
+            when(dao.forEachMedicine(anyInt(), any())).thenAnswer(invocation -> {
+                Consumer<Medicine> consumer = invocation.getArgument(1);
+                catalog.forEach(consumer);
+                return true;
+            });
+            when(dao.getMedicinesByIds(anyList())).thenAnswer(invocation -> {
+                List<String> ids = invocation.getArgument(0);
+                return ids.stream().map(byId::get).collect(Collectors.toList());
+            });
+            when(dao.getCategories()).thenReturn(Arrays.asList(TestCatalog.CATEGORIES));
+            when(dao.getSupplierNames()).thenReturn(Collections.singletonList("Supplier 1"));
+            when(dao.getTotalMedicineCount()).thenReturn(catalog.size());
+            when(dao.getExpiringSoonMedicines(anyInt())).thenReturn(Collections.emptyList());
+            when(dao.getMedicinesByCategory(anyString())).thenReturn(Collections.emptyList());
+        });
+        constructions.add(medicineDAOs);
+        for (Class<?> type : Arrays.asList(UserDAO.class, DashboardDAO.class, SaleDAO.class, TombstoneDAO.class,
+                                           LastLoginRecorder.class, OfflineCheckout.class, DeltaSync.class)) {
+            constructions.add(mockConstruction(type));
+        }
+        
+        Constructor<DatabaseManager> constructor = DatabaseManager.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        previousManager = swapInstance(DatabaseManager.class, constructor.newInstance());
+    }
+    
+    public List<Medicine> getCatalog() {
+        return catalog;
+    }
+    
+    // The manager's MedicineDAO, for verifying which queries were made
+    public MedicineDAO getMedicineDAO() {
+        return medicineDAOs.constructed().get(0);
+    }
+    
+    @Override
+    public void close() throws ReflectiveOperationException {
+        swapInstance(DatabaseManager.class, previousManager);
+        constructions.forEach(MockedConstruction::close);
+        swapInstance(DatabaseConnection.class, previousConnection);
+    }
+    
+    private static Object swapInstance(Class<?> type, Object instance) throws ReflectiveOperationException {
+        Field field = type.getDeclaredField("instance");
+        field.setAccessible(true);
+        synchronized (type) {
+            Object previous = field.get(null);
+            field.set(null, instance);
+            return previous;
+        }
+    }
+}
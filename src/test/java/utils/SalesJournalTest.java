@@ -0,0 +1,67 @@
+package utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import models.Sale;
+
+/**
+ * Closing the journal while checkouts are appending must neither tear a
+ * record nor leave an append waiting: every append returns, and exactly the
+ * ones that reported success are found when the file is reopened.
+ */
+class SalesJournalTest {
+    @TempDir
+    Path dir;
+    
+    @Test
+    void closeDuringAppendsKeepsEveryAcknowledgedSale() throws Exception {
+        Path path = dir.resolve("sales.journal");
+        SalesJournal journal = new SalesJournal(path);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<String>> appends = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            appends.add(pool.submit(() -> journal.append(sale())));
+        }
+        Thread.sleep(5);
+        journal.close();
+        
+        Set<String> written = new HashSet<>();
+        for (Future<String> append : appends) {
+            String entryId = append.get(10, TimeUnit.SECONDS); // none may hang
+            if (entryId != null) {
+                written.add(entryId);
+            }
+        }
+        pool.shutdown();
+        assertNull(journal.append(sale()));
+        
+        SalesJournal reopened = new SalesJournal(path);
+        Set<String> recovered = new HashSet<>();
+        for (SalesJournal.Entry entry : reopened.getPending(Integer.MAX_VALUE)) {
+            recovered.add(entry.getEntryId());
+        }
+        reopened.close();
+        assertEquals(written, recovered);
+    }
+    
+    private static Sale sale() {
+        Sale sale = new Sale("Walk-in", "U001");
+        sale.getItems().add(new Sale.SaleItem("M000001", "Amoxicillin", 4.5, 2));
+        sale.completeSale();
+        return sale;
+    }
+}
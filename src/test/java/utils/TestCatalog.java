@@ -0,0 +1,48 @@
+package utils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import models.Medicine;
+
+// Synthetic medicine catalogs for tests and benchmarks; the same seed gives the same catalog
+final class TestCatalog {
+    static final String[] CATEGORIES = {
+        "Analgesics", "Antibiotics", "Antihistamines", "Antacids", "Antivirals",
+        "Cardiovascular", "Dermatology", "Diabetes", "Respiratory", "Vitamins"
+    };
+    private static final String[] SYLLABLES = {
+        "am", "ox", "cil", "lin", "para", "ce", "ta", "mol", "ibu", "pro", "fen", "met", "for", "min",
+        "az", "ith", "ro", "my", "cin", "lo", "ra", "ta", "dine", "ome", "pra", "zole", "cet", "iri", "zine"
+    };
+    private static final String[] FORMS = {"Tablets", "Capsules", "Syrup", "Cream", "Drops", "Injection"};
+    
+    private TestCatalog() {
+    }
+    
+    static List<Medicine> generate(int size, long seed) {
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        List<Medicine> medicines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int s = 0; s < syllables; s++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            name.append(' ').append(50 * (1 + random.nextInt(20))).append("mg ")
+                .append(FORMS[random.nextInt(FORMS.length)]);
+            
+            Medicine medicine = new Medicine(name.toString(), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                                             random.nextInt(200), 1 + random.nextInt(5000) / 100.0,
+                                             today.plusDays(random.nextInt(730) - 60), "Supplier " + random.nextInt(50),
+                                             10 + random.nextInt(20));
+            medicine.setId(String.format("MED%06d", i + 1));
+            medicines.add(medicine);
+        }
+        return medicines;
+    }
+}
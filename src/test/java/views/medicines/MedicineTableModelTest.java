@@ -0,0 +1,103 @@
+package views.medicines;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import controllers.MedicineController;
+import models.Medicine;
+import models.StockChange;
+import utils.ChangeFeed;
+import utils.MockDatabase;
+
+/**
+ * Stock changes are patched into the rows on screen exactly once, whether
+ * they were published before the rows were queried, while the query ran, or
+ * after. A page whose read failed is read again rather than cached empty.
+ */
+class MedicineTableModelTest {
+    private MockDatabase database;
+    private ChangeFeed feed;
+    private MedicineTableModel model;
+    private Medicine medicine;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        database = new MockDatabase(10);
+        MedicineController controller = new MedicineController();
+        feed = controller.getChangeFeed();
+        model = new MedicineTableModel(controller);
+        medicine = new Medicine(database.getCatalog().get(0));
+        medicine.setStock(10);
+    }
+    
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+    
+    @Test
+    void changePublishedBeforeTheQueryIsNotAppliedAgain() {
+        long sold = feed.currentCursor();
+        feed.publish(medicine.getId(), StockChange.Kind.SOLD, -3, StockChange.UNKNOWN);
+        long readAt = feed.currentCursor();
+        medicine.setStock(7); // the query already saw the sale
+        
+        model.setRows("", null, rows(medicine), readAt);
+        model.applyStockDelta(medicine.getId(), -3, sold); // the panel's next poll delivers it
+        
+        assertEquals(7, model.getMedicineAt(0).getStock());
+    }
+    
+    @Test
+    void changePublishedWhileTheQueryRanIsAppliedOnce() {
+        long readAt = feed.currentCursor();
+        feed.publish(medicine.getId(), StockChange.Kind.SOLD, -2, StockChange.UNKNOWN);
+        
+        model.setRows("", null, rows(medicine), readAt); // the panel consumed the sale before the rows arrived
+        assertEquals(8, model.getMedicineAt(0).getStock());
+        
+        model.applyStockDelta(medicine.getId(), -2, readAt);
+        assertEquals(8, model.getMedicineAt(0).getStock());
+        
+        feed.publish(medicine.getId(), StockChange.Kind.ADJUSTED, 5, StockChange.UNKNOWN);
+        model.applyStockDelta(medicine.getId(), 5, readAt + 1);
+        assertEquals(13, model.getMedicineAt(0).getStock());
+    }
+    
+    @Test
+    void failedPageReadIsRetried() throws Exception {
+        List<Medicine> catalog = database.getCatalog();
+        // findMedicinesPage returns an empty list when the query fails
+        when(database.getMedicineDAO().findMedicinesPage(any(), any(), any(), any(), anyInt(), anyInt()))
+            .thenReturn(Collections.emptyList(), catalog);
+        SwingUtilities.invokeAndWait(() -> model.setFilter("", null, catalog.size()));
+        
+        Medicine[] row = new Medicine[1];
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (row[0] == null && System.currentTimeMillis() < deadline) {
+            SwingUtilities.invokeAndWait(() -> row[0] = model.getMedicineAt(0));
+            Thread.sleep(50);
+        }
+        assertNotNull(row[0]);
+        assertEquals(catalog.get(0).getId(), row[0].getId());
+    }
+    
+    private static List<Medicine> rows(Medicine medicine) {
+        List<Medicine> rows = new ArrayList<>();
+        rows.add(medicine);
+        return rows;
+    }
+}